@@ -0,0 +1,16 @@
+-- =====================================================
+-- 音频指纹去重迁移脚本
+-- 识别成功的视频写入音频指纹，之后上传的重复内容（重新封装、转码、裁剪）复用重叠部分的字幕
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_audio_fingerprints_table.sql
+-- =====================================================
+
+USE subtitle_db;
+
+CREATE TABLE IF NOT EXISTS `audio_fingerprints` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `hash_value` INT NOT NULL COMMENT '频谱峰值对哈希',
+    `video_id` BIGINT NOT NULL,
+    `frame` INT NOT NULL COMMENT '锚点峰值所在帧（每帧32ms）',
+    INDEX `idx_hash_value` (`hash_value`),
+    INDEX `idx_video_id` (`video_id`)
+) COMMENT '已识别视频的音频指纹';
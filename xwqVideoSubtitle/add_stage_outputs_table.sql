@@ -0,0 +1,19 @@
+-- =====================================================
+-- 流水线阶段产出迁移脚本
+-- 字幕生成按 提取 → 切片 → 识别 → 渲染 分阶段执行，识别合并后的字幕片段按输入哈希保存，
+-- 换输出格式或任务中断后重新执行时跳过输入未变的阶段
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_stage_outputs_table.sql
+-- =====================================================
+
+USE subtitle_db;
+
+CREATE TABLE IF NOT EXISTS `stage_outputs` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `stage` VARCHAR(32) NOT NULL COMMENT '阶段名称',
+    `input_key` CHAR(64) NOT NULL COMMENT '阶段输入的SHA-256哈希',
+    `video_id` BIGINT NOT NULL COMMENT '产出所属视频',
+    `output` MEDIUMTEXT NOT NULL COMMENT '阶段产出（JSON）',
+    `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_stage_input` (`stage`, `input_key`),
+    INDEX `idx_video_id` (`video_id`)
+) COMMENT '流水线阶段产出';
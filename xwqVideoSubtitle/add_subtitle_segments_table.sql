@@ -0,0 +1,23 @@
+-- =====================================================
+-- 字幕片段表迁移脚本
+-- 字幕片段按 (subtitle_id, start_ms) 单独存储，播放器和编辑器按时间窗口或游标分页读取，
+-- 不再读取整份 subtitles.content；已有字幕在首次按片段读取时自动写入
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_subtitle_segments_table.sql
+-- =====================================================
+
+USE subtitle_db;
+
+ALTER TABLE `subtitles`
+    ADD COLUMN `max_segment_ms` BIGINT NULL COMMENT '最长片段时长（毫秒），为空表示片段尚未写入 subtitle_segments';
+
+CREATE TABLE IF NOT EXISTS `subtitle_segments` (
+    `subtitle_id` BIGINT NOT NULL,
+    `start_ms` BIGINT NOT NULL COMMENT '开始时间（毫秒）',
+    `seq` INT NOT NULL COMMENT '片段在字幕中的序号（从0开始）',
+    `end_ms` BIGINT NOT NULL COMMENT '结束时间（毫秒）',
+    `text` TEXT NOT NULL,
+    `confidence` DOUBLE COMMENT '置信度（0-1）',
+    `speaker` INT COMMENT '说话人标识',
+    PRIMARY KEY (`subtitle_id`, `start_ms`, `seq`),
+    FOREIGN KEY (`subtitle_id`) REFERENCES `subtitles`(`id`) ON DELETE CASCADE
+) COMMENT '字幕片段';
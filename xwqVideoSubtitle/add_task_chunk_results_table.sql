@@ -0,0 +1,17 @@
+-- =====================================================
+-- 切片级断点续传迁移脚本
+-- 切片识别结果随到随存，任务重新执行时只识别未完成的切片
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_task_chunk_results_table.sql
+-- =====================================================
+
+USE subtitle_db;
+
+CREATE TABLE IF NOT EXISTS `task_chunk_results` (
+    `id` BIGINT AUTO_INCREMENT PRIMARY KEY,
+    `task_id` VARCHAR(100) NOT NULL COMMENT '任务ID',
+    `start_frame` BIGINT NOT NULL COMMENT '切片起始帧（含）',
+    `end_frame` BIGINT NOT NULL COMMENT '切片结束帧（不含）',
+    `segments` MEDIUMTEXT NOT NULL COMMENT '字幕片段（JSON），时间相对切片起点',
+    `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY `uk_task_chunk` (`task_id`, `start_frame`, `end_frame`)
+) COMMENT '任务切片识别结果';
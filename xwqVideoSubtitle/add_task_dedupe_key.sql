@@ -0,0 +1,11 @@
+-- =====================================================
+-- 字幕任务去重迁移脚本
+-- 同一视频、语言和服务商同时只保留一个排队或执行中的任务，重复提交关联到已有任务
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_task_dedupe_key.sql
+-- =====================================================
+
+USE subtitle_db;
+
+ALTER TABLE `task_records`
+ADD COLUMN `dedupe_key` VARCHAR(255) COMMENT '去重键，仅排队或执行中的任务有值' AFTER `attempts`,
+ADD UNIQUE KEY `uk_task_dedupe` (`dedupe_key`);
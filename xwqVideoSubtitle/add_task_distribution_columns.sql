@@ -0,0 +1,17 @@
+-- =====================================================
+-- 多节点任务分发迁移脚本
+-- 任务记录保存来源节点与媒体路径，任意节点可通过 FOR UPDATE SKIP LOCKED 领取任务（需 MySQL 8.0+）
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_task_distribution_columns.sql
+-- =====================================================
+
+USE subtitle_db;
+
+ALTER TABLE `task_records`
+ADD COLUMN `origin_node` VARCHAR(255) COMMENT '接收任务的节点地址' AFTER `payload`,
+ADD COLUMN `media_path` VARCHAR(500) COMMENT '媒体文件在来源节点上的路径' AFTER `origin_node`;
+
+-- 排队中的旧任务补全媒体路径
+UPDATE `task_records` t
+JOIN `videos` v ON v.`id` = t.`video_id`
+SET t.`media_path` = v.`file_path`
+WHERE t.`media_path` IS NULL AND t.`status` IN (0, 3);
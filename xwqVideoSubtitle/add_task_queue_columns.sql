@@ -0,0 +1,20 @@
+-- =====================================================
+-- 持久化字幕任务队列迁移脚本
+-- 字幕任务改为先写入 task_records 排队，由执行节点领取、续约，节点重启后任务可被重新领取
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_task_queue_columns.sql
+-- =====================================================
+
+USE subtitle_db;
+
+ALTER TABLE `task_records`
+MODIFY COLUMN `status` TINYINT DEFAULT 0 COMMENT '0: 进行中, 1: 完成, 2: 失败, 3: 排队中',
+ADD COLUMN `payload` TEXT COMMENT '任务参数（JSON）' AFTER `error_message`,
+ADD COLUMN `worker_id` VARCHAR(128) COMMENT '当前持有任务的执行节点' AFTER `payload`,
+ADD COLUMN `lease_until` DATETIME COMMENT '租约到期时间' AFTER `worker_id`,
+ADD COLUMN `attempts` INT NOT NULL DEFAULT 0 COMMENT '已被领取次数' AFTER `lease_until`,
+ADD INDEX `idx_task_queue` (`task_type`, `status`, `lease_until`);
+
+-- 旧版本内存线程池中丢失的任务无法恢复，标记为失败
+UPDATE `task_records`
+SET `status` = 2, `message` = '服务重启，任务已中断', `error_message` = '服务重启，任务已中断'
+WHERE `status` = 0 AND `worker_id` IS NULL AND `task_type` = 'subtitle_generate';
@@ -0,0 +1,19 @@
+-- =====================================================
+-- 视频媒体信息字段迁移脚本
+-- 上传时探测一次媒体信息并保存，生成字幕时不再重复打开视频容器
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_video_media_info_columns.sql
+-- =====================================================
+
+USE subtitle_db;
+
+ALTER TABLE `videos`
+ADD COLUMN `duration_seconds` DOUBLE COMMENT '时长（秒）' AFTER `format`,
+ADD COLUMN `has_audio` TINYINT(1) COMMENT '是否包含音频流，NULL表示未探测' AFTER `duration_seconds`,
+ADD COLUMN `audio_codec` VARCHAR(32) COMMENT '音频编码' AFTER `has_audio`,
+ADD COLUMN `audio_sample_rate` INT COMMENT '音频采样率（Hz）' AFTER `audio_codec`,
+ADD COLUMN `audio_channels` INT COMMENT '音频声道数' AFTER `audio_sample_rate`,
+ADD COLUMN `bit_rate` BIGINT COMMENT '容器总码率（bit/s）' AFTER `audio_channels`;
+
+-- 已有视频的时长从字符串字段回填；has_audio 保持 NULL，首次生成字幕时探测并回写
+UPDATE `videos` SET `duration_seconds` = CAST(`duration` AS DECIMAL(12, 2))
+WHERE `duration` IS NOT NULL AND `duration` <> '';
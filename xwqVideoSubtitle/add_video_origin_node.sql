@@ -0,0 +1,21 @@
+-- =====================================================
+-- 视频来源节点迁移脚本
+-- 视频记录保存接收上传并存储文件的节点地址，任务入队时从视频记录复制，
+-- 不再使用处理生成请求的节点（多节点负载均衡下两者可能不同）
+-- 执行方式：mysql -u subtitle -p subtitle_db < add_video_origin_node.sql
+-- =====================================================
+
+USE subtitle_db;
+
+ALTER TABLE `videos`
+ADD COLUMN `origin_node` VARCHAR(255) COMMENT '存储视频文件的节点地址，NULL表示旧数据' AFTER `file_path`;
+
+-- 已有视频无法确定存储节点，从最近一次字幕任务的来源节点回填
+UPDATE `videos` v
+JOIN (
+    SELECT `video_id`, MAX(`id`) AS `last_id` FROM `task_records`
+    WHERE `origin_node` IS NOT NULL GROUP BY `video_id`
+) last_task ON last_task.`video_id` = v.`id`
+JOIN `task_records` t ON t.`id` = last_task.`last_id`
+SET v.`origin_node` = t.`origin_node`
+WHERE v.`origin_node` IS NULL;
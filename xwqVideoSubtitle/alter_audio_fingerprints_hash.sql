@@ -0,0 +1,16 @@
+-- =====================================================
+-- 音频指纹64位哈希迁移脚本
+-- 指纹哈希由峰值对（22位）改为峰值三元组（43位），减少不同内容之间的哈希碰撞；
+-- 复合索引覆盖按哈希统计候选视频与读取指纹两类查询
+-- 旧哈希与新算法不兼容，迁移时清空，之后识别成功的视频重新写入
+-- 执行方式：mysql -u subtitle -p subtitle_db < alter_audio_fingerprints_hash.sql
+-- =====================================================
+
+USE subtitle_db;
+
+TRUNCATE TABLE `audio_fingerprints`;
+
+ALTER TABLE `audio_fingerprints`
+MODIFY COLUMN `hash_value` BIGINT NOT NULL COMMENT '频谱峰值三元组哈希',
+DROP INDEX `idx_hash_value`,
+ADD INDEX `idx_hash_video_frame` (`hash_value`, `video_id`, `frame`);
@@ -0,0 +1,88 @@
+package com.subtitle.benchmark;
+
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.utils.SubtitleFormatConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字幕格式转换基准测试
+ * 以10万条字幕片段为输入，结果按单条片段计：耗时为 ns/op，
+ * 配合 -prof gc 时 gc.alloc.rate.norm 即每条片段分配的字节数。
+ * <p>
+ * 运行方式：mvn -P benchmark compile exec:exec -Djmh.args="SubtitleFormatBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubtitleFormatBenchmark {
+
+    private static final int SEGMENTS = 100_000;
+
+    private List<SubtitleSegment> segments;
+
+    /**
+     * 丢弃写入内容的输出，只衡量转换本身
+     */
+    private final Writer nullWriter = Writer.nullWriter();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        segments = new ArrayList<>(SEGMENTS);
+        double time = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            SubtitleSegment segment = new SubtitleSegment();
+            segment.setIndex(i + 1);
+            segment.setStartTime(time);
+            time += 1 + random.nextDouble() * 5;
+            segment.setEndTime(time);
+            segment.setText("这是第" + (i + 1) + "条字幕，用于测试格式转换");
+            segments.add(segment);
+            time += random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public void srtToWriter() throws IOException {
+        SubtitleFormatConverter.writeSrt(segments, nullWriter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public void vttToWriter() throws IOException {
+        SubtitleFormatConverter.writeVtt(segments, nullWriter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public String srtToString() {
+        return SubtitleFormatConverter.convertToSrt(segments);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SEGMENTS)
+    public String vttToString() {
+        return SubtitleFormatConverter.convertToVtt(segments);
+    }
+}
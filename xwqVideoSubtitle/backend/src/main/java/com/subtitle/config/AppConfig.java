@@ -28,6 +28,9 @@ public class AppConfig {
     @Value("${app.max-video-size}")
     private Long maxVideoSize;
 
+    @Value("${app.streaming-extraction:true}")
+    private boolean streamingExtraction;
+
     // Getter方法
     public String getVideoPath() {
         return videoPath;
@@ -52,4 +55,8 @@ public class AppConfig {
     public Long getMaxVideoSize() {
         return maxVideoSize;
     }
+
+    public boolean isStreamingExtraction() {
+        return streamingExtraction;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+/**
+ * 多节点部署配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.cluster")
+public class ClusterConfig {
+
+    /**
+     * 本节点供其他节点访问的地址（含context-path），上传的视频记录中保存为存储节点
+     */
+    private String nodeUrl = "http://localhost:8081/api";
+
+    /**
+     * 节点间内部接口共享密钥，为空时不提供内部媒体下载接口
+     */
+    private String secret;
+
+    /**
+     * 本节点的任务ID生成器节点号（0-1023），多节点部署（配置了 secret）时必须为各节点配置不同的值；小于0表示未配置，仅单节点部署时按0处理
+     */
+    private Integer workerId = -1;
+
+    /**
+     * 从其他节点拉取媒体的读超时（毫秒）
+     */
+    private Integer fetchTimeoutMs = 600000;
+}
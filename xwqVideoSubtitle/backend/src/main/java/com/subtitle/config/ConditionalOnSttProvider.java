@@ -0,0 +1,24 @@
+package com.subtitle.config;
+
+import org.springframework.context.annotation.Conditional;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * STT服务商启用条件：app.stt.provider 为该服务商，或 app.stt.routing.providers 中包含该服务商
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Conditional(OnSttProviderCondition.class)
+public @interface ConditionalOnSttProvider {
+
+    /**
+     * 服务商标识（zhipu, whisper, azure, google）
+     */
+    String value();
+}
@@ -0,0 +1,34 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+/**
+ * 音频指纹去重配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.fingerprint")
+public class FingerprintConfig {
+
+    /**
+     * 是否启用音频指纹：识别前查找音频重叠的已识别视频，重叠部分直接复用字幕
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 一段匹配至少需要的一致哈希数
+     */
+    private Integer minMatchHashes = 30;
+
+    /**
+     * 一段匹配的最短时长（秒）
+     */
+    private Double minMatchSeconds = 10.0;
+
+    /**
+     * 出现在过多位置的哈希区分度低，查找时跳过
+     */
+    private Integer maxRowsPerHash = 200;
+}
@@ -0,0 +1,54 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+/**
+ * 字幕任务队列配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.job")
+public class JobQueueConfig {
+
+    /**
+     * 是否在本节点执行任务，关闭后本节点只接收请求、写入队列
+     */
+    private Boolean workerEnabled = true;
+
+    /**
+     * 本节点同时执行的任务数
+     */
+    private Integer workerThreads = 2;
+
+    /**
+     * 排队中任务数上限，达到上限后拒绝新任务
+     */
+    private Integer maxQueued = 100;
+
+    /**
+     * 任务租约时长（秒），执行节点需在租约到期前续约，否则任务会被其他节点重新领取
+     */
+    private Integer leaseSeconds = 120;
+
+    /**
+     * 续约间隔（毫秒）
+     */
+    private Long heartbeatIntervalMs = 30000L;
+
+    /**
+     * 领取任务的轮询间隔（毫秒）
+     */
+    private Long pollIntervalMs = 2000L;
+
+    /**
+     * 单个任务最多被领取的次数，超过后判定为失败
+     */
+    private Integer maxAttempts = 3;
+
+    /**
+     * 任务部分失败后重新排队的基础间隔（秒），按已执行次数递增
+     */
+    private Integer retryDelaySeconds = 60;
+}
@@ -0,0 +1,33 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ConditionalOnSttProvider} 的判断逻辑
+ */
+public class OnSttProviderCondition implements Condition {
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnSttProvider.class.getName());
+        if (attributes == null) {
+            return false;
+        }
+        String provider = (String) attributes.get("value");
+
+        if (provider.equalsIgnoreCase(context.getEnvironment().getProperty("app.stt.provider"))) {
+            return true;
+        }
+        List<String> routed = Binder.get(context.getEnvironment())
+                .bind("app.stt.routing.providers", Bindable.listOf(String.class))
+                .orElse(List.of());
+        return routed.stream().anyMatch(provider::equalsIgnoreCase);
+    }
+}
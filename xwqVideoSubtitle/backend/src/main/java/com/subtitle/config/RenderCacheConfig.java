@@ -0,0 +1,19 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+/**
+ * 字幕渲染结果缓存配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.render-cache")
+public class RenderCacheConfig {
+
+    /**
+     * 缓存总大小上限（MB），0 表示不缓存
+     */
+    private Long maxSizeMb = 64L;
+}
@@ -0,0 +1,29 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+/**
+ * 语音识别结果缓存配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.stt.cache")
+public class SttCacheConfig {
+
+    /**
+     * 是否启用识别结果缓存
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 缓存目录
+     */
+    private String path = "./uploads/stt-cache";
+
+    /**
+     * 缓存总大小上限（MB），超出后淘汰最久未使用的结果
+     */
+    private Long maxSizeMb = 1024L;
+}
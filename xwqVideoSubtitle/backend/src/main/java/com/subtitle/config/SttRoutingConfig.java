@@ -0,0 +1,47 @@
+package com.subtitle.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多STT服务商路由配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.stt.routing")
+public class SttRoutingConfig {
+
+    /**
+     * 除 app.stt.provider 外同时启用的服务商，按切片路由并作为对冲请求的备选
+     */
+    private List<String> providers = new ArrayList<>();
+
+    /**
+     * 是否启用对冲请求：切片请求耗时超过该服务商历史延迟分位数时，向另一服务商再发一次，取先返回的结果
+     */
+    private Boolean hedgeEnabled = true;
+
+    /**
+     * 触发对冲的延迟分位数
+     */
+    private Double hedgePercentile = 0.95;
+
+    /**
+     * 触发对冲的最短等待时间（毫秒），样本不足时也使用该值
+     */
+    private Long hedgeMinDelayMs = 3000L;
+
+    /**
+     * 计算分位数所需的最少样本数，不足时按最短等待时间对冲
+     */
+    private Integer hedgeMinSamples = 20;
+
+    /**
+     * 对冲请求占正常请求的比例上限，避免服务整体变慢时对冲请求成倍放大负载
+     */
+    private Double hedgeBudget = 0.1;
+}
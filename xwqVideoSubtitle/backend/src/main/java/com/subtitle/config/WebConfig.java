@@ -42,6 +42,7 @@ public class WebConfig implements WebMvcConfigurer {
                         "/uploads/**",         // 上传文件访问
                         "/captcha/**",         // 验证码接口
                         "/actuator/**",        // 健康检查接口
+                        "/internal/**",        // 节点间内部接口（共享密钥认证）
                         "/error"               // 错误页面
                 );
     }
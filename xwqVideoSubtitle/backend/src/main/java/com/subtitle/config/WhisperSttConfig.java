@@ -31,4 +31,14 @@ public class WhisperSttConfig {
      * 请求超时时间(毫秒)
      */
     private Integer timeout = 120000; // 2分钟
+
+    /**
+     * 上传编码(flac, wav)，FLAC无损且体积约为WAV的一半
+     */
+    private String uploadFormat = "flac";
+
+    /**
+     * 单个任务内并发转写的切片数上限
+     */
+    private Integer concurrency = 2;
 }
@@ -36,4 +36,24 @@ public class ZhipuSttConfig {
      * 请求超时时间(毫秒)
      */
     private Integer timeout = 60000;
+
+    /**
+     * 单次请求的最大音频时长(秒)，接口限制30秒，留出余量
+     */
+    private Integer maxChunkDuration = 25;
+
+    /**
+     * 上传编码(wav)，GLM-ASR仅接受wav/mp3
+     */
+    private String uploadFormat = "wav";
+
+    /**
+     * 并发转写的切片数上限（本节点所有任务共用）
+     */
+    private Integer concurrency = 4;
+
+    /**
+     * 每秒请求数上限，0表示不限制
+     */
+    private Double requestsPerSecond = 0.0;
 }
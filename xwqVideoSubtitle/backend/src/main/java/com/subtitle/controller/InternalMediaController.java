@@ -0,0 +1,67 @@
+package com.subtitle.controller;
+
+import com.subtitle.config.ClusterConfig;
+import com.subtitle.entity.Video;
+import com.subtitle.service.ClusterMediaService;
+import com.subtitle.service.VideoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 节点间内部接口
+ * 执行节点本地没有视频文件时，通过该接口从接收上传的节点拉取，使用共享密钥认证
+ */
+@RestController
+@RequestMapping("/internal/media")
+public class InternalMediaController {
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    @Autowired
+    private VideoService videoService;
+
+    /**
+     * 下载视频原文件
+     */
+    @GetMapping("/videos/{videoId}")
+    public ResponseEntity<Resource> downloadVideo(@PathVariable Long videoId,
+                                                  @RequestHeader(value = ClusterMediaService.SECRET_HEADER, required = false) String secret) {
+        if (!isAuthorized(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Video video = videoService.getVideoById(videoId);
+        if (video == null) {
+            return ResponseEntity.notFound().build();
+        }
+        File file = new File(video.getFilePath());
+        if (!file.isFile()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(file.length())
+                .body(new FileSystemResource(file));
+    }
+
+    private boolean isAuthorized(String secret) {
+        String expected = clusterConfig.getSecret();
+        if (!StringUtils.hasText(expected) || secret == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                secret.getBytes(StandardCharsets.UTF_8));
+    }
+}
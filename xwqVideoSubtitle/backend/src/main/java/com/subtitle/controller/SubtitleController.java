@@ -1,17 +1,42 @@
 package com.subtitle.controller;
 
 import com.subtitle.entity.Subtitle;
+import com.subtitle.entity.TaskRecord;
 import com.subtitle.entity.Video;
 import com.subtitle.dto.SubtitleGenerateDTO;
 import com.subtitle.dto.ApiResponse;
+import com.subtitle.dto.SegmentPage;
+import com.subtitle.service.RenderedSubtitleCache;
+import com.subtitle.service.SubtitleJobQueue;
+import com.subtitle.service.SubtitleSegmentService;
 import com.subtitle.service.SubtitleService;
+import com.subtitle.service.TaskIdGenerator;
 import com.subtitle.service.VideoService;
 import com.subtitle.mapper.SubtitleMapper;
+import com.subtitle.utils.FileDownloadUtils;
+import com.subtitle.utils.JwtUtils;
+import com.subtitle.utils.SubtitleRenderer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/subtitles")
@@ -27,11 +52,24 @@ public class SubtitleController {
     @Autowired
     private VideoService videoService;
 
+    @Autowired
+    private SubtitleJobQueue subtitleJobQueue;
+
+    @Autowired
+    private TaskIdGenerator taskIdGenerator;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private SubtitleSegmentService subtitleSegmentService;
+
     /**
      * 生成字幕
      */
     @PostMapping("/generate")
-    public ApiResponse<String> generateSubtitle(@RequestBody SubtitleGenerateDTO generateDTO) {
+    public ApiResponse<String> generateSubtitle(@RequestBody SubtitleGenerateDTO generateDTO,
+                                                HttpServletResponse response) {
         try {
             // 验证视频是否存在
             Video video = videoService.getVideoById(generateDTO.getVideoId());
@@ -40,13 +78,20 @@ public class SubtitleController {
             }
 
             // 生成任务ID
-            String taskId = "subtitle_" + System.currentTimeMillis();
+            String taskId = taskIdGenerator.nextTaskId();
 
-            // 异步生成字幕，传入taskId
-            subtitleService.generateSubtitleAsync(taskId, generateDTO.getVideoId(), generateDTO);
+            // 写入任务队列，由执行节点领取处理；相同任务正在进行时返回已有任务
+            TaskRecord task = subtitleJobQueue.enqueue(taskId, video, generateDTO);
+            if (!taskId.equals(task.getTaskId())) {
+                return ApiResponse.success(task.getTaskId(), "相同的字幕任务正在进行，已关联到该任务");
+            }
 
             // 返回任务ID供客户端查询进度
-            return ApiResponse.success(taskId, "字幕生成任务已启动，请使用任务ID查询进度");
+            return ApiResponse.success(taskId, "字幕生成任务已提交，请使用任务ID查询进度");
+        } catch (SubtitleJobQueue.QueueFullException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "30");
+            return ApiResponse.error(429, e.getMessage());
         } catch (Exception e) {
             return ApiResponse.error(500, "启动字幕生成失败: " + e.getMessage());
         }
@@ -68,6 +113,54 @@ public class SubtitleController {
         }
     }
 
+    /**
+     * 取消任务
+     */
+    @PostMapping("/task/{taskId}/cancel")
+    public ApiResponse<Void> cancelTask(@PathVariable String taskId) {
+        try {
+            TaskRecord task = subtitleService.getTaskStatus(taskId);
+            if (task == null) {
+                return ApiResponse.error(404, "任务不存在");
+            }
+            if (!subtitleService.cancelTask(task)) {
+                return ApiResponse.error(409, "任务已结束，无法取消");
+            }
+            return ApiResponse.success(null, "任务已取消");
+        } catch (Exception e) {
+            return ApiResponse.error(500, "取消任务失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 签发任务进度订阅令牌
+     * EventSource 无法设置请求头，订阅时通过 token 查询参数传递该令牌；令牌只能订阅这一个任务，一分钟内有效
+     */
+    @PostMapping("/task/{taskId}/events/token")
+    public ApiResponse<String> createTaskEventsToken(@PathVariable String taskId,
+                                                     @RequestAttribute("userId") Long userId) {
+        if (subtitleService.getTaskStatus(taskId) == null) {
+            return ApiResponse.error(404, "任务不存在");
+        }
+        return ApiResponse.success(jwtUtils.generateTaskEventsToken(userId, taskId));
+    }
+
+    /**
+     * 订阅任务进度（Server-Sent Events）
+     * 通过请求头认证，或通过 token 查询参数传递 {@link #createTaskEventsToken} 签发的订阅令牌
+     */
+    @GetMapping(value = "/task/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeTaskEvents(@PathVariable String taskId, HttpServletResponse response) {
+        SseEmitter emitter = subtitleService.subscribeTaskEvents(taskId);
+        if (emitter == null) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return null;
+        }
+        // 禁止反向代理缓冲事件流
+        response.setHeader("X-Accel-Buffering", "no");
+        return emitter;
+    }
+
     /**
      * 获取视频的所有字幕
      */
@@ -82,12 +175,12 @@ public class SubtitleController {
     }
 
     /**
-     * 获取字幕详情
+     * 获取字幕详情（不含片段内容）
      */
     @GetMapping("/{id}")
     public ApiResponse<Subtitle> getSubtitle(@PathVariable Long id) {
         try {
-            Subtitle subtitle = subtitleMapper.selectById(id);
+            Subtitle subtitle = subtitleService.getSubtitle(id);
             if (subtitle == null) {
                 return ApiResponse.error(404, "字幕不存在");
             }
@@ -98,22 +191,130 @@ public class SubtitleController {
     }
 
     /**
-     * 导出字幕文件
+     * 获取字幕片段
+     * 返回与时间窗口 [from, to) 重叠的片段，按开始时间排序；片段较多时通过 nextCursor 继续读取
+     * @param from 窗口开始（秒），不传表示从头开始
+     * @param to 窗口结束（秒），不传表示到结尾
+     * @param cursor 上一页返回的 nextCursor
      */
-    @GetMapping("/{id}/export")
-    public ApiResponse<?> exportSubtitle(@PathVariable Long id,
-                                       @RequestParam(defaultValue = "srt") String format) {
+    @GetMapping("/{id}/segments")
+    public ApiResponse<SegmentPage> getSegments(@PathVariable Long id,
+                                                @RequestParam(required = false) Double from,
+                                                @RequestParam(required = false) Double to,
+                                                @RequestParam(required = false) String cursor,
+                                                @RequestParam(defaultValue = "200") Integer limit) {
         try {
-            byte[] subtitleFile = subtitleService.getSubtitleFile(id);
-            if (subtitleFile == null) {
-                return ApiResponse.error(404, "字幕文件不存在");
+            SegmentPage page = subtitleSegmentService.getSegments(id, from, to, cursor, limit);
+            if (page == null) {
+                return ApiResponse.error(404, "字幕不存在");
             }
-            return ApiResponse.success(subtitleFile, "字幕导出成功");
+            return ApiResponse.success(page);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(400, e.getMessage());
         } catch (Exception e) {
-            return ApiResponse.error(500, "导出字幕失败: " + e.getMessage());
+            return ApiResponse.error(500, "获取字幕片段失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 导出字幕文件
+     * 与生成时格式相同时直接发送生成的文件，其他格式从字幕片段渲染，不重新识别
+     */
+    @GetMapping("/{id}/export")
+    public void exportSubtitle(@PathVariable Long id,
+                               @RequestParam(defaultValue = "srt") String format,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        SubtitleRenderer.Format renderFormat = SubtitleRenderer.Format.of(format);
+        if (renderFormat == null) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "不支持的字幕格式: " + format);
+            return;
+        }
+        // 不读取片段内容，协商缓存命中或渲染结果已缓存时无需加载
+        Subtitle subtitle = subtitleService.getSubtitle(id);
+        if (subtitle == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "字幕不存在");
+            return;
+        }
+        if (!Objects.equals(subtitle.getStatus(), 1)) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "字幕尚未生成完成");
+            return;
+        }
+        String downloadName = "subtitle_" + id + "." + renderFormat.getExtension();
+
+        File file = subtitleService.getSubtitleFile(subtitle, renderFormat);
+        if (file != null) {
+            FileDownloadUtils.send(file, renderFormat.getContentType(), downloadName, request, response);
+            return;
+        }
+
+        // 先协商缓存，客户端已有最新内容时不再读取和渲染
+        String etag = "\"" + RenderedSubtitleCache.key(subtitle, renderFormat) + "\"";
+        if (FileDownloadUtils.checkNotModified(etag, request, response)) {
+            return;
+        }
+        long lastModified = subtitle.getUpdatedAt() != null
+                ? subtitle.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+        byte[] rendered = subtitleService.getRendered(subtitle, renderFormat);
+        if (rendered != null) {
+            FileDownloadUtils.send(rendered, etag, lastModified, renderFormat.getContentType(), downloadName,
+                    request, response);
+            return;
+        }
+        FileDownloadUtils.stream(etag, lastModified, renderFormat.getContentType(), downloadName, request, response,
+                out -> subtitleService.renderTo(subtitle, renderFormat, out));
+    }
+
+    /**
+     * 导入字幕文件（SRT、VTT、ASS），支持一次上传多个文件
+     * 逐个文件流式解析后保存为字幕记录，单个文件失败不影响其他文件；
+     * 未指定语言时记为 "und"，charset 指定无BOM文件的编码（如 GBK），默认UTF-8
+     */
+    @PostMapping("/import")
+    public ApiResponse<List<Map<String, Object>>> importSubtitles(
+            @RequestParam("videoId") Long videoId,
+            @RequestParam(value = "language", required = false) String language,
+            @RequestParam(value = "charset", required = false) String charset,
+            @RequestParam("files") List<MultipartFile> files) {
+        Video video = videoService.getVideoById(videoId);
+        if (video == null) {
+            return ApiResponse.error(404, "视频不存在");
+        }
+        if (files.isEmpty()) {
+            return ApiResponse.error(400, "请选择要导入的字幕文件");
+        }
+        // 文件带BOM时按BOM识别编码，否则按指定编码（默认UTF-8）
+        Charset fileCharset = null;
+        if (StringUtils.hasText(charset)) {
+            try {
+                fileCharset = Charset.forName(charset.trim());
+            } catch (IllegalArgumentException e) {
+                return ApiResponse.error(400, "不支持的字符编码: " + charset);
+            }
+        }
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        int failed = 0;
+        for (MultipartFile file : files) {
+            Map<String, Object> result = new HashMap<>();
+            result.put("filename", file.getOriginalFilename());
+            try (InputStream input = file.getInputStream()) {
+                Subtitle subtitle = subtitleService.importSubtitle(videoId, language, file.getOriginalFilename(), input,
+                        fileCharset);
+                result.put("subtitleId", subtitle.getId());
+                result.put("segmentCount", subtitle.getSegmentCount());
+            } catch (IllegalArgumentException e) {
+                failed++;
+                result.put("error", e.getMessage());
+            } catch (Exception e) {
+                failed++;
+                result.put("error", "导入失败: " + e.getMessage());
+            }
+            results.add(result);
+        }
+        return ApiResponse.success(results,
+                "导入完成：成功 " + (files.size() - failed) + " 个，失败 " + failed + " 个");
+    }
+
     /**
      * 删除字幕
      */
@@ -126,15 +327,8 @@ public class SubtitleController {
                 return ApiResponse.error(404, "字幕不存在");
             }
 
-            // 删除物理文件
-            if (subtitle.getFilePath() != null) {
-                try {
-                    java.nio.file.Files.deleteIfExists(java.nio.file.Paths.get(subtitle.getFilePath()));
-                } catch (Exception e) {
-                    // 记录日志但继续删除数据库记录
-                    System.err.println("删除字幕文件失败: " + e.getMessage());
-                }
-            }
+            // 删除物理文件和渲染缓存，片段表随记录级联删除
+            subtitleService.deleteSubtitleFiles(subtitle);
 
             // 删除数据库记录
             subtitleMapper.deleteById(id);
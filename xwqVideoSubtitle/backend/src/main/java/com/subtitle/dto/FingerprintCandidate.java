@@ -0,0 +1,12 @@
+package com.subtitle.dto;
+
+import lombok.Data;
+
+/**
+ * 指纹查询的候选视频及其命中的哈希数
+ */
+@Data
+public class FingerprintCandidate {
+    private Long videoId;  // 已识别的视频
+    private Long hits;     // 本批哈希在该视频中命中的行数
+}
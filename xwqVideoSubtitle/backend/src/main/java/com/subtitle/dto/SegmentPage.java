@@ -0,0 +1,17 @@
+package com.subtitle.dto;
+
+import com.subtitle.entity.SubtitleSegment;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * 字幕片段分页结果
+ */
+@Data
+@Accessors(chain = true)
+public class SegmentPage {
+    private List<SubtitleSegment> segments;  // 按开始时间排序的片段
+    private String nextCursor;               // 下一页游标，没有更多片段时为null
+}
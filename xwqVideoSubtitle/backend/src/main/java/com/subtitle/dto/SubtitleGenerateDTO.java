@@ -6,5 +6,5 @@ import lombok.Data;
 public class SubtitleGenerateDTO {
     private Long videoId;           // 视频ID
     private String language;        // 目标语言
-    private String format;          // 输出格式（JSON, SRT, VTT）
+    private String format;          // 输出格式（SRT, VTT, ASS, TTML, JSON）
 }
\ No newline at end of file
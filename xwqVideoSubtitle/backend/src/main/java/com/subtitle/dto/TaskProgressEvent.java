@@ -0,0 +1,21 @@
+package com.subtitle.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 任务进度推送事件
+ */
+@Data
+@Accessors(chain = true)
+public class TaskProgressEvent {
+    private String taskId;          // 任务ID
+    private Integer status;         // 0: 进行中, 1: 完成, 2: 失败, 3: 排队中
+    private Integer progress;       // 进度百分比
+    private String message;         // 当前阶段说明
+    private String errorMessage;    // 失败原因
+
+    public boolean isFinished() {
+        return status != null && (status == 1 || status == 2);
+    }
+}
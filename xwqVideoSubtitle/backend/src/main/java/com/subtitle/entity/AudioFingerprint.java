@@ -0,0 +1,33 @@
+package com.subtitle.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+/**
+ * 已识别视频的音频指纹哈希
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("audio_fingerprints")
+public class AudioFingerprint {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 峰值三元组哈希（64位）
+     */
+    private Long hashValue;
+
+    private Long videoId;
+
+    /**
+     * 锚点峰值所在的指纹帧号
+     */
+    private Integer frame;
+}
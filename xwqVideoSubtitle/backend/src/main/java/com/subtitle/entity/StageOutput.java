@@ -0,0 +1,48 @@
+package com.subtitle.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.TableField;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * 字幕生成流水线的阶段产出，按阶段输入的哈希保存，输入未变时重新执行直接复用
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("stage_outputs")
+public class StageOutput {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 阶段名称
+     */
+    private String stage;
+
+    /**
+     * 阶段输入的SHA-256哈希
+     */
+    private String inputKey;
+
+    /**
+     * 产出所属视频，删除视频时一并清理
+     */
+    private Long videoId;
+
+    /**
+     * 阶段产出（JSON）
+     */
+    private String output;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
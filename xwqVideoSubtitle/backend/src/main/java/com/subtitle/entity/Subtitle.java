@@ -38,6 +38,11 @@ public class Subtitle {
 
     private String filePath;
 
+    /**
+     * 最长片段时长（毫秒），按时间窗口查询片段时限定扫描范围；为空表示片段尚未写入 subtitle_segments
+     */
+    private Long maxSegmentMs;
+
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 
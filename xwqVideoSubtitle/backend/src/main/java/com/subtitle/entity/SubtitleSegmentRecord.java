@@ -0,0 +1,39 @@
+package com.subtitle.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+/**
+ * 单独存储的字幕片段，主键为 (subtitleId, startMs, seq)
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("subtitle_segments")
+public class SubtitleSegmentRecord {
+
+    private Long subtitleId;
+
+    /**
+     * 开始时间（毫秒）
+     */
+    private Long startMs;
+
+    /**
+     * 片段在字幕中的序号（从0开始），开始时间相同时区分片段
+     */
+    private Integer seq;
+
+    /**
+     * 结束时间（毫秒）
+     */
+    private Long endMs;
+
+    private String text;
+
+    private Double confidence;
+
+    private Integer speaker;
+}
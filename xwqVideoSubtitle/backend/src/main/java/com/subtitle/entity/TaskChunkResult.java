@@ -0,0 +1,45 @@
+package com.subtitle.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.TableField;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务中已完成切片的识别结果，任务重新执行时跳过这些切片
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("task_chunk_results")
+public class TaskChunkResult {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private String taskId;
+
+    /**
+     * 切片在原音频中的起始帧（含）
+     */
+    private Long startFrame;
+
+    /**
+     * 切片在原音频中的结束帧（不含）
+     */
+    private Long endFrame;
+
+    /**
+     * 字幕片段（JSON），时间相对切片起点
+     */
+    private String segments;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
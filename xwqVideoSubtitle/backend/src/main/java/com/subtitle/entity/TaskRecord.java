@@ -17,7 +17,10 @@ import java.time.LocalDateTime;
 @TableName("task_records")
 public class TaskRecord {
 
-    @TableId(type = IdType.AUTO)
+    /**
+     * 主键，与任务ID中的Snowflake ID一致，由 TaskIdGenerator 生成
+     */
+    @TableId(type = IdType.INPUT)
     private Long id;
 
     private String taskId;
@@ -34,6 +37,41 @@ public class TaskRecord {
 
     private String errorMessage;
 
+    /**
+     * 任务参数（JSON）
+     */
+    private String payload;
+
+    /**
+     * 接收任务的节点地址，执行节点本地没有媒体文件时从该节点拉取
+     */
+    private String originNode;
+
+    /**
+     * 媒体文件在来源节点上的路径
+     */
+    private String mediaPath;
+
+    /**
+     * 去重键（视频、语言、服务商），仅在任务排队或执行中时有值，数据库唯一索引保证同一键只有一个进行中的任务
+     */
+    private String dedupeKey;
+
+    /**
+     * 当前持有任务的执行节点
+     */
+    private String workerId;
+
+    /**
+     * 租约到期时间，到期未续约的任务会被重新领取
+     */
+    private LocalDateTime leaseUntil;
+
+    /**
+     * 已被领取的次数
+     */
+    private Integer attempts;
+
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 
@@ -28,12 +28,38 @@ public class Video {
 
     private String filePath;
 
+    /**
+     * 存储视频文件的节点地址（含context-path），多节点部署时其他节点从这里拉取媒体
+     */
+    private String originNode;
+
     private Long fileSize;
 
     private String duration;
 
     private String format;
 
+    /**
+     * 时长（秒），上传时探测
+     */
+    private Double durationSeconds;
+
+    /**
+     * 是否包含音频流，为null表示尚未探测
+     */
+    private Boolean hasAudio;
+
+    private String audioCodec;
+
+    private Integer audioSampleRate;
+
+    private Integer audioChannels;
+
+    /**
+     * 容器总码率（bit/s）
+     */
+    private Long bitRate;
+
     private Integer status;
 
     private Integer progress;
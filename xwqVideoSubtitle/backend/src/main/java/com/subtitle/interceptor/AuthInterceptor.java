@@ -6,6 +6,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * 认证拦截器
@@ -13,6 +18,8 @@ import org.springframework.web.servlet.HandlerInterceptor;
 @Component
 public class AuthInterceptor implements HandlerInterceptor {
 
+    private static final Pattern TASK_EVENTS_PATH = Pattern.compile("/subtitles/task/([^/]+)/events");
+
     @Autowired
     private JwtUtils jwtUtils;
 
@@ -25,6 +32,18 @@ public class AuthInterceptor implements HandlerInterceptor {
 
         // 从请求头获取 Token
         String token = request.getHeader("Authorization");
+        if (token == null) {
+            // EventSource 无法设置请求头，任务进度订阅接口只接受查询参数中该任务的订阅令牌，不接受登录令牌
+            String taskId = getEventStreamTaskId(request);
+            String queryToken = request.getParameter("token");
+            if (taskId != null && queryToken != null) {
+                Long userId = jwtUtils.getUserIdFromTaskEventsToken(queryToken, taskId);
+                if (userId != null) {
+                    request.setAttribute("userId", userId);
+                    return true;
+                }
+            }
+        }
         if (token != null && token.startsWith("Bearer ")) {
             token = token.substring(7);
 
@@ -43,4 +62,17 @@ public class AuthInterceptor implements HandlerInterceptor {
         response.getWriter().write("{\"code\":401,\"message\":\"未登录或登录已过期\"}");
         return false;
     }
+
+    /**
+     * 任务进度订阅请求（GET /subtitles/task/{taskId}/events）的任务ID
+     * @return 任务ID，不是订阅请求时返回null
+     */
+    private String getEventStreamTaskId(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = TASK_EVENTS_PATH.matcher(path);
+        return matcher.matches() ? UriUtils.decode(matcher.group(1), StandardCharsets.UTF_8) : null;
+    }
 }
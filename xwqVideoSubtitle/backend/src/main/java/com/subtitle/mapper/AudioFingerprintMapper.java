@@ -0,0 +1,48 @@
+package com.subtitle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.subtitle.dto.FingerprintCandidate;
+import com.subtitle.entity.AudioFingerprint;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 音频指纹 Mapper
+ */
+@Mapper
+public interface AudioFingerprintMapper extends BaseMapper<AudioFingerprint> {
+
+    /**
+     * 批量写入指纹
+     */
+    @Insert("<script>INSERT INTO audio_fingerprints (hash_value, video_id, frame) VALUES " +
+            "<foreach collection='rows' item='row' separator=','>(#{row.hashValue}, #{row.videoId}, #{row.frame})</foreach>" +
+            "</script>")
+    int insertBatch(@Param("rows") List<AudioFingerprint> rows);
+
+    /**
+     * 按哈希统计各视频的命中数，只返回命中最多的若干个视频
+     */
+    @Select("<script>SELECT video_id, COUNT(*) AS hits FROM audio_fingerprints WHERE hash_value IN " +
+            "<foreach collection='hashes' item='hash' open='(' separator=',' close=')'>#{hash}</foreach>" +
+            " AND video_id != #{excludeVideoId} GROUP BY video_id ORDER BY hits DESC LIMIT #{limit}</script>")
+    List<FingerprintCandidate> countByVideo(@Param("hashes") Collection<Long> hashes,
+                                            @Param("excludeVideoId") Long excludeVideoId,
+                                            @Param("limit") int limit);
+
+    /**
+     * 按哈希查找候选视频中的指纹
+     */
+    @Select("<script>SELECT hash_value, video_id, frame FROM audio_fingerprints WHERE hash_value IN " +
+            "<foreach collection='hashes' item='hash' open='(' separator=',' close=')'>#{hash}</foreach>" +
+            " AND video_id IN " +
+            "<foreach collection='videoIds' item='videoId' open='(' separator=',' close=')'>#{videoId}</foreach>" +
+            "</script>")
+    List<AudioFingerprint> selectByHashes(@Param("hashes") Collection<Long> hashes,
+                                          @Param("videoIds") Collection<Long> videoIds);
+}
@@ -0,0 +1,25 @@
+package com.subtitle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.subtitle.entity.StageOutput;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 流水线阶段产出 Mapper
+ */
+@Mapper
+public interface StageOutputMapper extends BaseMapper<StageOutput> {
+
+    /**
+     * 保存阶段产出，相同输入重复执行时覆盖
+     */
+    @Insert("INSERT INTO stage_outputs (stage, input_key, video_id, output, created_at) " +
+            "VALUES (#{stage}, #{inputKey}, #{videoId}, #{output}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE output = VALUES(output), created_at = NOW()")
+    int upsert(@Param("stage") String stage,
+               @Param("inputKey") String inputKey,
+               @Param("videoId") Long videoId,
+               @Param("output") String output);
+}
@@ -0,0 +1,43 @@
+package com.subtitle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.subtitle.entity.SubtitleSegmentRecord;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 字幕片段 Mapper
+ */
+@Mapper
+public interface SubtitleSegmentMapper extends BaseMapper<SubtitleSegmentRecord> {
+
+    /**
+     * 批量写入片段，已存在的片段跳过（并发补写同一字幕时不冲突）
+     */
+    @Insert("<script>INSERT IGNORE INTO subtitle_segments (subtitle_id, start_ms, seq, end_ms, text, confidence, speaker) VALUES " +
+            "<foreach collection='rows' item='row' separator=','>" +
+            "(#{row.subtitleId}, #{row.startMs}, #{row.seq}, #{row.endMs}, #{row.text}, #{row.confidence}, #{row.speaker})" +
+            "</foreach></script>")
+    int insertBatch(@Param("rows") List<SubtitleSegmentRecord> rows);
+
+    /**
+     * 按主键顺序读取与时间窗口 [fromMs, toMs) 重叠且位于游标 (afterStartMs, afterSeq) 之后的片段。
+     * 与窗口重叠的片段开始时间不早于 fromMs 减去最长片段时长，以此限定主键上的扫描范围
+     */
+    @Select("SELECT subtitle_id, start_ms, seq, end_ms, text, confidence, speaker FROM subtitle_segments " +
+            "WHERE subtitle_id = #{subtitleId} AND start_ms >= #{minStartMs} AND start_ms < #{toMs} " +
+            "AND end_ms > #{fromMs} " +
+            "AND (start_ms > #{afterStartMs} OR (start_ms = #{afterStartMs} AND seq > #{afterSeq})) " +
+            "ORDER BY start_ms, seq LIMIT #{limit}")
+    List<SubtitleSegmentRecord> selectWindow(@Param("subtitleId") Long subtitleId,
+                                             @Param("fromMs") long fromMs,
+                                             @Param("toMs") long toMs,
+                                             @Param("minStartMs") long minStartMs,
+                                             @Param("afterStartMs") long afterStartMs,
+                                             @Param("afterSeq") int afterSeq,
+                                             @Param("limit") int limit);
+}
@@ -0,0 +1,25 @@
+package com.subtitle.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.subtitle.entity.TaskChunkResult;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 切片识别结果 Mapper
+ */
+@Mapper
+public interface TaskChunkResultMapper extends BaseMapper<TaskChunkResult> {
+
+    /**
+     * 保存切片结果，同一切片重复识别时覆盖
+     */
+    @Insert("INSERT INTO task_chunk_results (task_id, start_frame, end_frame, segments, created_at) " +
+            "VALUES (#{taskId}, #{startFrame}, #{endFrame}, #{segments}, NOW()) " +
+            "ON DUPLICATE KEY UPDATE segments = VALUES(segments)")
+    int upsert(@Param("taskId") String taskId,
+               @Param("startFrame") long startFrame,
+               @Param("endFrame") long endFrame,
+               @Param("segments") String segments);
+}
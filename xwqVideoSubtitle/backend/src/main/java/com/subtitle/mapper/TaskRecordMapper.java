@@ -3,7 +3,88 @@ package com.subtitle.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.subtitle.entity.TaskRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.util.List;
+
+/**
+ * 任务记录 Mapper
+ * 租约时间统一使用数据库时钟，避免多节点间时钟偏差
+ */
 @Mapper
 public interface TaskRecordMapper extends BaseMapper<TaskRecord> {
-}
\ No newline at end of file
+
+    /**
+     * 锁定可领取的任务：排队中且已到重试时间，或执行中但租约已过期
+     * 已被其他节点锁定的行直接跳过，多个节点并发领取时互不等待，需在事务中调用
+     */
+    @Select("SELECT id FROM task_records WHERE task_type = #{taskType} " +
+            "AND ((status = 3 AND (lease_until IS NULL OR lease_until < NOW())) OR (status = 0 AND lease_until < NOW())) " +
+            "AND attempts < #{maxAttempts} ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Long> lockClaimableIds(@Param("taskType") String taskType,
+                                  @Param("maxAttempts") int maxAttempts,
+                                  @Param("limit") int limit);
+
+    /**
+     * 领取已锁定的任务，条件中重复校验状态以防行在加锁前已被修改
+     */
+    @Update("UPDATE task_records SET status = 0, worker_id = #{workerId}, " +
+            "lease_until = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND), attempts = attempts + 1 " +
+            "WHERE id = #{id} AND ((status = 3 AND (lease_until IS NULL OR lease_until < NOW())) " +
+            "OR (status = 0 AND lease_until < NOW())) " +
+            "AND attempts < #{maxAttempts}")
+    int claim(@Param("id") Long id,
+              @Param("workerId") String workerId,
+              @Param("leaseSeconds") int leaseSeconds,
+              @Param("maxAttempts") int maxAttempts);
+
+    /**
+     * 为本节点正在执行的任务续约
+     */
+    @Update("UPDATE task_records SET lease_until = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND) " +
+            "WHERE worker_id = #{workerId} AND status = 0")
+    int renewLeases(@Param("workerId") String workerId, @Param("leaseSeconds") int leaseSeconds);
+
+    /**
+     * 节点停止时将未完成的任务放回队列，本次领取不计入次数
+     */
+    @Update("UPDATE task_records SET status = 3, worker_id = NULL, lease_until = NULL, " +
+            "attempts = GREATEST(attempts - 1, 0), message = '执行节点停止，任务重新排队' " +
+            "WHERE worker_id = #{workerId} AND status = 0")
+    int requeue(@Param("workerId") String workerId);
+
+    /**
+     * 执行失败但可恢复的任务延迟后重新排队，排队期间 lease_until 表示最早可领取时间
+     */
+    @Update("UPDATE task_records SET status = 3, progress = 0, worker_id = NULL, " +
+            "lease_until = DATE_ADD(NOW(), INTERVAL #{delaySeconds} SECOND), message = #{message} " +
+            "WHERE id = #{id} AND worker_id = #{workerId} AND status = 0")
+    int retryLater(@Param("id") Long id,
+                   @Param("workerId") String workerId,
+                   @Param("delaySeconds") int delaySeconds,
+                   @Param("message") String message);
+
+    /**
+     * 取消排队或执行中的任务，执行节点检查到状态变化后停止执行
+     */
+    @Update("UPDATE task_records SET status = 2, worker_id = NULL, lease_until = NULL, dedupe_key = NULL, " +
+            "message = #{message}, error_message = #{message} WHERE id = #{id} AND status IN (0, 3)")
+    int cancel(@Param("id") Long id, @Param("message") String message);
+
+    /**
+     * 取消视频的所有排队或执行中的任务
+     */
+    @Update("UPDATE task_records SET status = 2, worker_id = NULL, lease_until = NULL, dedupe_key = NULL, " +
+            "message = #{message}, error_message = #{message} WHERE video_id = #{videoId} AND status IN (0, 3)")
+    int cancelByVideo(@Param("videoId") Long videoId, @Param("message") String message);
+
+    /**
+     * 租约过期且已达到最大领取次数的任务判定为失败
+     */
+    @Update("UPDATE task_records SET status = 2, worker_id = NULL, lease_until = NULL, dedupe_key = NULL, " +
+            "message = '任务多次中断，已放弃', error_message = '任务多次中断，已放弃' " +
+            "WHERE status = 0 AND lease_until < NOW() AND attempts >= #{maxAttempts}")
+    int failExhausted(@Param("maxAttempts") int maxAttempts);
+}
@@ -0,0 +1,191 @@
+package com.subtitle.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应限流器（每个STT服务商一个，JVM内所有任务共用）
+ * 并发数采用AIMD：请求成功且延迟未明显升高时缓慢加一，遇到限流时减半；
+ * 请求速率采用令牌桶，限流时速率同样减半并按成功请求逐步恢复到配置值；
+ * 服务商返回 Retry-After 时在该时间内暂停发出新请求
+ */
+public class AdaptiveRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveRateLimiter.class);
+
+    /**
+     * 未给出 Retry-After 时限流后的默认暂停时间
+     */
+    private static final long DEFAULT_COOLDOWN_NANOS = Duration.ofSeconds(1).toNanos();
+
+    /**
+     * 平滑延迟超过最小延迟的倍数时视为服务端拥塞，停止增加并发
+     */
+    private static final double LATENCY_CONGESTION_FACTOR = 2.0;
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final String name;
+    private final int maxConcurrency;
+    private final double maxRate;
+
+    private double limit;
+    private int inFlight;
+    private long cooldownUntil;
+    private long lastDecrease;
+
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+
+    private double smoothedLatency;
+    private double minLatency = Double.MAX_VALUE;
+
+    /**
+     * @param name 服务商标识（用于日志）
+     * @param maxConcurrency 并发上限，同时作为初始并发数
+     * @param maxRequestsPerSecond 每秒请求数上限，0表示不限制
+     */
+    public AdaptiveRateLimiter(String name, int maxConcurrency, double maxRequestsPerSecond) {
+        this.name = name;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxRate = Math.max(0, maxRequestsPerSecond);
+        this.limit = this.maxConcurrency;
+        this.rate = this.maxRate;
+        this.tokens = Math.max(1, this.maxRate);
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * 等待直到可以发出一个请求，成功返回后必须调用 onSuccess/onRateLimited/onError 之一
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos = reserve(System.nanoTime());
+            if (waitNanos < 0) {
+                return;
+            }
+            if (waitNanos > 0) {
+                long millis = Math.max(1, waitNanos / 1_000_000);
+                wait(millis);
+            } else {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * 不等待地尝试取得一个请求许可，取得后同样必须调用 onSuccess/onRateLimited/onError 之一
+     * @return 是否取得许可
+     */
+    public synchronized boolean tryAcquire() {
+        return reserve(System.nanoTime()) < 0;
+    }
+
+    /**
+     * 在超时时间内等待一个请求许可，取得后同样必须调用 onSuccess/onRateLimited/onError 之一
+     * @return 是否在超时前取得许可
+     */
+    public synchronized boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            long now = System.nanoTime();
+            long waitNanos = reserve(now);
+            if (waitNanos < 0) {
+                return true;
+            }
+            long remaining = deadline - now;
+            if (remaining <= 0) {
+                return false;
+            }
+            long nanos = waitNanos > 0 ? Math.min(waitNanos, remaining) : remaining;
+            wait(Math.max(1, nanos / 1_000_000));
+        }
+    }
+
+    /**
+     * 尝试占用一个并发和速率额度
+     * @return 占用成功返回-1；否则返回需要等待的纳秒数，0表示等待在途请求结束
+     */
+    private long reserve(long now) {
+        refill(now);
+        if (now - cooldownUntil < 0) {
+            return cooldownUntil - now;
+        }
+        if (inFlight >= (int) limit) {
+            return 0;
+        }
+        if (rate > 0 && tokens < 1) {
+            return Math.max(1, (long) ((1 - tokens) / rate * 1_000_000_000L));
+        }
+        inFlight++;
+        if (rate > 0) {
+            tokens -= 1;
+        }
+        return -1;
+    }
+
+    /**
+     * 请求成功：加性增加并发和速率
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        inFlight--;
+        minLatency = Math.min(minLatency, latencyNanos);
+        smoothedLatency = smoothedLatency == 0 ? latencyNanos
+                : smoothedLatency + LATENCY_SMOOTHING * (latencyNanos - smoothedLatency);
+
+        if (smoothedLatency <= minLatency * LATENCY_CONGESTION_FACTOR) {
+            limit = Math.min(maxConcurrency, limit + 1.0 / limit);
+        }
+        if (maxRate > 0 && rate < maxRate) {
+            rate = Math.min(maxRate, rate + maxRate * 0.05);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 请求被限流：乘性减少并发和速率，并在 Retry-After 时间内暂停
+     * 一个往返时间内的多次限流只减少一次，避免同一批在途请求把并发压到最低
+     */
+    public synchronized void onRateLimited(Duration retryAfter) {
+        inFlight--;
+        long now = System.nanoTime();
+        long window = (long) Math.max(smoothedLatency, DEFAULT_COOLDOWN_NANOS);
+        if (now - lastDecrease > window) {
+            lastDecrease = now;
+            limit = Math.max(1, limit / 2);
+            if (maxRate > 0) {
+                rate = Math.max(maxRate * 0.05, rate / 2);
+            }
+            logger.warn("[{}] 触发服务商限流，并发降至 {}，速率降至 {}/s", name, (int) limit,
+                    maxRate > 0 ? String.format("%.2f", rate) : "不限");
+        }
+        long cooldown = retryAfter != null ? retryAfter.toNanos() : DEFAULT_COOLDOWN_NANOS;
+        if (now + cooldown - cooldownUntil > 0) {
+            cooldownUntil = now + cooldown;
+        }
+        notifyAll();
+    }
+
+    /**
+     * 请求因其他原因失败：只归还并发，不调整限额
+     */
+    public synchronized void onError() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private void refill(long now) {
+        if (rate > 0) {
+            tokens = Math.min(Math.max(1, rate), tokens + (now - lastRefill) / 1_000_000_000.0 * rate);
+        }
+        lastRefill = now;
+    }
+}
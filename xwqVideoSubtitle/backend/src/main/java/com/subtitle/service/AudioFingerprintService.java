@@ -0,0 +1,372 @@
+package com.subtitle.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.subtitle.config.FingerprintConfig;
+import com.subtitle.dto.FingerprintCandidate;
+import com.subtitle.entity.AudioFingerprint;
+import com.subtitle.entity.Subtitle;
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.mapper.AudioFingerprintMapper;
+import com.subtitle.mapper.SubtitleMapper;
+import com.subtitle.utils.AudioChunk;
+import com.subtitle.utils.AudioExtractor;
+import com.subtitle.utils.AudioFingerprinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 音频指纹去重
+ * 识别前计算视频的音频指纹，在已识别视频的指纹索引中查找音频重叠的片段（重新封装、转码、裁剪后的同一内容），
+ * 完全落在重叠区间内的切片按时间偏移复用已有字幕，只有新的部分请求STT服务；识别成功后把指纹写入索引
+ */
+@Service
+public class AudioFingerprintService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AudioFingerprintService.class);
+
+    /**
+     * 单次查询的哈希数
+     */
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    /**
+     * 同一匹配中相邻一致哈希的最大间隔（秒），超过则拆分为两段
+     */
+    private static final double MAX_GAP_SECONDS = 5.0;
+
+    /**
+     * 切片边界与匹配区间边界的容差（秒），区间首尾的峰值较稀疏
+     */
+    private static final double COVERAGE_TOLERANCE_SECONDS = 1.0;
+
+    /**
+     * 最多从几个已识别视频复用字幕
+     */
+    private static final int MAX_SOURCE_VIDEOS = 3;
+
+    /**
+     * 按命中数预选的候选视频数，只读取这些视频的指纹行参与对齐投票
+     */
+    private static final int MAX_CANDIDATE_VIDEOS = 10;
+
+    @Autowired
+    private FingerprintConfig fingerprintConfig;
+
+    @Autowired
+    private AudioFingerprintMapper audioFingerprintMapper;
+
+    @Autowired
+    private SubtitleMapper subtitleMapper;
+
+    @Autowired
+    private SubtitleSegmentService subtitleSegmentService;
+
+    /**
+     * 与已识别视频音频重叠的区间
+     * @param sourceVideoId 已识别的视频
+     * @param offsetSeconds 时间偏移：已识别视频中的时间 = 当前视频中的时间 + offsetSeconds
+     * @param startSeconds 重叠区间在当前视频中的起点
+     * @param endSeconds 重叠区间在当前视频中的终点
+     * @param segments 已识别视频的字幕
+     */
+    public record Match(Long sourceVideoId, double offsetSeconds, double startSeconds, double endSeconds,
+                       List<SubtitleSegment> segments) {
+
+        boolean covers(double start, double end) {
+            return startSeconds <= start + COVERAGE_TOLERANCE_SECONDS && endSeconds >= end - COVERAGE_TOLERANCE_SECONDS;
+        }
+    }
+
+    public boolean isEnabled() {
+        return fingerprintConfig.getEnabled() && AudioExtractor.isFFmpegAvailable();
+    }
+
+    /**
+     * 计算视频的音频指纹（单独解码一遍音频，只做频谱分析，远快于识别）
+     * @return 指纹，失败时返回null
+     */
+    public AudioFingerprinter.Fingerprint compute(String videoPath) {
+        long start = System.currentTimeMillis();
+        Process process = null;
+        try {
+            process = AudioExtractor.startPcmStream(videoPath);
+            AudioFingerprinter.Fingerprint fingerprint;
+            try (InputStream pcmStream = process.getInputStream()) {
+                fingerprint = AudioFingerprinter.compute(pcmStream);
+            }
+            if (process.waitFor() != 0) {
+                logger.warn("计算音频指纹失败，FFmpeg退出码: {}", process.exitValue());
+                return null;
+            }
+            logger.info("音频指纹计算完成: {} 个哈希, 耗时 {} ms", fingerprint.size(), System.currentTimeMillis() - start);
+            return fingerprint;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            logger.warn("计算音频指纹失败: {}", e.getMessage());
+            return null;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * 查找与已识别视频音频重叠的区间
+     * 先在数据库中按视频统计哈希命中数，选出命中最多的候选视频；再只读取候选视频的指纹，
+     * 统计 (视频, 时间偏移) 上一致的哈希数，票数最高的偏移即两段音频的对齐位置，
+     * 投票的哈希在当前视频中的位置连成的区间就是重叠部分
+     * @param videoId 当前视频（排除自身）
+     * @param language 语言，只复用同语言的字幕
+     */
+    public List<Match> findMatches(AudioFingerprinter.Fingerprint fingerprint, Long videoId, String language) {
+        Map<Long, List<Integer>> queryFrames = new HashMap<>();
+        for (int i = 0; i < fingerprint.size(); i++) {
+            queryFrames.computeIfAbsent(fingerprint.hashes()[i], hash -> new ArrayList<>()).add(fingerprint.frames()[i]);
+        }
+        List<Long> hashes = new ArrayList<>(queryFrames.keySet());
+
+        // 各批命中数累加后取总命中最多的视频，命中数不足一段匹配的直接排除
+        Map<Long, Long> hitsByVideo = new HashMap<>();
+        for (int from = 0; from < hashes.size(); from += QUERY_BATCH_SIZE) {
+            List<Long> batch = hashes.subList(from, Math.min(hashes.size(), from + QUERY_BATCH_SIZE));
+            for (FingerprintCandidate candidate : audioFingerprintMapper.countByVideo(batch, videoId, MAX_CANDIDATE_VIDEOS)) {
+                hitsByVideo.merge(candidate.getVideoId(), candidate.getHits(), Long::sum);
+            }
+        }
+        List<Long> candidates = hitsByVideo.entrySet().stream()
+                .filter(entry -> entry.getValue() >= fingerprintConfig.getMinMatchHashes())
+                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+                .limit(MAX_CANDIDATE_VIDEOS)
+                .map(Map.Entry::getKey)
+                .toList();
+        List<Match> matches = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return matches;
+        }
+
+        // 候选视频 -> 偏移 -> 当前视频中投票的帧号
+        Map<Long, Map<Integer, List<Integer>>> votes = new HashMap<>();
+        for (int from = 0; from < hashes.size(); from += QUERY_BATCH_SIZE) {
+            List<Long> batch = hashes.subList(from, Math.min(hashes.size(), from + QUERY_BATCH_SIZE));
+            Map<Long, List<AudioFingerprint>> rowsByHash = new HashMap<>();
+            for (AudioFingerprint row : audioFingerprintMapper.selectByHashes(batch, candidates)) {
+                rowsByHash.computeIfAbsent(row.getHashValue(), hash -> new ArrayList<>()).add(row);
+            }
+            for (Map.Entry<Long, List<AudioFingerprint>> entry : rowsByHash.entrySet()) {
+                if (entry.getValue().size() > fingerprintConfig.getMaxRowsPerHash()) {
+                    continue;
+                }
+                for (AudioFingerprint row : entry.getValue()) {
+                    for (int frame : queryFrames.get(entry.getKey())) {
+                        votes.computeIfAbsent(row.getVideoId(), id -> new HashMap<>())
+                                .computeIfAbsent(row.getFrame() - frame, offset -> new ArrayList<>())
+                                .add(frame);
+                    }
+                }
+            }
+        }
+
+        for (int round = 0; round < MAX_SOURCE_VIDEOS && !votes.isEmpty(); round++) {
+            Long bestVideo = null;
+            int bestOffset = 0;
+            int bestVotes = 0;
+            for (Map.Entry<Long, Map<Integer, List<Integer>>> video : votes.entrySet()) {
+                for (Integer offset : video.getValue().keySet()) {
+                    int count = countVotes(video.getValue(), offset);
+                    if (count > bestVotes) {
+                        bestVotes = count;
+                        bestVideo = video.getKey();
+                        bestOffset = offset;
+                    }
+                }
+            }
+            if (bestVideo == null || bestVotes < fingerprintConfig.getMinMatchHashes()) {
+                break;
+            }
+
+            Map<Integer, List<Integer>> videoVotes = votes.remove(bestVideo);
+            List<SubtitleSegment> segments = loadSegments(bestVideo, language);
+            if (segments == null) {
+                continue;
+            }
+            // 转码或裁剪后峰值位置可能相差一帧，相邻偏移的票一并计入
+            List<Integer> frames = new ArrayList<>();
+            for (int offset = bestOffset - 1; offset <= bestOffset + 1; offset++) {
+                frames.addAll(videoVotes.getOrDefault(offset, List.of()));
+            }
+            for (double[] range : toRanges(frames)) {
+                if (matches.stream().noneMatch(match -> match.startSeconds() < range[1] && range[0] < match.endSeconds())) {
+                    matches.add(new Match(bestVideo, bestOffset * AudioFingerprinter.FRAME_SECONDS,
+                            range[0], range[1], segments));
+                }
+            }
+        }
+
+        for (Match match : matches) {
+            logger.info("音频与已识别视频 {} 重叠: {}-{} 秒 (偏移 {} 秒)", match.sourceVideoId(),
+                    String.format("%.1f", match.startSeconds()), String.format("%.1f", match.endSeconds()),
+                    String.format("%.2f", match.offsetSeconds()));
+        }
+        return matches;
+    }
+
+    /**
+     * 包装切片结果存储：完全落在重叠区间内的切片直接返回按偏移换算的已有字幕
+     */
+    public ChunkResultStore reuseMatches(ChunkResultStore store, List<Match> matches) {
+        if (matches.isEmpty()) {
+            return store;
+        }
+        return new ChunkResultStore() {
+            @Override
+            public List<SubtitleSegment> load(AudioChunk chunk) {
+                List<SubtitleSegment> saved = store.load(chunk);
+                if (saved != null) {
+                    return saved;
+                }
+                for (Match match : matches) {
+                    if (match.covers(chunk.getStartTime(), chunk.getEndTime())) {
+                        List<SubtitleSegment> reused = shiftSegments(match, chunk);
+                        logger.info("第 {} 个片段与已识别视频 {} 重叠，复用 {} 个字幕片段", chunk.index() + 1,
+                                match.sourceVideoId(), reused.size());
+                        return reused;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public void save(AudioChunk chunk, List<SubtitleSegment> segments) {
+                store.save(chunk, segments);
+            }
+        };
+    }
+
+    /**
+     * 写入视频的指纹索引，替换该视频已有的指纹
+     */
+    @Transactional
+    public void index(Long videoId, AudioFingerprinter.Fingerprint fingerprint) {
+        deleteByVideo(videoId);
+        List<AudioFingerprint> rows = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < fingerprint.size(); i++) {
+            rows.add(new AudioFingerprint()
+                    .setHashValue(fingerprint.hashes()[i])
+                    .setVideoId(videoId)
+                    .setFrame(fingerprint.frames()[i]));
+            if (rows.size() == INSERT_BATCH_SIZE) {
+                audioFingerprintMapper.insertBatch(rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            audioFingerprintMapper.insertBatch(rows);
+        }
+        logger.info("视频 {} 的音频指纹已写入索引: {} 个哈希", videoId, fingerprint.size());
+    }
+
+    public void deleteByVideo(Long videoId) {
+        audioFingerprintMapper.delete(new LambdaQueryWrapper<AudioFingerprint>()
+                .eq(AudioFingerprint::getVideoId, videoId));
+    }
+
+    private static int countVotes(Map<Integer, List<Integer>> offsets, int offset) {
+        int count = 0;
+        for (int neighbor = offset - 1; neighbor <= offset + 1; neighbor++) {
+            List<Integer> frames = offsets.get(neighbor);
+            count += frames != null ? frames.size() : 0;
+        }
+        return count;
+    }
+
+    /**
+     * 把投票帧号连成区间，间隔过大的拆开，过短或票数过少的区间丢弃
+     * @return [起点秒, 终点秒] 列表
+     */
+    private List<double[]> toRanges(List<Integer> frames) {
+        List<double[]> ranges = new ArrayList<>();
+        if (frames.isEmpty()) {
+            return ranges;
+        }
+        frames.sort(Integer::compareTo);
+        int maxGap = (int) (MAX_GAP_SECONDS / AudioFingerprinter.FRAME_SECONDS);
+        int runStart = 0;
+        for (int i = 1; i <= frames.size(); i++) {
+            if (i == frames.size() || frames.get(i) - frames.get(i - 1) > maxGap) {
+                double start = frames.get(runStart) * AudioFingerprinter.FRAME_SECONDS;
+                double end = frames.get(i - 1) * AudioFingerprinter.FRAME_SECONDS;
+                if (i - runStart >= fingerprintConfig.getMinMatchHashes()
+                        && end - start >= fingerprintConfig.getMinMatchSeconds()) {
+                    ranges.add(new double[]{start, end});
+                }
+                runStart = i;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * 读取已识别视频最新的同语言字幕
+     * @return 字幕片段，没有可用字幕时返回null
+     */
+    private List<SubtitleSegment> loadSegments(Long videoId, String language) {
+        Subtitle subtitle = subtitleMapper.selectOne(new LambdaQueryWrapper<Subtitle>()
+                .select(Subtitle::getId, Subtitle::getMaxSegmentMs)
+                .eq(Subtitle::getVideoId, videoId)
+                .eq(Subtitle::getLanguage, language)
+                .eq(Subtitle::getStatus, 1)
+                .orderByDesc(Subtitle::getId)
+                .last("LIMIT 1"));
+        if (subtitle == null) {
+            return null;
+        }
+        try {
+            return subtitleSegmentService.getAllSegments(subtitle);
+        } catch (Exception e) {
+            logger.warn("读取视频 {} 的字幕失败: {}", videoId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 取出起点落在切片对应区间内的字幕，时间换算为相对切片起点
+     */
+    private static List<SubtitleSegment> shiftSegments(Match match, AudioChunk chunk) {
+        double sourceStart = chunk.getStartTime() + match.offsetSeconds();
+        double sourceEnd = chunk.getEndTime() + match.offsetSeconds();
+        double shift = sourceStart;
+        List<SubtitleSegment> reused = new ArrayList<>();
+        for (SubtitleSegment segment : match.segments()) {
+            if (segment.getStartTime() == null || segment.getEndTime() == null
+                    || segment.getStartTime() < sourceStart || segment.getStartTime() >= sourceEnd) {
+                continue;
+            }
+            SubtitleSegment copy = new SubtitleSegment();
+            copy.setIndex(segment.getIndex());
+            copy.setStartTime(segment.getStartTime() - shift);
+            copy.setEndTime(segment.getEndTime() - shift);
+            copy.setText(segment.getText());
+            copy.setConfidence(segment.getConfidence());
+            copy.setSpeaker(segment.getSpeaker());
+            copy.setAlternatives(segment.getAlternatives());
+            copy.calculateDuration();
+            reused.add(copy);
+        }
+        return reused;
+    }
+}
@@ -0,0 +1,39 @@
+package com.subtitle.service;
+
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.utils.AudioChunk;
+
+import java.util.List;
+
+/**
+ * 切片识别结果的断点存储
+ * 切片识别完成后立即保存，任务重新执行时已完成的切片直接使用保存的结果，不再请求服务商
+ */
+public interface ChunkResultStore {
+
+    /**
+     * 不保存结果
+     */
+    ChunkResultStore NONE = new ChunkResultStore() {
+        @Override
+        public List<SubtitleSegment> load(AudioChunk chunk) {
+            return null;
+        }
+
+        @Override
+        public void save(AudioChunk chunk, List<SubtitleSegment> segments) {
+        }
+    };
+
+    /**
+     * 读取切片已保存的结果
+     * @return 字幕片段（时间相对切片起点），未保存过时返回null
+     */
+    List<SubtitleSegment> load(AudioChunk chunk);
+
+    /**
+     * 保存切片结果
+     * @param segments 字幕片段，时间相对切片起点
+     */
+    void save(AudioChunk chunk, List<SubtitleSegment> segments);
+}
@@ -0,0 +1,470 @@
+package com.subtitle.service;
+
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.utils.AudioChunk;
+import com.subtitle.utils.AudioExtractor;
+import com.subtitle.utils.StreamingAudioChunker;
+import com.subtitle.utils.WavFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 共享的切片转写服务
+ * 根据 {@link SttCapabilities} 规划切片、写出切片文件，并按服务商的并发上限分发请求，最后按时间顺序合并结果。
+ * 请求通过 {@link SttService#transcribeChunkAsync} 异步发出，等待响应期间不占用线程；
+ * 并发和速率由每个服务商共享的 {@link AdaptiveRateLimiter} 控制，被限流的切片自动重新排队，
+ * 其他失败按指数退避重试；每个切片完成后立即写入 {@link ChunkResultStore}，任务重新执行时只识别未完成的切片
+ */
+@Service
+public class ChunkedTranscriptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedTranscriptionService.class);
+
+    /**
+     * 语音FLAC的保守压缩比估计，用于按字节上限推算切片时长
+     */
+    private static final double FLAC_ESTIMATED_RATIO = 0.75;
+
+    /**
+     * 流式提取输出的采样率（与 AudioExtractor 一致）
+     */
+    private static final int STREAM_SAMPLE_RATE = 16000;
+
+    /**
+     * 服务商不限制时长和大小时，流式切片的默认时长（秒）
+     */
+    private static final double DEFAULT_STREAM_CHUNK_SECONDS = 600;
+
+    /**
+     * 单个切片因限流重新排队的最大次数
+     */
+    private static final int MAX_RATE_LIMIT_ATTEMPTS = 10;
+
+    /**
+     * 单个切片因其他错误（网络、服务端异常等）的最大请求次数
+     */
+    private static final int MAX_CHUNK_ATTEMPTS = 4;
+
+    private static final long INITIAL_RETRY_DELAY_MS = 1000;
+
+    private static final long MAX_RETRY_DELAY_MS = 30000;
+
+    @Autowired
+    private TranscriptCache transcriptCache;
+
+    /**
+     * 各服务商的自适应限流器，同一服务商的所有任务共用
+     */
+    private final Map<String, AdaptiveRateLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * 切片重试次数用尽后抛出，已完成的切片结果已保存，任务可重新执行并从断点继续
+     */
+    public static class ChunkFailedException extends RuntimeException {
+        public ChunkFailedException(AudioChunk chunk, Throwable cause) {
+            super(String.format("第 %d 个片段 (%.1f-%.1f秒) 识别失败: %s", chunk.index() + 1,
+                    chunk.getStartTime(), chunk.getEndTime(), cause.getMessage()), cause);
+        }
+    }
+
+    /**
+     * 按服务商能力切片并转写
+     * @param provider STT服务
+     * @param audioPath 音频文件路径，非PCM WAV时先用ffmpeg转换
+     * @param language 语言代码
+     * @param store 切片结果存储，已保存的切片不再请求
+     * @return 按时间排序的字幕片段，时间相对原音频
+     * @throws ChunkFailedException 切片重试次数用尽
+     */
+    public List<SubtitleSegment> transcribe(SttService provider, String audioPath, String language,
+                                            ChunkResultStore store) {
+        SttCapabilities capabilities = provider.getCapabilities();
+        String pcmPath;
+        try {
+            pcmPath = AudioExtractor.toPcmWav(audioPath);
+        } catch (IOException e) {
+            throw new RuntimeException("音频转换失败: " + audioPath, e);
+        }
+
+        List<SubtitleSegment> segments = new ArrayList<>();
+        List<AudioChunk> chunks = List.of();
+        try {
+            chunks = planChunks(capabilities, pcmPath);
+            logger.info("[{}] 音频规划为 {} 个请求", capabilities.getProvider(), chunks.size());
+
+            List<Future<List<SubtitleSegment>>> futures = new ArrayList<>(chunks.size());
+            for (AudioChunk chunk : chunks) {
+                futures.add(submit(provider, capabilities, chunk, new FileSystemResource(chunk.path()), language,
+                        store));
+            }
+            collect(chunks, futures, 0, chunks.size(), segments::add);
+        } finally {
+            deleteChunkFiles(chunks, pcmPath);
+            if (!pcmPath.equals(audioPath) && !new File(pcmPath).delete()) {
+                logger.debug("删除转换后的音频失败: {}", pcmPath);
+            }
+        }
+
+        logger.info("[{}] 所有片段识别完成，共 {} 个字幕片段", capabilities.getProvider(), segments.size());
+        return segments;
+    }
+
+    /**
+     * 流式切片转写：边读取PCM流边切片，每个切片完整后立即提交识别，全程不落盘
+     * @param provider STT服务
+     * @param pcmStream 16kHz单声道16bit小端裸PCM流（ffmpeg -f s16le 输出）
+     * @param language 语言代码
+     * @param store 切片结果存储，已保存的切片不再请求
+     * @param callback 按时间顺序接收字幕片段，前面的切片全部完成后即回调，时间相对整条音频
+     * @return 读取的音频总时长（秒）
+     * @throws ChunkFailedException 切片重试次数用尽
+     * @throws UncheckedIOException 读取音频流失败
+     */
+    public double transcribeStream(SttService provider, InputStream pcmStream, String language,
+                                   ChunkResultStore store, Consumer<SubtitleSegment> callback) {
+        SttCapabilities capabilities = provider.getCapabilities();
+        String codec = getUploadCodec(capabilities);
+        // 流式模式下无法对超限切片重新切分，按未压缩体积计算时长上限以保证不超出字节限制
+        double maxSeconds = getMaxChunkSeconds(capabilities, 1.0, STREAM_SAMPLE_RATE, 2);
+        if (maxSeconds <= 0) {
+            maxSeconds = DEFAULT_STREAM_CHUNK_SECONDS;
+        }
+
+        StreamingAudioChunker chunker = new StreamingAudioChunker(STREAM_SAMPLE_RATE, maxSeconds, codec);
+        List<AudioChunk> chunks = new ArrayList<>();
+        List<Future<List<SubtitleSegment>>> futures = new ArrayList<>();
+        int[] delivered = {0};
+
+        try {
+            long totalFrames = chunker.process(pcmStream, (chunk, encoded) -> {
+                String filename = "chunk_" + (chunk.index() + 1) + "." + codec;
+                Resource resource = new ByteArrayResource(encoded) {
+                    @Override
+                    public String getFilename() {
+                        return filename;
+                    }
+                };
+                chunks.add(chunk);
+                futures.add(submit(provider, capabilities, chunk, resource, language, store));
+                delivered[0] = collectCompleted(chunks, futures, delivered[0], callback);
+            });
+            logger.info("[{}] 音频流读取完成，时长 {} 秒，切片 {} 个", capabilities.getProvider(),
+                    String.format("%.1f", totalFrames / (double) STREAM_SAMPLE_RATE), chunks.size());
+
+            collect(chunks, futures, delivered[0], chunks.size(), callback);
+            return totalFrames / (double) STREAM_SAMPLE_RATE;
+        } catch (IOException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new UncheckedIOException("读取音频流失败", e);
+        }
+    }
+
+    /**
+     * 取得限流器许可后异步发出切片请求；服务商当前限额已满时阻塞调用方，对切片生产形成背压。
+     * 已保存过结果或命中识别结果缓存的切片不再请求
+     */
+    private Future<List<SubtitleSegment>> submit(SttService provider, SttCapabilities capabilities,
+                                                 AudioChunk chunk, Resource audio, String language,
+                                                 ChunkResultStore store) {
+        List<SubtitleSegment> saved = store.load(chunk);
+        if (saved != null) {
+            logger.info("[{}] 第 {} 个片段已识别过，使用保存的 {} 个字幕片段", capabilities.getProvider(),
+                    chunk.index() + 1, saved.size());
+            return CompletableFuture.completedFuture(saved);
+        }
+
+        String cacheKey = transcriptCache.key(capabilities, language, audio);
+        List<SubtitleSegment> cached = transcriptCache.get(cacheKey);
+        if (cached != null) {
+            logger.info("[{}] 第 {} 个片段命中识别结果缓存，获得 {} 个字幕片段", capabilities.getProvider(),
+                    chunk.index() + 1, cached.size());
+            store.save(chunk, cached);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        AdaptiveRateLimiter limiter = getLimiter(capabilities);
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new RuntimeException("语音识别被中断", e));
+        }
+
+        logger.info("[{}] 正在识别第 {} 个片段: {} ({}-{}秒)", capabilities.getProvider(), chunk.index() + 1,
+                audio.getFilename(), String.format("%.1f", chunk.getStartTime()),
+                String.format("%.1f", chunk.getEndTime()));
+        CompletableFuture<List<SubtitleSegment>> result = new CompletableFuture<>();
+        dispatch(new ChunkRequest(provider, capabilities, limiter, chunk, audio, language, store, cacheKey, result),
+                1, 0);
+        return result;
+    }
+
+    /**
+     * 单个切片请求的上下文，重试时原样复用
+     */
+    private record ChunkRequest(SttService provider, SttCapabilities capabilities, AdaptiveRateLimiter limiter,
+                                AudioChunk chunk, Resource audio, String language, ChunkResultStore store,
+                                String cacheKey, CompletableFuture<List<SubtitleSegment>> result) {
+    }
+
+    /**
+     * 在已持有许可的前提下发出一次请求。
+     * 成功后立即保存结果；被限流时降低限额并重新排队；其他失败按指数退避重试，次数用尽后切片失败
+     * @param rateLimited 已被限流的次数
+     * @param failures 已失败的次数
+     */
+    private void dispatch(ChunkRequest request, int rateLimited, int failures) {
+        AdaptiveRateLimiter limiter = request.limiter();
+        AudioChunk chunk = request.chunk();
+        String provider = request.capabilities().getProvider();
+        if (request.result().isDone()) {
+            // 已被取消
+            limiter.onError();
+            return;
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<List<SubtitleSegment>> call;
+        try {
+            call = request.provider().transcribeChunkAsync(request.audio(), request.language());
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        // 切片被取消（任务取消或其他切片失败）时一并取消在途请求
+        CompletableFuture<List<SubtitleSegment>> inFlight = call;
+        request.result().whenComplete((segmentResult, error) -> {
+            if (request.result().isCancelled()) {
+                inFlight.cancel(true);
+            }
+        });
+
+        call.whenComplete((segmentResult, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (request.result().isCancelled()) {
+                limiter.onError();
+            } else if (cause == null) {
+                limiter.onSuccess(System.nanoTime() - start);
+                logger.info("[{}] 第 {} 个片段识别完成，获得 {} 个字幕片段",
+                        provider, chunk.index() + 1, segmentResult.size());
+                request.store().save(chunk, segmentResult);
+                transcriptCache.put(request.cacheKey(), segmentResult);
+                request.result().complete(segmentResult);
+            } else if (cause instanceof SttRateLimitedException rateLimitedException) {
+                limiter.onRateLimited(rateLimitedException.getRetryAfter());
+                if (rateLimited >= MAX_RATE_LIMIT_ATTEMPTS) {
+                    request.result().completeExceptionally(new ChunkFailedException(chunk, cause));
+                    return;
+                }
+                logger.warn("[{}] 第 {} 个片段被限流，第 {} 次重新排队", provider, chunk.index() + 1, rateLimited);
+                retry(request, 0, rateLimited + 1, failures);
+            } else {
+                limiter.onError();
+                if (failures + 1 >= MAX_CHUNK_ATTEMPTS) {
+                    logger.error("[{}] 第 {} 个片段识别失败，已重试 {} 次", provider, chunk.index() + 1, failures, cause);
+                    request.result().completeExceptionally(new ChunkFailedException(chunk, cause));
+                    return;
+                }
+                long delay = getRetryDelayMillis(failures);
+                logger.warn("[{}] 第 {} 个片段识别失败，{} 毫秒后第 {} 次重试: {}", provider, chunk.index() + 1,
+                        delay, failures + 1, cause.getMessage());
+                retry(request, delay, rateLimited, failures + 1);
+            }
+        });
+    }
+
+    /**
+     * 延迟后在虚拟线程上重新取得许可并发出请求
+     */
+    private void retry(ChunkRequest request, long delayMillis, int rateLimited, int failures) {
+        Executor executor = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS,
+                runnable -> Thread.ofVirtual().start(runnable));
+        executor.execute(() -> {
+            try {
+                request.limiter().acquire();
+                dispatch(request, rateLimited, failures);
+            } catch (InterruptedException e) {
+                request.result().completeExceptionally(new RuntimeException("语音识别被中断", e));
+            }
+        });
+    }
+
+    /**
+     * 指数退避：1秒起每次翻倍，最长30秒，附加最多20%的随机抖动避免同时重试
+     */
+    private long getRetryDelayMillis(int failures) {
+        long delay = Math.min(MAX_RETRY_DELAY_MS, INITIAL_RETRY_DELAY_MS << Math.min(failures, 16));
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    /**
+     * 依次等待 [from, to) 区间的切片结果并按顺序回调，时间偏移取切片在原音频中的起始时间。
+     * 某个切片失败时，先等待其余在途切片结束（成功的结果已各自保存，重新排队后不再请求），再抛出该切片的异常
+     */
+    private void collect(List<AudioChunk> chunks, List<Future<List<SubtitleSegment>>> futures,
+                         int from, int to, Consumer<SubtitleSegment> callback) {
+        try {
+            for (int i = from; i < to; i++) {
+                deliver(chunks.get(i), futures.get(i).get(), callback);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new RuntimeException("语音识别被中断", e);
+        } catch (ExecutionException e) {
+            awaitInFlight(futures);
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 等待所有在途切片结束，忽略各自的结果与异常；等待期间被中断（任务取消）时取消全部切片
+     */
+    private void awaitInFlight(List<Future<List<SubtitleSegment>>> futures) {
+        for (Future<List<SubtitleSegment>> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException | CancellationException e) {
+                // 失败的切片由重新排队后的任务再次请求
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                return;
+            }
+        }
+    }
+
+    /**
+     * 不阻塞地回调从 from 开始已连续完成的切片
+     * @return 下一个待回调的切片序号
+     */
+    private int collectCompleted(List<AudioChunk> chunks, List<Future<List<SubtitleSegment>>> futures,
+                                 int from, Consumer<SubtitleSegment> callback) {
+        int next = from;
+        while (next < futures.size() && futures.get(next).isDone()) {
+            collect(chunks, futures, next, next + 1, callback);
+            next++;
+        }
+        return next;
+    }
+
+    private void deliver(AudioChunk chunk, List<SubtitleSegment> chunkSegments, Consumer<SubtitleSegment> callback) {
+        double timeOffset = chunk.getStartTime();
+        for (SubtitleSegment segment : chunkSegments) {
+            segment.setStartTime(segment.getStartTime() + timeOffset);
+            segment.setEndTime(segment.getEndTime() + timeOffset);
+            callback.accept(segment);
+        }
+    }
+
+    /**
+     * 规划切片：整段满足限制时只发一次请求，否则按语音活动在限制内切分
+     */
+    private List<AudioChunk> planChunks(SttCapabilities capabilities, String audioPath) {
+        String codec = getUploadCodec(capabilities);
+        double maxSeconds;
+        try (WavFile wav = WavFile.open(audioPath)) {
+            maxSeconds = getMaxChunkSeconds(capabilities, getSizeRatio(codec), wav.getSampleRate(), wav.getBlockAlign());
+            long estimatedSize = (long) ((WavFile.HEADER_SIZE + wav.getDataSize()) * getSizeRatio(codec));
+            boolean fitsDuration = maxSeconds <= 0 || wav.getDuration() <= maxSeconds;
+            boolean fitsBytes = capabilities.getMaxBytes() <= 0 || estimatedSize <= capabilities.getMaxBytes();
+
+            if (fitsDuration && fitsBytes) {
+                String uploadPath = AudioExtractor.encodeAudio(audioPath, codec);
+                long uploadSize = new File(uploadPath).length();
+                if (capabilities.getMaxBytes() <= 0 || uploadSize <= capabilities.getMaxBytes()) {
+                    logger.info("[{}] 音频 {} 秒, 上传 {} bytes，在单次请求限制内，无需切片",
+                            capabilities.getProvider(), String.format("%.1f", wav.getDuration()), uploadSize);
+                    return List.of(new AudioChunk(0, 0, wav.getFrameCount(), wav.getSampleRate(), uploadPath));
+                }
+                new File(uploadPath).delete();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("读取音频文件失败: " + audioPath, e);
+        }
+
+        try {
+            return AudioExtractor.splitAudioBySpeech(audioPath, maxSeconds, codec, capabilities.getMaxBytes());
+        } catch (IOException e) {
+            throw new RuntimeException("音频切片失败: " + audioPath, e);
+        }
+    }
+
+    /**
+     * 由时长和字节上限推算单个切片的最大时长（秒），0表示不限制
+     */
+    private double getMaxChunkSeconds(SttCapabilities capabilities, double sizeRatio, int sampleRate, int blockAlign) {
+        double maxSeconds = capabilities.getMaxDurationSeconds();
+        if (capabilities.getMaxBytes() > 0) {
+            double byteRate = (double) sampleRate * blockAlign * sizeRatio;
+            // 预留1%余量给文件头和multipart开销
+            double byteLimitedSeconds = (capabilities.getMaxBytes() * 0.99 - WavFile.HEADER_SIZE) / byteRate;
+            maxSeconds = maxSeconds > 0 ? Math.min(maxSeconds, byteLimitedSeconds) : byteLimitedSeconds;
+        }
+        return maxSeconds;
+    }
+
+    /**
+     * 服务商配置的上传编码不在可接受列表中时退回WAV
+     */
+    private String getUploadCodec(SttCapabilities capabilities) {
+        String codec = capabilities.getUploadCodec();
+        if (codec != null && capabilities.getAcceptedCodecs().contains(codec.toLowerCase())) {
+            return codec.toLowerCase();
+        }
+        return "wav";
+    }
+
+    /**
+     * 编码后相对PCM的预估体积比，实际超限的切片会在写出时再对半切分
+     */
+    private double getSizeRatio(String codec) {
+        return "flac".equals(codec) ? FLAC_ESTIMATED_RATIO : 1.0;
+    }
+
+    /**
+     * 服务商的限流器，按服务商标识全局共用；路由服务按各服务商的限流器逐次取得许可，
+     * 其自身的 "routing" 限流器只对切片提交形成整体背压
+     */
+    public AdaptiveRateLimiter getLimiter(SttCapabilities capabilities) {
+        return limiters.computeIfAbsent(capabilities.getProvider(), provider -> {
+            logger.info("[{}] 切片转写并发上限: {}, 速率上限: {}/s", provider, capabilities.getMaxConcurrency(),
+                    capabilities.getMaxRequestsPerSecond() > 0 ? capabilities.getMaxRequestsPerSecond() : "不限");
+            return new AdaptiveRateLimiter(provider, capabilities.getMaxConcurrency(),
+                    capabilities.getMaxRequestsPerSecond());
+        });
+    }
+
+    private void deleteChunkFiles(List<AudioChunk> chunks, String audioPath) {
+        for (AudioChunk chunk : chunks) {
+            if (chunk.path() != null && !chunk.path().equals(audioPath)) {
+                if (!new File(chunk.path()).delete()) {
+                    logger.debug("删除切片文件失败: {}", chunk.path());
+                }
+            }
+        }
+    }
+}
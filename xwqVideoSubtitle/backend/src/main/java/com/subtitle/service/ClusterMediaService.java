@@ -0,0 +1,111 @@
+package com.subtitle.service;
+
+import com.subtitle.config.AppConfig;
+import com.subtitle.config.ClusterConfig;
+import com.subtitle.entity.TaskRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 多节点媒体文件获取
+ * 执行节点本地（或共享存储）存在媒体文件时直接使用，否则从接收任务的来源节点拉取到临时目录
+ */
+@Service
+public class ClusterMediaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterMediaService.class);
+
+    /**
+     * 节点间内部接口的认证请求头
+     */
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    private RestTemplate restTemplate;
+
+    @PostConstruct
+    public void init() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(10000);
+        requestFactory.setReadTimeout(clusterConfig.getFetchTimeoutMs());
+        restTemplate = new RestTemplate(requestFactory);
+    }
+
+    /**
+     * 获取任务媒体文件的本地路径
+     * @return 本地可读的媒体文件路径
+     */
+    public Path resolve(TaskRecord task) {
+        Path mediaPath = Paths.get(task.getMediaPath());
+        if (Files.isReadable(mediaPath)) {
+            return mediaPath;
+        }
+        if (!StringUtils.hasText(task.getOriginNode())) {
+            throw new RuntimeException("视频文件不存在且任务未记录来源节点: " + task.getMediaPath());
+        }
+        return fetch(task);
+    }
+
+    /**
+     * 任务结束后清理从其他节点拉取的临时文件
+     */
+    public void release(TaskRecord task, Path localPath) {
+        if (localPath == null || localPath.equals(Paths.get(task.getMediaPath()))) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(localPath);
+        } catch (IOException e) {
+            logger.warn("删除临时媒体文件失败: {}", localPath, e);
+        }
+    }
+
+    private Path fetch(TaskRecord task) {
+        String url = task.getOriginNode() + "/internal/media/videos/" + task.getVideoId();
+        String fileName = Paths.get(task.getMediaPath()).getFileName().toString();
+        Path target = Paths.get(appConfig.getTempPath(), "media", task.getTaskId() + "_" + fileName);
+
+        logger.info("本地不存在视频文件，从来源节点拉取: {} -> {}", url, target);
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(target.getParent());
+            restTemplate.execute(url, HttpMethod.GET,
+                    request -> request.getHeaders().set(SECRET_HEADER, clusterConfig.getSecret()),
+                    response -> {
+                        try (InputStream body = response.getBody()) {
+                            Files.copy(body, target, StandardCopyOption.REPLACE_EXISTING);
+                        }
+                        return null;
+                    });
+            logger.info("视频文件拉取完成: {} bytes, 耗时 {} ms", Files.size(target),
+                    System.currentTimeMillis() - start);
+            return target;
+        } catch (Exception e) {
+            try {
+                Files.deleteIfExists(target);
+            } catch (IOException ignored) {
+                // 清理失败不影响错误上报
+            }
+            throw new RuntimeException("从来源节点拉取视频失败: " + url, e);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.subtitle.service;
+
+import com.subtitle.config.RenderCacheConfig;
+import com.subtitle.entity.Subtitle;
+import com.subtitle.utils.SubtitleRenderer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 字幕渲染结果内存缓存
+ * 键由字幕ID、输出格式、更新时间与片段数决定，无需读取字幕内容即可算出，字幕内容变化后旧结果不再命中；
+ * 按访问顺序维护，总字节数超过上限时淘汰最久未使用的结果。单条结果超过上限的1/8时不缓存，避免少数大字幕挤掉其他结果
+ */
+@Component
+public class RenderedSubtitleCache {
+
+    @Autowired
+    private RenderCacheConfig renderCacheConfig;
+
+    private long maxBytes;
+
+    /**
+     * 缓存键 -> 渲染结果，按访问顺序排列
+     */
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long totalBytes;
+
+    @PostConstruct
+    public void init() {
+        maxBytes = Math.max(0, renderCacheConfig.getMaxSizeMb()) * 1024 * 1024;
+    }
+
+    /**
+     * 渲染结果的缓存键，同时用作下载的ETag
+     * 只使用不含 content 的字段：内容更新时 updated_at 随之变化，片段数用于区分同一秒内的多次更新
+     */
+    public static String key(Subtitle subtitle, SubtitleRenderer.Format format) {
+        LocalDateTime updatedAt = subtitle.getUpdatedAt() != null ? subtitle.getUpdatedAt() : subtitle.getCreatedAt();
+        long version = updatedAt != null ? updatedAt.toEpochSecond(ZoneOffset.UTC) : 0;
+        return subtitle.getId() + ":" + format.getExtension() + ":" + Long.toHexString(version) + "-"
+                + (subtitle.getSegmentCount() != null ? subtitle.getSegmentCount() : 0);
+    }
+
+    /**
+     * 可缓存的单条结果最大字节数
+     */
+    public long getMaxEntryBytes() {
+        return maxBytes / 8;
+    }
+
+    /**
+     * 读取渲染结果
+     * @return 结果，未缓存时返回null
+     */
+    public synchronized byte[] get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * 保存渲染结果，超过单条上限时忽略
+     */
+    public synchronized void put(String key, byte[] content) {
+        if (content.length > getMaxEntryBytes()) {
+            return;
+        }
+        byte[] previous = entries.put(key, content);
+        if (previous != null) {
+            totalBytes -= previous.length;
+        }
+        totalBytes += content.length;
+        Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 删除字幕的所有渲染结果
+     */
+    public synchronized void invalidate(Long subtitleId) {
+        String prefix = subtitleId + ":";
+        Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, byte[]> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                totalBytes -= entry.getValue().length;
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.subtitle.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.config.AppConfig;
+import com.subtitle.entity.StageOutput;
+import com.subtitle.entity.Video;
+import com.subtitle.mapper.StageOutputMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 字幕生成流水线的阶段产出存储
+ * 流水线：提取音频 → 切片规划 → 切片识别 → 合并字幕片段 → 渲染字幕文件。
+ * 每个阶段的产出以其输入的哈希为键保存，重新执行时输入未变的阶段直接复用：
+ * <ul>
+ *     <li>提取：音频文件按键命名保存在本节点音频目录（{@link #getAudioPath}）</li>
+ *     <li>切片规划与切片识别：由切片结果存储与识别结果缓存按切片保存</li>
+ *     <li>合并：字幕片段保存在 stage_outputs 表，各节点共享</li>
+ *     <li>渲染：只依赖合并结果与输出格式，导出时按需渲染，结果缓存在内存中</li>
+ * </ul>
+ */
+@Service
+public class StageOutputService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StageOutputService.class);
+
+    public static final String STAGE_EXTRACT = "extract";
+
+    public static final String STAGE_TRANSCRIPT = "transcript";
+
+    /**
+     * 提取参数，与 AudioExtractor 的输出格式一致，提取方式变化时需修改以使旧产出失效
+     */
+    private static final String EXTRACT_FORMAT = "pcm_s16le/16000Hz/mono";
+
+    @Autowired
+    private StageOutputMapper stageOutputMapper;
+
+    @Autowired
+    private AppConfig appConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 提取阶段的输入键：视频记录（上传后文件不再变化，以ID和大小标识）与提取参数
+     */
+    public String extractKey(Video video) {
+        return inputKey(STAGE_EXTRACT, mediaKey(video), EXTRACT_FORMAT);
+    }
+
+    /**
+     * 识别阶段（切片规划、切片识别与合并）的输入键：音频、服务商、模型与语言
+     */
+    public String transcriptKey(Video video, SttCapabilities capabilities, String language) {
+        return inputKey(STAGE_TRANSCRIPT, extractKey(video), capabilities.getProvider(), capabilities.getModel(),
+                language);
+    }
+
+    /**
+     * 提取阶段产出的音频文件路径，文件名以视频ID开头便于删除视频时清理
+     */
+    public Path getAudioPath(Video video) {
+        return Paths.get(appConfig.getAudioPath(), video.getId() + "_" + extractKey(video).substring(0, 16) + ".wav");
+    }
+
+    /**
+     * 读取阶段产出
+     * @return 产出，未执行过或读取失败时返回null
+     */
+    public <T> T load(String stage, String inputKey, TypeReference<T> type) {
+        StageOutput output = stageOutputMapper.selectOne(new LambdaQueryWrapper<StageOutput>()
+                .eq(StageOutput::getStage, stage)
+                .eq(StageOutput::getInputKey, inputKey));
+        if (output == null) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(output.getOutput(), type);
+        } catch (Exception e) {
+            logger.warn("读取阶段产出失败: {} {}, {}", stage, inputKey, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存阶段产出，失败只影响之后的复用
+     */
+    public void save(String stage, String inputKey, Long videoId, Object value) {
+        try {
+            stageOutputMapper.upsert(stage, inputKey, videoId, objectMapper.writeValueAsString(value));
+        } catch (Exception e) {
+            logger.warn("保存阶段产出失败: {} {}, {}", stage, inputKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除视频的所有阶段产出，包括本节点保存的音频文件
+     */
+    public void deleteByVideo(Long videoId) {
+        stageOutputMapper.delete(new LambdaQueryWrapper<StageOutput>()
+                .eq(StageOutput::getVideoId, videoId));
+        Path audioDir = Paths.get(appConfig.getAudioPath());
+        if (!Files.isDirectory(audioDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(audioDir, videoId + "_*.wav")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("删除视频 {} 的音频文件失败: {}", videoId, e.getMessage());
+        }
+    }
+
+    private static String mediaKey(Video video) {
+        return "video:" + video.getId() + ":" + video.getFileSize();
+    }
+
+    private static String inputKey(String stage, Object... inputs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(stage.getBytes(StandardCharsets.UTF_8));
+            for (Object input : inputs) {
+                digest.update((byte) '|');
+                digest.update(String.valueOf(input).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
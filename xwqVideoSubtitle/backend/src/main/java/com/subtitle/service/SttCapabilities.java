@@ -0,0 +1,55 @@
+package com.subtitle.service;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.Set;
+
+/**
+ * STT服务单次请求的能力描述
+ * 由共享切片规划器据此决定切片长度、上传编码和并发度
+ */
+@Data
+@Accessors(chain = true)
+public class SttCapabilities {
+
+    /**
+     * 服务提供方标识（zhipu, whisper, azure, google）
+     */
+    private String provider;
+
+    /**
+     * 使用的模型名称
+     */
+    private String model;
+
+    /**
+     * 单次请求最大音频时长（秒），0表示不限制
+     */
+    private double maxDurationSeconds;
+
+    /**
+     * 单次请求最大上传字节数，0表示不限制
+     */
+    private long maxBytes;
+
+    /**
+     * 可接受的上传编码（wav, flac ...）
+     */
+    private Set<String> acceptedCodecs = Set.of("wav");
+
+    /**
+     * 实际上传使用的编码，需包含在 acceptedCodecs 中
+     */
+    private String uploadCodec = "wav";
+
+    /**
+     * 同时进行的最大请求数（自适应限流的并发上限）
+     */
+    private int maxConcurrency = 1;
+
+    /**
+     * 每秒最大请求数，0表示不限制
+     */
+    private double maxRequestsPerSecond;
+}
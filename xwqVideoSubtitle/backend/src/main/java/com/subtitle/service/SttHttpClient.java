@@ -0,0 +1,151 @@
+package com.subtitle.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * STT服务商共用的HTTP客户端
+ * 基于JDK HttpClient：优先HTTP/2多路复用，HTTP/1.1时复用连接池中的长连接，
+ * 请求异步发送不占用调用线程，multipart请求体直接从文件通道或内存数据流式读取
+ */
+@Component
+public class SttHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SttHttpClient.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * 响应回调在虚拟线程上执行，等待网络期间不占用平台线程
+     */
+    private final ExecutorService callbackExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(callbackExecutor)
+            .build();
+
+    /**
+     * 异步发送multipart/form-data请求
+     * @param url 请求地址
+     * @param bearerToken API密钥
+     * @param fields 普通表单字段（按插入顺序写出）
+     * @param fileField 文件字段名
+     * @param file 文件内容，文件名后缀决定Content-Type
+     * @param timeout 整个请求的超时时间
+     * @return 响应（状态码与响应体）
+     */
+    public CompletableFuture<HttpResponse<String>> postMultipart(String url, String bearerToken,
+                                                                 Map<String, String> fields, String fileField,
+                                                                 Resource file, Duration timeout) {
+        String boundary = "----SttBoundary" + UUID.randomUUID().toString().replace("-", "");
+        HttpRequest.BodyPublisher body;
+        try {
+            body = buildMultipartBody(boundary, fields, fileField, file);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UncheckedIOException("读取音频数据失败", e));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Authorization", "Bearer " + bearerToken)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(body)
+                .build();
+
+        logger.debug("发送STT请求: {} ({} bytes)", url, body.contentLength());
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 调用方取消 result 时一并取消底层请求：JDK HttpClient 的异步请求被取消后会中止连接上的传输，
+     * 而由其派生的 future 被取消并不会传递回去
+     * @param request postMultipart 返回的请求
+     * @param result 由 request 派生的结果
+     * @return result
+     */
+    public static <T> CompletableFuture<T> cancelWith(CompletableFuture<?> request, CompletableFuture<T> result) {
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                request.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 拼接multipart请求体，文件部分不整体读入内存：文件资源按需从文件通道读取，内存资源直接引用字节数组
+     */
+    private HttpRequest.BodyPublisher buildMultipartBody(String boundary, Map<String, String> fields,
+                                                         String fileField, Resource file) throws IOException {
+        StringBuilder head = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            head.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(field.getKey()).append("\"\r\n\r\n")
+                    .append(field.getValue()).append("\r\n");
+        }
+        String filename = file.getFilename() != null ? file.getFilename() : "audio.wav";
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(fileField)
+                .append("\"; filename=\"").append(filename).append("\"\r\n")
+                .append("Content-Type: ").append(getAudioContentType(filename)).append("\r\n\r\n");
+        String tail = "\r\n--" + boundary + "--\r\n";
+
+        return HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(head.toString().getBytes(StandardCharsets.UTF_8)),
+                toBodyPublisher(file),
+                HttpRequest.BodyPublishers.ofByteArray(tail.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private HttpRequest.BodyPublisher toBodyPublisher(Resource file) throws IOException {
+        if (file instanceof ByteArrayResource byteArrayResource) {
+            return HttpRequest.BodyPublishers.ofByteArray(byteArrayResource.getByteArray());
+        }
+        if (file.isFile()) {
+            return HttpRequest.BodyPublishers.ofFile(file.getFile().toPath());
+        }
+        return HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return file.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String getAudioContentType(String filename) {
+        String lower = filename.toLowerCase();
+        if (lower.endsWith(".flac")) {
+            return "audio/flac";
+        }
+        if (lower.endsWith(".wav")) {
+            return "audio/wav";
+        }
+        return "application/octet-stream";
+    }
+
+    @PreDestroy
+    public void destroy() {
+        callbackExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.subtitle.service;
+
+import java.time.Duration;
+
+/**
+ * STT服务商返回限流（HTTP 429/503）时抛出
+ * 由切片转写服务捕获后降低该服务商的并发和速率，并在等待后重试该切片
+ */
+public class SttRateLimitedException extends RuntimeException {
+
+    /**
+     * 服务商通过 Retry-After 指定的等待时间，未指定时为null
+     */
+    private final Duration retryAfter;
+
+    public SttRateLimitedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * 解析 Retry-After 响应头（秒数形式），无法解析时返回null
+     */
+    public static Duration parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
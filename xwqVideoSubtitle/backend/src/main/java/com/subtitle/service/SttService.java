@@ -1,9 +1,11 @@
 package com.subtitle.service;
 
 import com.subtitle.entity.SubtitleSegment;
+import org.springframework.core.io.Resource;
 
 import java.io.InputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface SttService {
@@ -17,10 +19,57 @@ public interface SttService {
     List<SubtitleSegment> transcribeFile(String audioPath, String language);
 
     /**
-     * 实时流式转写（预留）
-     * @param audioStream 音频输入流
+     * 批量转写音频文件，切片识别结果写入断点存储；不切片的服务商忽略存储
+     * @param audioPath 音频文件路径
+     * @param language 语言代码
+     * @param store 切片结果存储，已保存的切片不再请求
+     * @return 字幕片段列表
+     */
+    default List<SubtitleSegment> transcribeFile(String audioPath, String language, ChunkResultStore store) {
+        return transcribeFile(audioPath, language);
+    }
+
+    /**
+     * 转写单个切片（一次请求），切片需满足 {@link #getCapabilities()} 的限制
+     * @param audio 切片音频（文件或内存数据），文件名后缀表示编码
      * @param language 语言代码
-     * @param callback 回调函数
+     * @return 字幕片段列表，时间相对切片起点
+     */
+    List<SubtitleSegment> transcribeChunk(Resource audio, String language);
+
+    /**
+     * 异步转写单个切片，默认在虚拟线程上执行同步方法；基于HTTP的服务商应覆盖为非阻塞实现
+     * @param audio 切片音频
+     * @param language 语言代码
+     * @return 字幕片段列表，时间相对切片起点
+     */
+    default CompletableFuture<List<SubtitleSegment>> transcribeChunkAsync(Resource audio, String language) {
+        return CompletableFuture.supplyAsync(() -> transcribeChunk(audio, language),
+                runnable -> Thread.ofVirtual().start(runnable));
+    }
+
+    /**
+     * 单次请求的能力描述
+     */
+    SttCapabilities getCapabilities();
+
+    /**
+     * 流式转写：边读取边切片识别
+     * @param audioStream 16kHz单声道16bit小端裸PCM流
+     * @param language 语言代码
+     * @param callback 按时间顺序接收字幕片段
      */
     void transcribeStream(InputStream audioStream, String language, Consumer<SubtitleSegment> callback);
-}
\ No newline at end of file
+
+    /**
+     * 流式转写，切片识别结果写入断点存储；不切片的服务商忽略存储
+     * @param audioStream 16kHz单声道16bit小端裸PCM流
+     * @param language 语言代码
+     * @param store 切片结果存储，已保存的切片不再请求
+     * @param callback 按时间顺序接收字幕片段
+     */
+    default void transcribeStream(InputStream audioStream, String language, ChunkResultStore store,
+                                  Consumer<SubtitleSegment> callback) {
+        transcribeStream(audioStream, language, callback);
+    }
+}
@@ -0,0 +1,277 @@
+package com.subtitle.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.config.ClusterConfig;
+import com.subtitle.config.JobQueueConfig;
+import com.subtitle.dto.SubtitleGenerateDTO;
+import com.subtitle.entity.TaskRecord;
+import com.subtitle.entity.Video;
+import com.subtitle.mapper.TaskRecordMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 基于 task_records 表的持久化字幕任务队列
+ * 任务先以排队状态写入数据库，由任意节点的 SubtitleJobWorker 领取执行；
+ * 执行期间定期续约，节点宕机或重启后租约过期的任务会被重新领取。
+ * 任务记录携带来源节点和媒体路径，执行节点据此获取媒体文件
+ */
+@Service
+public class SubtitleJobQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubtitleJobQueue.class);
+
+    public static final String TASK_TYPE = "subtitle_generate";
+
+    /**
+     * 任务状态：0 执行中，1 完成，2 失败，3 排队中
+     */
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_QUEUED = 3;
+
+    /**
+     * 取消的任务按失败状态记录，以该消息区分
+     */
+    public static final String CANCELLED_MESSAGE = "任务已取消";
+
+    @Autowired
+    private TaskRecordMapper taskRecordMapper;
+
+    @Autowired
+    private JobQueueConfig jobQueueConfig;
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SttService sttService;
+
+    /**
+     * 队列已满时抛出，调用方应提示客户端稍后重试
+     */
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * 提交字幕生成任务
+     * 同一视频、语言和服务商已有排队或执行中的任务时不创建新任务，直接返回已有任务；
+     * 去重由 dedupe_key 唯一索引保证，多个节点同时提交时只有一个能写入
+     * @return 新建的任务，或已在进行中的相同任务
+     * @throws QueueFullException 排队任务数已达上限
+     */
+    public TaskRecord enqueue(String taskId, Video video, SubtitleGenerateDTO generateDTO) {
+        String dedupeKey = getDedupeKey(video, generateDTO);
+        TaskRecord existing = findActive(dedupeKey);
+        if (existing != null) {
+            logger.info("相同的字幕任务正在进行，关联到已有任务: {} ({})", existing.getTaskId(), dedupeKey);
+            return existing;
+        }
+
+        long queued = taskRecordMapper.selectCount(new LambdaQueryWrapper<TaskRecord>()
+                .eq(TaskRecord::getTaskType, TASK_TYPE)
+                .eq(TaskRecord::getStatus, STATUS_QUEUED));
+        if (queued >= jobQueueConfig.getMaxQueued()) {
+            logger.warn("字幕任务队列已满: {} 个任务排队中", queued);
+            throw new QueueFullException("当前排队任务过多，请稍后重试");
+        }
+
+        TaskRecord task = new TaskRecord();
+        task.setId(TaskIdGenerator.parseId(taskId));
+        task.setTaskId(taskId);
+        task.setTaskType(TASK_TYPE);
+        task.setVideoId(video.getId());
+        // 媒体来源取存储视频文件的节点，旧数据未记录时视为本节点
+        task.setOriginNode(StringUtils.hasText(video.getOriginNode()) ? video.getOriginNode() : clusterConfig.getNodeUrl());
+        task.setMediaPath(video.getFilePath());
+        task.setStatus(STATUS_QUEUED);
+        task.setProgress(0);
+        task.setMessage("任务排队中");
+        task.setAttempts(0);
+        task.setDedupeKey(dedupeKey);
+        try {
+            task.setPayload(objectMapper.writeValueAsString(generateDTO));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("序列化任务参数失败", e);
+        }
+        try {
+            taskRecordMapper.insert(task);
+        } catch (DuplicateKeyException e) {
+            // 其他请求刚刚写入了相同的任务
+            existing = findActive(dedupeKey);
+            if (existing != null) {
+                logger.info("相同的字幕任务已由并发请求创建，关联到已有任务: {}", existing.getTaskId());
+                return existing;
+            }
+            throw e;
+        }
+        logger.info("字幕任务已入队: {}, 当前排队 {} 个", taskId, queued + 1);
+        return task;
+    }
+
+    /**
+     * 去重键：视频、语言与当前STT服务商
+     */
+    private String getDedupeKey(Video video, SubtitleGenerateDTO generateDTO) {
+        String language = StringUtils.hasText(generateDTO.getLanguage()) ? generateDTO.getLanguage() : "auto";
+        return video.getId() + ":" + language.toLowerCase() + ":" + sttService.getCapabilities().getProvider();
+    }
+
+    private TaskRecord findActive(String dedupeKey) {
+        return taskRecordMapper.selectOne(new LambdaQueryWrapper<TaskRecord>()
+                .eq(TaskRecord::getDedupeKey, dedupeKey));
+    }
+
+    /**
+     * 取消排队或执行中的任务
+     * @return 是否取消成功，任务已结束时返回false
+     */
+    public boolean cancel(TaskRecord task) {
+        return taskRecordMapper.cancel(task.getId(), CANCELLED_MESSAGE) > 0;
+    }
+
+    /**
+     * 取消视频的所有排队或执行中的任务（删除视频时调用）
+     */
+    public int cancelByVideo(Long videoId) {
+        int cancelled = taskRecordMapper.cancelByVideo(videoId, CANCELLED_MESSAGE);
+        if (cancelled > 0) {
+            logger.info("视频 {} 已删除，取消 {} 个任务", videoId, cancelled);
+        }
+        return cancelled;
+    }
+
+    /**
+     * 按任务ID查询任务，解析出主键后走主键索引；旧格式的任务ID按 task_id 唯一索引查询
+     */
+    public TaskRecord findTask(String taskId) {
+        Long id = TaskIdGenerator.parseId(taskId);
+        if (id != null) {
+            TaskRecord task = taskRecordMapper.selectById(id);
+            if (task != null && taskId.equals(task.getTaskId())) {
+                return task;
+            }
+        }
+        return taskRecordMapper.selectOne(new LambdaQueryWrapper<TaskRecord>()
+                .eq(TaskRecord::getTaskId, taskId));
+    }
+
+    /**
+     * 批量按任务ID查询任务，查询方式同 {@link #findTask}
+     */
+    public List<TaskRecord> findTasks(Collection<String> taskIds) {
+        List<Long> ids = new ArrayList<>();
+        for (String taskId : taskIds) {
+            Long id = TaskIdGenerator.parseId(taskId);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        List<TaskRecord> tasks = new ArrayList<>();
+        Set<String> found = new HashSet<>();
+        if (!ids.isEmpty()) {
+            for (TaskRecord task : taskRecordMapper.selectBatchIds(ids)) {
+                if (taskIds.contains(task.getTaskId())) {
+                    tasks.add(task);
+                    found.add(task.getTaskId());
+                }
+            }
+        }
+        List<String> legacy = taskIds.stream().filter(taskId -> !found.contains(taskId)).toList();
+        if (!legacy.isEmpty()) {
+            tasks.addAll(taskRecordMapper.selectList(new LambdaQueryWrapper<TaskRecord>()
+                    .in(TaskRecord::getTaskId, legacy)));
+        }
+        return tasks;
+    }
+
+    /**
+     * 为指定节点领取最多 limit 个任务
+     * 使用 SELECT ... FOR UPDATE SKIP LOCKED 锁定候选行，多节点并发领取时各自拿到不同的任务
+     */
+    @Transactional
+    public List<TaskRecord> claim(String workerId, int limit) {
+        List<TaskRecord> claimed = new ArrayList<>();
+        List<Long> candidates = taskRecordMapper.lockClaimableIds(TASK_TYPE, jobQueueConfig.getMaxAttempts(), limit);
+        for (Long id : candidates) {
+            int updated = taskRecordMapper.claim(id, workerId, jobQueueConfig.getLeaseSeconds(),
+                    jobQueueConfig.getMaxAttempts());
+            if (updated == 1) {
+                TaskRecord task = taskRecordMapper.selectById(id);
+                logger.info("节点 {} 领取任务: {} (第 {} 次)", workerId, task.getTaskId(), task.getAttempts());
+                claimed.add(task);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * 为节点正在执行的任务续约
+     */
+    public void renewLeases(String workerId) {
+        taskRecordMapper.renewLeases(workerId, jobQueueConfig.getLeaseSeconds());
+    }
+
+    /**
+     * 将节点未完成的任务放回队列
+     */
+    public int requeue(String workerId) {
+        return taskRecordMapper.requeue(workerId);
+    }
+
+    /**
+     * 将执行失败但可恢复的任务延迟后放回队列，领取次数用尽或任务已不属于该节点时返回false
+     * 重试间隔随领取次数递增
+     */
+    public boolean retryLater(TaskRecord task, String message) {
+        int attempts = task.getAttempts() != null ? task.getAttempts() : 0;
+        if (task.getWorkerId() == null || attempts >= jobQueueConfig.getMaxAttempts()) {
+            return false;
+        }
+        int delaySeconds = jobQueueConfig.getRetryDelaySeconds() * Math.max(1, attempts);
+        boolean requeued = taskRecordMapper.retryLater(task.getId(), task.getWorkerId(), delaySeconds, message) > 0;
+        if (requeued) {
+            logger.info("任务 {} 将在 {} 秒后重新执行 (已执行 {} 次)", task.getTaskId(), delaySeconds, attempts);
+        }
+        return requeued;
+    }
+
+    /**
+     * 清理多次中断的任务
+     */
+    public void failExhausted() {
+        int failed = taskRecordMapper.failExhausted(jobQueueConfig.getMaxAttempts());
+        if (failed > 0) {
+            logger.warn("{} 个任务多次中断，已标记为失败", failed);
+        }
+    }
+
+    /**
+     * 解析任务参数
+     */
+    public SubtitleGenerateDTO readPayload(TaskRecord task) {
+        try {
+            return objectMapper.readValue(task.getPayload(), SubtitleGenerateDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("解析任务参数失败: " + task.getTaskId(), e);
+        }
+    }
+}
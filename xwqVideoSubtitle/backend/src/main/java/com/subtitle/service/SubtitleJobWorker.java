@@ -0,0 +1,172 @@
+package com.subtitle.service;
+
+import com.subtitle.config.JobQueueConfig;
+import com.subtitle.entity.TaskRecord;
+import com.subtitle.utils.TaskCancellation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 字幕任务执行节点
+ * 按空闲线程数从数据库队列领取任务，执行期间定期续约；停止时把未完成的任务放回队列
+ */
+@Component
+@ConditionalOnProperty(name = "app.job.worker-enabled", havingValue = "true", matchIfMissing = true)
+public class SubtitleJobWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubtitleJobWorker.class);
+
+    @Autowired
+    private SubtitleJobQueue jobQueue;
+
+    @Autowired
+    private SubtitleService subtitleService;
+
+    @Autowired
+    private JobQueueConfig jobQueueConfig;
+
+    @Autowired
+    private TaskProgressRegistry taskProgressRegistry;
+
+    /**
+     * 本节点执行中的任务及其取消令牌
+     */
+    private final Map<String, TaskCancellation> runningTasks = new ConcurrentHashMap<>();
+
+    private String workerId;
+
+    private ExecutorService executor;
+
+    private volatile boolean stopping;
+
+    @PostConstruct
+    public void init() {
+        workerId = resolveHostName() + "-" + ProcessHandle.current().pid() + "-"
+                + UUID.randomUUID().toString().substring(0, 8);
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(jobQueueConfig.getWorkerThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "subtitle-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("字幕任务执行节点启动: {}, 并发数 {}", workerId, jobQueueConfig.getWorkerThreads());
+    }
+
+    /**
+     * 按空闲线程数领取任务
+     */
+    @Scheduled(fixedDelayString = "${app.job.poll-interval-ms:2000}")
+    public void poll() {
+        if (stopping) {
+            return;
+        }
+        int free = jobQueueConfig.getWorkerThreads() - runningTasks.size();
+        if (free <= 0) {
+            return;
+        }
+        try {
+            List<TaskRecord> tasks = jobQueue.claim(workerId, free);
+            for (TaskRecord task : tasks) {
+                TaskCancellation cancellation = new TaskCancellation();
+                runningTasks.put(task.getTaskId(), cancellation);
+                executor.submit(() -> execute(task, cancellation));
+            }
+        } catch (Exception e) {
+            logger.error("领取字幕任务失败", e);
+        }
+    }
+
+    /**
+     * 续约正在执行的任务，并清理多次中断的任务
+     */
+    @Scheduled(fixedDelayString = "${app.job.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        try {
+            if (!runningTasks.isEmpty()) {
+                jobQueue.renewLeases(workerId);
+            }
+            jobQueue.failExhausted();
+        } catch (Exception e) {
+            logger.error("字幕任务续约失败", e);
+        }
+    }
+
+    /**
+     * 检查本节点执行中的任务是否已被取消或已被其他节点接管，是则停止执行
+     */
+    @Scheduled(fixedDelayString = "${app.job.cancel-check-interval-ms:2000}")
+    public void checkCancelled() {
+        if (runningTasks.isEmpty()) {
+            return;
+        }
+        try {
+            for (TaskRecord task : jobQueue.findTasks(runningTasks.keySet())) {
+                if (task.getStatus() == SubtitleJobQueue.STATUS_RUNNING && workerId.equals(task.getWorkerId())) {
+                    continue;
+                }
+                TaskCancellation cancellation = runningTasks.get(task.getTaskId());
+                if (cancellation != null && cancellation.cancel()) {
+                    logger.info("任务 {} 已取消或已不由本节点持有，停止执行", task.getTaskId());
+                }
+            }
+        } catch (Exception e) {
+            logger.error("检查任务取消状态失败", e);
+        }
+    }
+
+    private void execute(TaskRecord task, TaskCancellation cancellation) {
+        cancellation.bind();
+        try {
+            subtitleService.runTask(task);
+        } catch (Exception e) {
+            logger.error("字幕任务执行失败: {}", task.getTaskId(), e);
+        } finally {
+            cancellation.unbind();
+            runningTasks.remove(task.getTaskId());
+            // 任务以任何方式结束（包括异常和取消）后都不再由本节点执行，进度改由数据库读取
+            taskProgressRegistry.removeLocal(task.getTaskId());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopping = true;
+        // 先放回队列再中断线程，被中断任务的后续状态写入会因节点不再持有任务而失效
+        int requeued = jobQueue.requeue(workerId);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("字幕任务执行节点停止: {}, {} 个任务重新排队", workerId, requeued);
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
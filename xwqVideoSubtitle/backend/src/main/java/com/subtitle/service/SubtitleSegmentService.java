@@ -0,0 +1,246 @@
+package com.subtitle.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.dto.SegmentPage;
+import com.subtitle.entity.Subtitle;
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.entity.SubtitleSegmentRecord;
+import com.subtitle.mapper.SubtitleMapper;
+import com.subtitle.mapper.SubtitleSegmentMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 字幕片段存储
+ * 片段按 (subtitle_id, start_ms) 存储在 subtitle_segments 表，按时间窗口或游标分页读取时只扫描所需的主键范围，
+ * 耗时与字幕总长度无关。片段写入完成（max_segment_ms 非空）后片段表即为完整数据，导出渲染也从这里读取；
+ * 导入的字幕只写入片段表，content 保持为空数组。本功能上线前生成的字幕在首次读取片段时从 content 写入
+ */
+@Service
+public class SubtitleSegmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubtitleSegmentService.class);
+
+    private static final TypeReference<List<SubtitleSegment>> SEGMENT_LIST = new TypeReference<>() {
+    };
+
+    private static final int INSERT_BATCH_SIZE = 500;
+
+    /**
+     * 单页最多片段数
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private SubtitleSegmentMapper subtitleSegmentMapper;
+
+    @Autowired
+    private SubtitleMapper subtitleMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 写入字幕的全部片段
+     */
+    public void saveSegments(Long subtitleId, List<SubtitleSegment> segments) {
+        SegmentWriter writer = openWriter(subtitleId);
+        for (SubtitleSegment segment : segments) {
+            writer.add(segment);
+        }
+        writer.finish();
+    }
+
+    /**
+     * 逐条写入片段，用于边解析边保存的场景
+     */
+    public SegmentWriter openWriter(Long subtitleId) {
+        return new SegmentWriter(subtitleId);
+    }
+
+    /**
+     * 读取与时间窗口重叠的片段
+     * @param from 窗口开始（秒），为空表示从头开始
+     * @param to 窗口结束（秒，不含），为空表示到结尾
+     * @param cursor 上一页返回的游标，为空表示第一页
+     * @param limit 单页片段数，不超过 {@link #MAX_PAGE_SIZE}
+     * @return 分页结果，字幕不存在时返回null，字幕尚未生成完成时返回空页
+     * @throws IllegalArgumentException 游标无效
+     */
+    public SegmentPage getSegments(Long subtitleId, Double from, Double to, String cursor, int limit) {
+        Subtitle subtitle = subtitleMapper.selectOne(new LambdaQueryWrapper<Subtitle>()
+                .select(Subtitle::getId, Subtitle::getStatus, Subtitle::getMaxSegmentMs)
+                .eq(Subtitle::getId, subtitleId));
+        if (subtitle == null) {
+            return null;
+        }
+        if (!Objects.equals(subtitle.getStatus(), 1)) {
+            // 生成或导入尚未完成，片段不完整，不能据此补建索引
+            return new SegmentPage().setSegments(new ArrayList<>());
+        }
+        long maxSegmentMs = subtitle.getMaxSegmentMs() != null ? subtitle.getMaxSegmentMs() : index(subtitleId);
+
+        long fromMs = from != null ? toMillis(from) : 0;
+        long toMs = to != null ? toMillis(to) : Long.MAX_VALUE;
+        long afterStartMs = -1;
+        int afterSeq = -1;
+        if (StringUtils.hasText(cursor)) {
+            String[] parts = cursor.split(":");
+            try {
+                afterStartMs = Long.parseLong(parts[0]);
+                afterSeq = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("无效的游标: " + cursor);
+            }
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<SubtitleSegment> segments = new ArrayList<>();
+        String nextCursor = null;
+        if (fromMs < toMs) {
+            long minStartMs = Math.max(fromMs - maxSegmentMs, afterStartMs);
+            // 多取一条判断是否还有下一页
+            List<SubtitleSegmentRecord> rows = subtitleSegmentMapper.selectWindow(subtitleId, fromMs, toMs, minStartMs,
+                    afterStartMs, afterSeq, pageSize + 1);
+            for (int i = 0; i < rows.size() && i < pageSize; i++) {
+                segments.add(toSegment(rows.get(i)));
+            }
+            if (rows.size() > pageSize) {
+                SubtitleSegmentRecord last = rows.get(pageSize - 1);
+                nextCursor = last.getStartMs() + ":" + last.getSeq();
+            }
+        }
+        return new SegmentPage().setSegments(segments).setNextCursor(nextCursor);
+    }
+
+    /**
+     * 按时间顺序读取字幕的全部片段，用于导出渲染和识别结果复用
+     * @param subtitle 已完成的字幕，只需 id 与 maxSegmentMs；片段尚未写入片段表时先从 content 写入
+     */
+    public List<SubtitleSegment> getAllSegments(Subtitle subtitle) {
+        if (subtitle.getMaxSegmentMs() == null) {
+            subtitle.setMaxSegmentMs(index(subtitle.getId()));
+        }
+        List<SubtitleSegment> segments = new ArrayList<>();
+        long afterStartMs = -1;
+        int afterSeq = -1;
+        while (true) {
+            // 窗口 [-1, +∞) 包含所有片段，包括时长为0的片段
+            List<SubtitleSegmentRecord> rows = subtitleSegmentMapper.selectWindow(subtitle.getId(), -1, Long.MAX_VALUE,
+                    afterStartMs, afterStartMs, afterSeq, MAX_PAGE_SIZE);
+            for (SubtitleSegmentRecord row : rows) {
+                segments.add(toSegment(row));
+            }
+            if (rows.size() < MAX_PAGE_SIZE) {
+                return segments;
+            }
+            SubtitleSegmentRecord last = rows.get(rows.size() - 1);
+            afterStartMs = last.getStartMs();
+            afterSeq = last.getSeq();
+        }
+    }
+
+    /**
+     * 从 subtitles.content 写入片段
+     * @return 最长片段时长（毫秒）
+     */
+    private long index(Long subtitleId) {
+        Subtitle subtitle = subtitleMapper.selectById(subtitleId);
+        List<SubtitleSegment> segments = List.of();
+        if (subtitle != null && StringUtils.hasText(subtitle.getContent())) {
+            try {
+                segments = objectMapper.readValue(subtitle.getContent(), SEGMENT_LIST);
+            } catch (IOException e) {
+                logger.warn("解析字幕 {} 的片段失败: {}", subtitleId, e.getMessage());
+            }
+        }
+        SegmentWriter writer = openWriter(subtitleId);
+        for (SubtitleSegment segment : segments) {
+            writer.add(segment);
+        }
+        logger.info("字幕 {} 的 {} 个片段已写入片段表", subtitleId, segments.size());
+        return writer.finish();
+    }
+
+    private static SubtitleSegment toSegment(SubtitleSegmentRecord row) {
+        SubtitleSegment segment = new SubtitleSegment();
+        segment.setIndex(row.getSeq() + 1);
+        segment.setStartTime(row.getStartMs() / 1000.0);
+        segment.setEndTime(row.getEndMs() / 1000.0);
+        segment.setText(row.getText());
+        segment.setConfidence(row.getConfidence());
+        segment.setSpeaker(row.getSpeaker());
+        segment.calculateDuration();
+        return segment;
+    }
+
+    private static long toMillis(Double seconds) {
+        return seconds != null ? Math.max(0, Math.round(seconds * 1000)) : 0;
+    }
+
+    /**
+     * 片段写入器，按批提交
+     * {@link #finish} 时才写入最长片段时长，此前读取片段会从 content 重新写入，写入中断不会留下不完整的结果
+     */
+    public class SegmentWriter {
+
+        private final Long subtitleId;
+
+        private final List<SubtitleSegmentRecord> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+
+        private int seq;
+
+        private long maxSegmentMs;
+
+        private SegmentWriter(Long subtitleId) {
+            this.subtitleId = subtitleId;
+        }
+
+        public void add(SubtitleSegment segment) {
+            long startMs = toMillis(segment.getStartTime());
+            long endMs = Math.max(startMs, toMillis(segment.getEndTime()));
+            batch.add(new SubtitleSegmentRecord()
+                    .setSubtitleId(subtitleId)
+                    .setStartMs(startMs)
+                    .setSeq(seq++)
+                    .setEndMs(endMs)
+                    .setText(segment.getText() != null ? segment.getText() : "")
+                    .setConfidence(segment.getConfidence())
+                    .setSpeaker(segment.getSpeaker()));
+            maxSegmentMs = Math.max(maxSegmentMs, endMs - startMs);
+            if (batch.size() >= INSERT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        /**
+         * 提交剩余片段并记录最长片段时长
+         * @return 最长片段时长（毫秒）
+         */
+        public long finish() {
+            flush();
+            subtitleMapper.update(null, new LambdaUpdateWrapper<Subtitle>()
+                    .eq(Subtitle::getId, subtitleId)
+                    .set(Subtitle::getMaxSegmentMs, maxSegmentMs));
+            return maxSegmentMs;
+        }
+
+        private void flush() {
+            if (!batch.isEmpty()) {
+                subtitleSegmentMapper.insertBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.subtitle.service;
 import com.subtitle.entity.Subtitle;
 import com.subtitle.entity.Video;
 import com.subtitle.dto.SubtitleGenerateDTO;
+import com.subtitle.dto.TaskProgressEvent;
 import com.subtitle.entity.SubtitleSegment;
 import com.subtitle.entity.TaskRecord;
 import com.subtitle.mapper.SubtitleMapper;
@@ -10,23 +11,39 @@ import com.subtitle.mapper.VideoMapper;
 import com.subtitle.mapper.TaskRecordMapper;
 import com.subtitle.service.SttService;
 import com.subtitle.utils.AudioExtractor;
+import com.subtitle.utils.AudioFingerprinter;
+import com.subtitle.utils.MediaInfo;
 import com.subtitle.utils.SubtitleFormatConverter;
-import com.subtitle.dto.ApiResponse;
+import com.subtitle.utils.SubtitleParser;
+import com.subtitle.utils.SubtitleRenderer;
+import com.subtitle.utils.TaskCancellation;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Collections;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,6 +51,19 @@ public class SubtitleService {
 
     private static final Logger logger = LoggerFactory.getLogger(SubtitleService.class);
 
+    private static final TypeReference<List<SubtitleSegment>> SEGMENT_LIST = new TypeReference<>() {
+    };
+
+    /**
+     * 导入字幕未指定语言时记录的语言代码（ISO 639-2 "未确定"）
+     */
+    private static final String UNDETERMINED_LANGUAGE = "und";
+
+    /**
+     * 单个片段渲染后的平均字节数估计（时间行与一两行文本），用于判断渲染结果能否放入缓存
+     */
+    private static final int ESTIMATED_SEGMENT_BYTES = 128;
+
     @Autowired
     private SubtitleMapper subtitleMapper;
 
@@ -46,96 +76,295 @@ public class SubtitleService {
     @Autowired
     private SttService sttService;
 
+    @Autowired
+    private SubtitleJobQueue subtitleJobQueue;
+
+    @Autowired
+    private ClusterMediaService clusterMediaService;
+
+    @Autowired
+    private TaskProgressRegistry taskProgressRegistry;
+
+    @Autowired
+    private TaskChunkResultService taskChunkResultService;
+
+    @Autowired
+    private RenderedSubtitleCache renderedSubtitleCache;
+
+    @Autowired
+    private SubtitleSegmentService subtitleSegmentService;
+
+    @Autowired
+    private AudioFingerprintService audioFingerprintService;
+
+    @Autowired
+    private StageOutputService stageOutputService;
+
     /**
-     * 异步生成字幕
+     * 执行队列中领取到的字幕生成任务
      */
-    @Async
-    public CompletableFuture<ApiResponse<Subtitle>> generateSubtitleAsync(String taskId, Long videoId, SubtitleGenerateDTO generateDTO) {
-        try {
-            // 获取视频信息
-            Video video = videoMapper.selectById(videoId);
-            if (video == null) {
-                return CompletableFuture.completedFuture(ApiResponse.error("视频不存在"));
-            }
+    public void runTask(TaskRecord task) {
+        Video video = videoMapper.selectById(task.getVideoId());
+        if (video == null) {
+            updateTaskStatus(task, 2, null, "视频不存在");
+            return;
+        }
+        SubtitleGenerateDTO generateDTO = subtitleJobQueue.readPayload(task);
 
-            // 创建任务记录
-            TaskRecord task = new TaskRecord();
-            task.setTaskId(taskId);
-            task.setTaskType("subtitle_generate");
-            task.setVideoId(videoId);
-            task.setStatus(0); // 进行中
-            task.setProgress(0);
-            task.setMessage("开始生成字幕");
-            taskRecordMapper.insert(task);
-
-            // 执行字幕生成流程
-            Subtitle subtitle = generateSubtitle(video, generateDTO, task);
-
-            if (subtitle != null) {
-                return CompletableFuture.completedFuture(ApiResponse.success(subtitle));
-            } else {
-                task.setStatus(2); // 失败
-                task.setErrorMessage("字幕生成失败");
-                taskRecordMapper.updateById(task);
-                return CompletableFuture.completedFuture(ApiResponse.error("字幕生成失败"));
+        // 执行节点可能不是接收上传的节点，媒体文件按需从来源节点拉取
+        Path mediaPath = null;
+        try {
+            mediaPath = clusterMediaService.resolve(task);
+            video.setFilePath(mediaPath.toString());
+            generateSubtitle(video, generateDTO, task);
+        } catch (RuntimeException e) {
+            if (mediaPath == null) {
+                updateTaskStatus(task, 2, 0, "字幕生成失败: " + e.getMessage());
             }
-
-        } catch (Exception e) {
-            // 更新任务状态为失败
-            updateTaskStatus(taskId, 2, null, e.getMessage());
-            return CompletableFuture.completedFuture(ApiResponse.error("字幕生成失败: " + e.getMessage()));
+            throw e;
+        } finally {
+            clusterMediaService.release(task, mediaPath);
         }
     }
 
     /**
      * 生成字幕（同步方法）
+     * 按阶段执行，输入未变的阶段复用上次的产出，见 {@link StageOutputService}
      */
     public Subtitle generateSubtitle(Video video, SubtitleGenerateDTO generateDTO, TaskRecord task) {
+        AudioFingerprinter.Fingerprint fingerprint = null;
         try {
-            // 1. 提取音频
-            updateTaskStatus(task.getTaskId(), 0, 10, "开始提取音频");
-            String audioPath = extractAudio(video);
-
-            if (audioPath == null) {
-                throw new RuntimeException("音频提取失败");
-            }
-
-            // 2. 调用STT服务
-            updateTaskStatus(task.getTaskId(), 0, 30, "开始语音识别");
-            List<SubtitleSegment> segments = sttService.transcribeFile(audioPath, generateDTO.getLanguage());
-
-            if (segments.isEmpty()) {
-                throw new RuntimeException("语音识别结果为空");
+            // 1~2. 同一音频、服务商和语言已识别过（如只换了输出格式）时跳过提取和识别
+            String transcriptKey = stageOutputService.transcriptKey(video, sttService.getCapabilities(),
+                    generateDTO.getLanguage());
+            List<SubtitleSegment> segments = stageOutputService.load(StageOutputService.STAGE_TRANSCRIPT,
+                    transcriptKey, SEGMENT_LIST);
+            if (segments != null) {
+                logger.info("任务 {} 复用已识别的 {} 个字幕片段", task.getTaskId(), segments.size());
+            } else {
+                fingerprint = computeFingerprint(video, task);
+                segments = transcribe(video, generateDTO, task, fingerprint);
+                stageOutputService.save(StageOutputService.STAGE_TRANSCRIPT, transcriptKey, video.getId(), segments);
             }
 
             // 3. 保存字幕
-            updateTaskStatus(task.getTaskId(), 0, 80, "保存字幕数据");
+            checkpoint(task, 80, "保存字幕数据");
             Subtitle subtitle = saveSubtitle(video, segments, generateDTO);
 
             // 4. 生成字幕文件
-            updateTaskStatus(task.getTaskId(), 0, 95, "生成字幕文件");
+            checkpoint(task, 95, "生成字幕文件");
             generateSubtitleFile(subtitle, segments);
 
             // 更新任务状态
-            updateTaskStatus(task.getTaskId(), 1, 100, "字幕生成完成");
+            updateTaskStatus(task, 1, 100, "字幕生成完成");
+            taskChunkResultService.deleteByTask(task.getTaskId());
+            indexFingerprint(video, fingerprint);
 
             return subtitle;
 
+        } catch (ChunkedTranscriptionService.ChunkFailedException e) {
+            // 部分切片重试后仍失败：已完成的切片已保存，任务稍后重新排队从断点继续
+            if (subtitleJobQueue.retryLater(task, "部分片段识别失败，稍后继续: " + e.getMessage())) {
+                taskProgressRegistry.publish(new TaskProgressEvent()
+                        .setTaskId(task.getTaskId())
+                        .setStatus(SubtitleJobQueue.STATUS_QUEUED)
+                        .setProgress(0)
+                        .setMessage("部分片段识别失败，稍后继续"));
+                logger.warn("任务 {} 部分片段识别失败，已重新排队: {}", task.getTaskId(), e.getMessage());
+                return null;
+            }
+            failTask(task, e);
+            throw e;
         } catch (Exception e) {
-            updateTaskStatus(task.getTaskId(), 2, 0, "字幕生成失败: " + e.getMessage());
+            if (TaskCancellation.isCurrentCancelled()) {
+                // 任务状态已由取消请求写入（取消请求可能由其他节点处理），这里清理已保存的切片结果并推送最终状态
+                logger.info("任务 {} 已取消，停止执行", task.getTaskId());
+                taskChunkResultService.deleteByTask(task.getTaskId());
+                taskProgressRegistry.publishStored(task.getTaskId());
+                return null;
+            }
+            failTask(task, e);
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 取消排队或执行中的任务
+     * 任务状态立即改为已取消；执行节点检查到后结束FFmpeg进程、取消在途的识别请求并清理临时文件
+     * @return 是否取消成功，任务已结束时返回false
+     */
+    public boolean cancelTask(TaskRecord task) {
+        if (!subtitleJobQueue.cancel(task)) {
+            return false;
+        }
+        taskChunkResultService.deleteByTask(task.getTaskId());
+        taskProgressRegistry.publish(new TaskProgressEvent()
+                .setTaskId(task.getTaskId())
+                .setStatus(2)
+                .setProgress(task.getProgress())
+                .setMessage(SubtitleJobQueue.CANCELLED_MESSAGE)
+                .setErrorMessage(SubtitleJobQueue.CANCELLED_MESSAGE));
+        logger.info("任务已取消: {}", task.getTaskId());
+        return true;
+    }
+
+    /**
+     * 计算音频指纹，未启用或视频文件不存在时返回null
+     */
+    private AudioFingerprinter.Fingerprint computeFingerprint(Video video, TaskRecord task) {
+        if (!audioFingerprintService.isEnabled() || !new File(video.getFilePath()).exists()) {
+            return null;
+        }
+        reportProgress(task, 5, "分析音频指纹");
+        return audioFingerprintService.compute(video.getFilePath());
+    }
+
+    /**
+     * 提取、切片并识别，返回合并后的字幕片段
+     */
+    private List<SubtitleSegment> transcribe(Video video, SubtitleGenerateDTO generateDTO, TaskRecord task,
+                                             AudioFingerprinter.Fingerprint fingerprint) {
+        // 切片识别结果随到随存，任务重新执行时只识别未完成的切片
+        ChunkResultStore chunkStore = taskChunkResultService.forTask(task.getTaskId());
+        // 音频指纹：与已识别视频重叠的部分直接复用字幕
+        if (fingerprint != null) {
+            chunkStore = audioFingerprintService.reuseMatches(chunkStore,
+                    audioFingerprintService.findMatches(fingerprint, video.getId(), generateDTO.getLanguage()));
+        }
+
+        // 已提取过音频时直接使用文件，否则流式提取并识别，失败时回退到先提取音频文件再识别
+        List<SubtitleSegment> segments = null;
+        boolean extracted = Files.exists(stageOutputService.getAudioPath(video));
+        if (!extracted && getAppConfig().isStreamingExtraction() && AudioExtractor.isFFmpegAvailable()) {
+            checkpoint(task, 10, "开始流式提取音频并识别");
+            segments = transcribeStreaming(video, generateDTO.getLanguage(), task, chunkStore);
+        }
+
+        if (segments == null) {
+            // 1. 提取音频
+            checkpoint(task, 10, extracted ? "使用已提取的音频" : "开始提取音频");
+            String audioPath = extractAudio(video);
+
+            // 2. 调用STT服务
+            checkpoint(task, 30, "开始语音识别");
+            segments = sttService.transcribeFile(audioPath, generateDTO.getLanguage(), chunkStore);
+        }
+
+        if (segments.isEmpty()) {
+            throw new RuntimeException("语音识别结果为空");
+        }
+        return segments;
+    }
+
+    /**
+     * 识别成功后写入音频指纹索引，供之后上传的重复内容复用，失败不影响任务结果
+     */
+    private void indexFingerprint(Video video, AudioFingerprinter.Fingerprint fingerprint) {
+        if (fingerprint == null) {
+            return;
+        }
+        try {
+            audioFingerprintService.index(video.getId(), fingerprint);
+        } catch (Exception e) {
+            logger.warn("写入音频指纹索引失败: {}", e.getMessage());
+        }
+    }
+
+    private void failTask(TaskRecord task, Exception e) {
+        if (updateTaskStatus(task, 2, 0, "字幕生成失败: " + e.getMessage())) {
+            taskChunkResultService.deleteByTask(task.getTaskId());
+        }
+    }
+
+    /**
+     * 流式识别：FFmpeg解码出的PCM直接送入STT切片器，音频不落盘
+     * 只有FFmpeg启动失败、退出码非0或读取音频流失败时才回退到文件模式；识别服务的失败直接抛出，
+     * 由切片断点与任务重试处理，避免已识别的切片在文件模式下按新的切片边界重复计费
+     * @return 字幕片段；FFmpeg或音频流失败时返回null，由调用方回退到文件模式
+     */
+    private List<SubtitleSegment> transcribeStreaming(Video video, String language, TaskRecord task,
+                                                      ChunkResultStore chunkStore) {
+        logger.info("开始流式提取音频 - 视频ID: {}, 视频路径: {}", video.getId(), video.getFilePath());
+
+        File videoFile = new File(video.getFilePath());
+        if (!videoFile.exists()) {
+            logger.error("视频文件不存在: {}", video.getFilePath());
+            throw new RuntimeException("视频文件不存在: " + video.getFilePath());
+        }
+
+        checkHasAudio(video);
+
+        Process process;
+        try {
+            process = AudioExtractor.startPcmStream(video.getFilePath());
+        } catch (IOException e) {
+            throwIfCancelled();
+            logger.warn("启动FFmpeg流式提取失败，回退到文件模式: {}", e.getMessage());
+            return null;
+        }
+        try {
+            List<SubtitleSegment> segments = new ArrayList<>();
+            double duration = video.getDurationSeconds() != null ? video.getDurationSeconds() : 0;
+            int[] lastProgress = {10};
+            try (InputStream pcmStream = process.getInputStream()) {
+                sttService.transcribeStream(pcmStream, language, chunkStore, segment -> {
+                    segments.add(segment);
+                    // 按已识别到的时间位置估算进度（10%~80%），只推送内存进度不写库
+                    if (duration > 0 && segment.getEndTime() != null) {
+                        int progress = 10 + (int) (70 * Math.min(1.0, segment.getEndTime() / duration));
+                        if (progress > lastProgress[0]) {
+                            lastProgress[0] = progress;
+                            reportProgress(task, progress, "正在识别: 已完成 " + segments.size() + " 条字幕");
+                        }
+                    }
+                });
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throwIfCancelled();
+                logger.warn("FFmpeg流式提取失败，退出码: {}，回退到文件模式", exitCode);
+                return null;
+            }
+            logger.info("流式识别完成，获得 {} 个字幕片段", segments.size());
+            return segments;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("流式识别被中断", e);
+        } catch (IOException | UncheckedIOException e) {
+            // 取消任务会结束FFmpeg进程，读取失败源于取消时不能回退
+            throwIfCancelled();
+            logger.warn("读取音频流失败，回退到文件模式: {}", e.getMessage());
+            return null;
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * 当前任务已取消时抛出异常，交给任务的取消处理
+     */
+    private static void throwIfCancelled() {
+        if (TaskCancellation.isCurrentCancelled()) {
+            throw new CancellationException("任务已取消");
+        }
+    }
+
     /**
      * 提取音频
+     * 音频按提取阶段的输入键命名，已提取过时直接返回；先写入临时文件再改名，中断时不会留下不完整的文件
      */
     private String extractAudio(Video video) {
-        logger.info("开始提取音频 - 视频ID: {}, 视频路径: {}", video.getId(), video.getFilePath());
-
-        String audioFilename = video.getId() + ".wav";
-        String audioPath = Paths.get(getAppConfig().getAudioPath(), audioFilename).toString();
+        Path target = stageOutputService.getAudioPath(video);
+        String audioPath = target.toString();
+        if (Files.exists(target)) {
+            logger.info("使用已提取的音频: {}", audioPath);
+            return audioPath;
+        }
 
+        logger.info("开始提取音频 - 视频ID: {}, 视频路径: {}", video.getId(), video.getFilePath());
         logger.info("音频输出路径: {}", audioPath);
 
         // 确保音频目录存在
@@ -155,22 +384,71 @@ public class SubtitleService {
         logger.info("视频文件大小: {} bytes", videoFile.length());
 
         // 检查视频是否包含音频
-        if (!AudioExtractor.hasAudio(video.getFilePath())) {
-            logger.error("视频文件不包含音频流: {}", video.getFilePath());
-            throw new RuntimeException("视频文件不包含音频流");
-        }
+        checkHasAudio(video);
 
-        // 提取音频
-        boolean success = AudioExtractor.extractAudio(video.getFilePath(), audioPath);
+        // 提取音频：每次提取写入独立的临时文件，并发的相同任务互不覆盖，先完成的一方改名生效
+        Path partPath;
+        try {
+            partPath = Files.createTempFile(target.toAbsolutePath().getParent(),
+                    target.getFileName().toString().replaceAll("\\.wav$", "") + "_", ".part.wav");
+        } catch (IOException e) {
+            throw new RuntimeException("创建临时音频文件失败: " + audioPath, e);
+        }
+        boolean success = AudioExtractor.extractAudio(video.getFilePath(), partPath.toString());
         if (success) {
+            try {
+                Files.move(partPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new RuntimeException("保存提取的音频失败: " + audioPath, e);
+            }
             logger.info("音频提取成功: {}", audioPath);
             return audioPath;
         } else {
             logger.error("音频提取失败");
+            try {
+                Files.deleteIfExists(partPath);
+            } catch (IOException e) {
+                logger.warn("删除未完成的音频文件失败: {}", partPath);
+            }
             throw new RuntimeException("音频提取失败");
         }
     }
 
+    /**
+     * 检查视频是否包含音频流，使用上传时探测并保存的结果
+     * 旧数据没有探测结果时探测一次并回写视频记录
+     */
+    private void checkHasAudio(Video video) {
+        if (video.getHasAudio() == null) {
+            MediaInfo mediaInfo = AudioExtractor.probe(video.getFilePath());
+            if (mediaInfo == null) {
+                throw new RuntimeException("无法读取视频文件: " + video.getFilePath());
+            }
+            video.setDurationSeconds(mediaInfo.getDurationSeconds())
+                    .setHasAudio(mediaInfo.isHasAudio())
+                    .setAudioCodec(mediaInfo.getAudioCodec())
+                    .setAudioSampleRate(mediaInfo.getAudioSampleRate())
+                    .setAudioChannels(mediaInfo.getAudioChannels())
+                    .setBitRate(mediaInfo.getBitRate());
+            // 只回写探测字段，filePath 可能已替换为执行节点上的临时路径
+            videoMapper.updateById(new Video()
+                    .setId(video.getId())
+                    .setDurationSeconds(video.getDurationSeconds())
+                    .setHasAudio(video.getHasAudio())
+                    .setAudioCodec(video.getAudioCodec())
+                    .setAudioSampleRate(video.getAudioSampleRate())
+                    .setAudioChannels(video.getAudioChannels())
+                    .setBitRate(video.getBitRate()));
+        }
+
+        if (!video.getHasAudio()) {
+            logger.error("视频文件不包含音频流: {}", video.getFilePath());
+            throw new RuntimeException("视频文件不包含音频流");
+        }
+        logger.info("音频流信息: 编码={}, 采样率={}Hz, 声道数={}",
+                video.getAudioCodec(), video.getAudioSampleRate(), video.getAudioChannels());
+    }
+
     /**
      * 保存字幕到数据库
      */
@@ -187,6 +465,7 @@ public class SubtitleService {
             subtitle.setFilePath(""); // 暂时为空，后续生成文件时更新
 
             subtitleMapper.insert(subtitle);
+            saveSegments(subtitle, segments);
             return subtitle;
 
         } catch (Exception e) {
@@ -194,23 +473,26 @@ public class SubtitleService {
         }
     }
 
+    /**
+     * 写入片段表，失败时在首次按片段读取时从 content 重新写入
+     */
+    private void saveSegments(Subtitle subtitle, List<SubtitleSegment> segments) {
+        try {
+            subtitleSegmentService.saveSegments(subtitle.getId(), segments);
+        } catch (Exception e) {
+            logger.warn("写入字幕 {} 的片段失败，将在读取时重新写入: {}", subtitle.getId(), e.getMessage());
+        }
+    }
+
     /**
      * 生成字幕文件
      */
     private void generateSubtitleFile(Subtitle subtitle, List<SubtitleSegment> segments) throws Exception {
-        String content;
-        switch (subtitle.getFormat().toUpperCase()) {
-            case "SRT":
-                content = SubtitleFormatConverter.convertToSrt(segments);
-                break;
-            case "VTT":
-                content = SubtitleFormatConverter.convertToVtt(segments);
-                break;
-            default:
-                content = SubtitleFormatConverter.convertToSrt(segments);
-        }
-
-        String filename = subtitle.getId() + "." + subtitle.getFormat().toLowerCase();
+        SubtitleRenderer.Format format = SubtitleRenderer.Format.of(subtitle.getFormat());
+        if (format == null) {
+            format = SubtitleRenderer.Format.SRT;
+        }
+        String filename = subtitle.getId() + "." + format.getExtension();
         String filePath = Paths.get(getAppConfig().getSubtitlePath(), filename).toString();
 
         // 确保字幕目录存在
@@ -220,33 +502,72 @@ public class SubtitleService {
         }
 
         // 保存字幕文件
-        SubtitleFormatConverter.saveSubtitleFile(content, filePath);
+        SubtitleFormatConverter.saveSubtitleFile(segments, format, filePath);
 
         // 更新字幕记录中的文件路径
         subtitle.setFilePath(filePath);
         subtitleMapper.updateById(subtitle);
     }
 
+    /**
+     * 推送细粒度进度，只更新内存注册表并通知订阅者，不写数据库
+     */
+    private void reportProgress(TaskRecord task, int progress, String message) {
+        taskProgressRegistry.publish(new TaskProgressEvent()
+                .setTaskId(task.getTaskId())
+                .setStatus(SubtitleJobQueue.STATUS_RUNNING)
+                .setProgress(progress)
+                .setMessage(message));
+    }
+
+    /**
+     * 更新任务进度（阶段性节点，写入数据库），任务已不再由当前节点持有时中止执行
+     */
+    private void checkpoint(TaskRecord task, int progress, String message) {
+        if (!updateTaskStatus(task, SubtitleJobQueue.STATUS_RUNNING, progress, message)) {
+            throw new IllegalStateException("任务已被其他节点接管或已结束: " + task.getTaskId());
+        }
+    }
+
     /**
      * 更新任务状态
+     * 由执行节点持有的任务只在仍属于该节点且处于执行中时更新，避免租约过期后旧节点覆盖新节点的状态
+     * @return 是否更新成功
      */
-    private void updateTaskStatus(String taskId, int status, Integer progress, String message) {
-        TaskRecord task = taskRecordMapper.selectByMap(
-                Collections.singletonMap("task_id", taskId)).stream().findFirst().orElse(null);
-        if (task != null) {
-            task.setStatus(status);
-            if (progress != null) {
-                task.setProgress(progress);
-            }
-            task.setMessage(message);
+    private boolean updateTaskStatus(TaskRecord task, int status, Integer progress, String message) {
+        boolean owned = task.getWorkerId() != null;
+        LambdaUpdateWrapper<TaskRecord> update = new LambdaUpdateWrapper<TaskRecord>()
+                .eq(TaskRecord::getId, task.getId())
+                .eq(owned, TaskRecord::getWorkerId, task.getWorkerId())
+                .eq(owned, TaskRecord::getStatus, SubtitleJobQueue.STATUS_RUNNING)
+                .set(TaskRecord::getStatus, status)
+                .set(TaskRecord::getMessage, message);
+        if (progress != null) {
+            update.set(TaskRecord::getProgress, progress);
+        }
+
+        // 如果是失败状态，同时设置errorMessage
+        if (status == 2) {
+            update.set(TaskRecord::getErrorMessage, message);
+        }
+        // 任务结束后释放去重键，之后相同的请求会创建新任务
+        if (status == 1 || status == 2) {
+            update.set(TaskRecord::getDedupeKey, null);
+        }
 
-            // 如果是失败状态，同时设置errorMessage
+        boolean updated = taskRecordMapper.update(null, update) > 0;
+        if (updated) {
+            TaskProgressEvent event = new TaskProgressEvent()
+                    .setTaskId(task.getTaskId())
+                    .setStatus(status)
+                    .setProgress(progress)
+                    .setMessage(message);
             if (status == 2) {
-                task.setErrorMessage(message);
+                event.setErrorMessage(message);
             }
-
-            taskRecordMapper.updateById(task);
+            taskProgressRegistry.publish(event);
         }
+        return updated;
     }
 
     /**
@@ -263,33 +584,171 @@ public class SubtitleService {
      * 获取任务状态
      */
     public TaskRecord getTaskStatus(String taskId) {
-        return taskRecordMapper.selectByMap(
-                Collections.singletonMap("task_id", taskId)).stream().findFirst().orElse(null);
+        TaskRecord task = subtitleJobQueue.findTask(taskId);
+        // 本节点执行中的任务使用内存中的最新进度
+        TaskProgressEvent progress = taskProgressRegistry.getLocalProgress(taskId);
+        if (task != null && progress != null) {
+            task.setProgress(progress.getProgress());
+            task.setMessage(progress.getMessage());
+        }
+        return task;
+    }
+
+    /**
+     * 订阅任务进度推送
+     * @return SSE连接，任务不存在时返回null
+     */
+    public SseEmitter subscribeTaskEvents(String taskId) {
+        return taskProgressRegistry.subscribe(taskId);
     }
 
     /**
-     * 获取视频的所有字幕
+     * 获取视频的所有字幕（不含片段内容，片段通过 {@link SubtitleSegmentService#getSegments} 分页读取）
      */
     public List<Subtitle> getSubtitlesByVideoId(Long videoId) {
         return subtitleMapper.selectList(
                 new LambdaQueryWrapper<Subtitle>()
+                        .select(Subtitle.class, field -> !"content".equals(field.getColumn()))
                         .eq(Subtitle::getVideoId, videoId)
         );
     }
 
     /**
-     * 获取字幕文件
+     * 获取字幕详情（不含片段内容）
      */
-    public byte[] getSubtitleFile(Long subtitleId) {
-        Subtitle subtitle = subtitleMapper.selectById(subtitleId);
-        if (subtitle != null && StringUtils.hasText(subtitle.getFilePath())) {
+    public Subtitle getSubtitle(Long id) {
+        return subtitleMapper.selectOne(
+                new LambdaQueryWrapper<Subtitle>()
+                        .select(Subtitle.class, field -> !"content".equals(field.getColumn()))
+                        .eq(Subtitle::getId, id)
+        );
+    }
+
+    /**
+     * 获取生成时写入的字幕文件
+     * 只有格式与生成时相同时返回，其他格式由 {@link #getRendered} / {@link #renderTo} 从字幕片段渲染
+     * @return 字幕文件，格式不同或文件不存在时返回null
+     */
+    public File getSubtitleFile(Subtitle subtitle, SubtitleRenderer.Format format) {
+        if (StringUtils.hasText(subtitle.getFilePath()) && subtitle.getFilePath().endsWith("." + format.getExtension())) {
+            File file = new File(subtitle.getFilePath());
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取渲染结果，优先读取缓存；缓存未命中时从片段表读取片段渲染
+     * 未缓存且预计超过缓存单条上限时返回null，由调用方用 {@link #renderTo} 直接写出
+     * @param subtitle 已完成的字幕，不需要含片段内容
+     * @return 渲染结果（UTF-8）
+     */
+    public byte[] getRendered(Subtitle subtitle, SubtitleRenderer.Format format) throws IOException {
+        String key = RenderedSubtitleCache.key(subtitle, format);
+        byte[] cached = renderedSubtitleCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // 按片段数估计渲染结果大小
+        long estimatedBytes = (long) (subtitle.getSegmentCount() != null ? subtitle.getSegmentCount() : 0)
+                * ESTIMATED_SEGMENT_BYTES;
+        if (estimatedBytes > renderedSubtitleCache.getMaxEntryBytes()) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(256, estimatedBytes));
+        renderTo(subtitle, format, out);
+        byte[] rendered = out.toByteArray();
+        renderedSubtitleCache.put(key, rendered);
+        return rendered;
+    }
+
+    /**
+     * 从字幕片段渲染并写出，不缓存
+     * @param out 输出，调用方负责关闭
+     */
+    public void renderTo(Subtitle subtitle, SubtitleRenderer.Format format, OutputStream out) throws IOException {
+        SubtitleRenderer.render(subtitleSegmentService.getAllSegments(subtitle), format, out);
+    }
+
+    /**
+     * 删除字幕文件及其渲染缓存
+     */
+    public void deleteSubtitleFiles(Subtitle subtitle) {
+        renderedSubtitleCache.invalidate(subtitle.getId());
+        List<Path> files = new ArrayList<>();
+        if (StringUtils.hasText(subtitle.getFilePath())) {
+            files.add(Paths.get(subtitle.getFilePath()));
+        }
+        // 早期版本导出其他格式时在字幕目录保存的文件
+        for (SubtitleRenderer.Format format : SubtitleRenderer.Format.values()) {
+            files.add(Paths.get(getAppConfig().getSubtitlePath(), subtitle.getId() + "." + format.getExtension()));
+        }
+        for (Path file : files) {
             try {
-                return Files.readAllBytes(Paths.get(subtitle.getFilePath()));
+                Files.deleteIfExists(file);
             } catch (IOException e) {
-                throw new RuntimeException("读取字幕文件失败", e);
+                logger.warn("删除字幕文件失败: {}", file);
             }
         }
-        return null;
+    }
+
+    /**
+     * 导入字幕文件
+     * 边解析边按批写入片段表，不保留文件全文、片段列表或整份片段JSON；content 保持为空数组，
+     * 导出渲染与分页读取均从片段表读取。
+     * 记录与片段在同一事务中写入，导入失败或进程中断时全部回滚，其他请求看不到导入中的记录
+     * @param language 语言代码，为空时记为 "und"（未确定）
+     * @param filename 文件名，按扩展名判断格式（srt、vtt、ass、ssa）
+     * @param input 文件内容，调用方负责关闭
+     * @param charset 文件无BOM时的编码，为null时按UTF-8
+     * @throws IllegalArgumentException 不支持的格式、文件编码与指定编码不符或文件中没有字幕
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public Subtitle importSubtitle(Long videoId, String language, String filename, InputStream input,
+                                   Charset charset) throws IOException {
+        SubtitleRenderer.Format format = SubtitleParser.detectFormat(filename);
+        if (format == null) {
+            throw new IllegalArgumentException("不支持导入的字幕格式: " + filename);
+        }
+        Charset fallbackCharset = charset != null ? charset : StandardCharsets.UTF_8;
+
+        // 先写入记录取得ID，片段表以其为外键
+        Subtitle subtitle = new Subtitle()
+                .setVideoId(videoId)
+                .setLanguage(StringUtils.hasText(language) ? language : UNDETERMINED_LANGUAGE)
+                .setContent("[]")
+                .setFormat(format.getExtension())
+                .setStatus(0)
+                .setFilePath("");
+        subtitleMapper.insert(subtitle);
+
+        try {
+            SubtitleSegmentService.SegmentWriter segmentWriter = subtitleSegmentService.openWriter(subtitle.getId());
+            double[] duration = {0};
+            int count = SubtitleParser.parse(SubtitleParser.openReader(input, fallbackCharset), format, segment -> {
+                segmentWriter.add(segment);
+                duration[0] = Math.max(duration[0], segment.getEndTime());
+            });
+            if (count == 0) {
+                throw new IllegalArgumentException("未解析到字幕内容: " + filename);
+            }
+            long maxSegmentMs = segmentWriter.finish();
+
+            // content 不参与更新，保持为空数组
+            subtitle.setContent(null)
+                    .setStatus(1)
+                    .setDuration((int) Math.round(duration[0]))
+                    .setSegmentCount(count)
+                    .setMaxSegmentMs(maxSegmentMs);
+            subtitleMapper.updateById(subtitle);
+        } catch (CharacterCodingException e) {
+            throw new IllegalArgumentException("文件内容不是有效的 " + fallbackCharset.name()
+                    + " 编码，请指定正确的字符编码: " + filename);
+        }
+        logger.info("导入字幕: {} -> 字幕 {}，{} 个片段", filename, subtitle.getId(), subtitle.getSegmentCount());
+        return subtitle;
     }
 
     // 获取应用配置的辅助方法
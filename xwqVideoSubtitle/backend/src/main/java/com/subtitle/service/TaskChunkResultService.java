@@ -0,0 +1,90 @@
+package com.subtitle.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.entity.TaskChunkResult;
+import com.subtitle.mapper.TaskChunkResultMapper;
+import com.subtitle.utils.AudioChunk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 task_chunk_results 表的切片结果存储
+ * 切片按其在原音频中的帧区间识别：同一视频重新提取音频后切片边界不变，中断的任务重新执行时可以续上；
+ * 切片边界不同（如流式回退到文件模式）的结果不会被误用
+ */
+@Service
+public class TaskChunkResultService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskChunkResultService.class);
+
+    private static final TypeReference<List<SubtitleSegment>> SEGMENT_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private TaskChunkResultMapper taskChunkResultMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 获取任务的切片结果存储，已保存的结果一次性读入
+     */
+    public ChunkResultStore forTask(String taskId) {
+        Map<String, String> saved = new ConcurrentHashMap<>();
+        for (TaskChunkResult result : taskChunkResultMapper.selectList(new LambdaQueryWrapper<TaskChunkResult>()
+                .eq(TaskChunkResult::getTaskId, taskId))) {
+            saved.put(key(result.getStartFrame(), result.getEndFrame()), result.getSegments());
+        }
+        if (!saved.isEmpty()) {
+            logger.info("任务 {} 已有 {} 个切片识别完成，继续执行时跳过", taskId, saved.size());
+        }
+
+        return new ChunkResultStore() {
+            @Override
+            public List<SubtitleSegment> load(AudioChunk chunk) {
+                String json = saved.get(key(chunk.startFrame(), chunk.endFrame()));
+                if (json == null) {
+                    return null;
+                }
+                try {
+                    return objectMapper.readValue(json, SEGMENT_LIST);
+                } catch (Exception e) {
+                    logger.warn("解析已保存的切片结果失败，重新识别: {}", e.getMessage());
+                    return null;
+                }
+            }
+
+            @Override
+            public void save(AudioChunk chunk, List<SubtitleSegment> segments) {
+                // 保存失败只影响断点续传，不影响本次识别
+                try {
+                    taskChunkResultMapper.upsert(taskId, chunk.startFrame(), chunk.endFrame(),
+                            objectMapper.writeValueAsString(segments));
+                } catch (Exception e) {
+                    logger.warn("保存切片结果失败: {} ({}-{})", taskId, chunk.startFrame(), chunk.endFrame(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * 任务结束后删除切片结果
+     */
+    public void deleteByTask(String taskId) {
+        taskChunkResultMapper.delete(new LambdaQueryWrapper<TaskChunkResult>()
+                .eq(TaskChunkResult::getTaskId, taskId));
+    }
+
+    private static String key(long startFrame, long endFrame) {
+        return startFrame + "-" + endFrame;
+    }
+}
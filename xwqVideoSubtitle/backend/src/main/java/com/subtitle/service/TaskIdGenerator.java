@@ -0,0 +1,69 @@
+package com.subtitle.service;
+
+import com.subtitle.config.ClusterConfig;
+import com.subtitle.utils.SnowflakeIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * 任务ID生成器
+ * 任务ID为 "subtitle_" + Snowflake ID，数字部分同时作为 task_records 的主键，
+ * 按任务ID查询时解析出主键直接走主键索引
+ */
+@Component
+public class TaskIdGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskIdGenerator.class);
+
+    private static final String TASK_ID_PREFIX = "subtitle_";
+
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    private SnowflakeIdGenerator generator;
+
+    /**
+     * 未配置节点号时：单节点部署使用0；多节点部署（配置了节点间密钥）拒绝启动，
+     * 由节点地址等推算的节点号无法保证各节点不同，重复的节点号会生成相同的任务ID
+     */
+    @PostConstruct
+    public void init() {
+        int workerId;
+        if (clusterConfig.getWorkerId() != null && clusterConfig.getWorkerId() >= 0) {
+            workerId = clusterConfig.getWorkerId();
+        } else if (StringUtils.hasText(clusterConfig.getSecret())) {
+            throw new IllegalStateException("多节点部署时必须为每个节点配置不同的 app.cluster.worker-id（0-"
+                    + SnowflakeIdGenerator.MAX_WORKER_ID + "）");
+        } else {
+            workerId = 0;
+        }
+        generator = new SnowflakeIdGenerator(workerId);
+        logger.info("任务ID生成器节点号: {}", workerId);
+    }
+
+    /**
+     * 生成新的任务ID
+     */
+    public String nextTaskId() {
+        return TASK_ID_PREFIX + generator.nextId();
+    }
+
+    /**
+     * 从任务ID中解析主键
+     * @return 主键，格式不符时返回null（调用方需校验查到的记录的任务ID，旧版本以时间戳生成的任务ID也能解析但与主键无关）
+     */
+    public static Long parseId(String taskId) {
+        if (taskId == null || !taskId.startsWith(TASK_ID_PREFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(taskId.substring(TASK_ID_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
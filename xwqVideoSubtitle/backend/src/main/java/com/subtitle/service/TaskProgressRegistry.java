@@ -0,0 +1,211 @@
+package com.subtitle.service;
+
+import com.subtitle.dto.TaskProgressEvent;
+import com.subtitle.entity.TaskRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 任务进度注册表
+ * 本节点执行中任务的进度保存在内存中，通过SSE推送给订阅的客户端，只有阶段性节点写入 task_records。
+ * 订阅的任务不在本节点执行时（多节点部署），由定时刷新统一批量读取数据库后推送
+ */
+@Component
+public class TaskProgressRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskProgressRegistry.class);
+
+    /**
+     * SSE连接超时时间（毫秒），客户端断开后由 EventSource 自动重连
+     */
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    @Autowired
+    private SubtitleJobQueue subtitleJobQueue;
+
+    /**
+     * 本节点执行中任务的最新进度
+     */
+    private final Map<String, TaskProgressEvent> localProgress = new ConcurrentHashMap<>();
+
+    /**
+     * 各任务的SSE订阅者
+     */
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 非本节点任务最近一次推送的进度，用于跳过未变化的推送
+     */
+    private final Map<String, TaskProgressEvent> remoteProgress = new ConcurrentHashMap<>();
+
+    /**
+     * 发布任务进度：更新内存状态并推送给订阅者，任务结束时关闭连接
+     * 任务重新排队后不再由本节点执行，之后的进度由定时刷新从数据库读取
+     */
+    public void publish(TaskProgressEvent event) {
+        if (Objects.equals(event.getStatus(), SubtitleJobQueue.STATUS_RUNNING)) {
+            localProgress.put(event.getTaskId(), event);
+        } else {
+            localProgress.remove(event.getTaskId());
+        }
+        send(event);
+    }
+
+    /**
+     * 任务在本节点执行结束后移除内存进度，未发布结束事件的路径（异常、取消、被其他节点接管）也不会残留
+     */
+    public void removeLocal(String taskId) {
+        localProgress.remove(taskId);
+    }
+
+    /**
+     * 任务在本节点停止执行（取消或被其他节点接管）时调用：移除内存进度，并推送数据库中的当前状态
+     */
+    public void publishStored(String taskId) {
+        localProgress.remove(taskId);
+        TaskRecord task = subtitleJobQueue.findTask(taskId);
+        if (task != null) {
+            send(toEvent(task));
+        }
+    }
+
+    /**
+     * 获取本节点执行中任务的最新进度，不在本节点执行时返回null
+     */
+    public TaskProgressEvent getLocalProgress(String taskId) {
+        return localProgress.get(taskId);
+    }
+
+    /**
+     * 订阅任务进度，立即推送一次当前状态
+     * @return SSE连接，任务不存在时返回null
+     */
+    public SseEmitter subscribe(String taskId) {
+        TaskProgressEvent current = localProgress.get(taskId);
+        if (current == null) {
+            TaskRecord task = subtitleJobQueue.findTask(taskId);
+            if (task == null) {
+                return null;
+            }
+            current = toEvent(task);
+        }
+
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        if (!trySend(emitter, current)) {
+            return emitter;
+        }
+        if (current.isFinished()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        subscribers.computeIfAbsent(taskId, key -> new CopyOnWriteArrayList<>()).add(emitter);
+        Runnable remove = () -> unsubscribe(taskId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(error -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * 刷新不在本节点执行的已订阅任务，所有任务合并为一次查询
+     */
+    @Scheduled(fixedDelayString = "${app.job.progress-refresh-ms:3000}")
+    public void refreshRemote() {
+        List<String> remoteTaskIds = new ArrayList<>();
+        for (String taskId : subscribers.keySet()) {
+            if (!localProgress.containsKey(taskId)) {
+                remoteTaskIds.add(taskId);
+            }
+        }
+        if (remoteTaskIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<TaskRecord> tasks = subtitleJobQueue.findTasks(remoteTaskIds);
+            for (TaskRecord task : tasks) {
+                TaskProgressEvent event = toEvent(task);
+                TaskProgressEvent previous = remoteProgress.put(task.getTaskId(), event);
+                if (!event.equals(previous)) {
+                    send(event);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("刷新任务进度失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定期发送注释行保持连接，避免长时间无进度时被代理断开
+     */
+    @Scheduled(fixedDelay = 15000)
+    public void keepAlive() {
+        for (List<SseEmitter> emitters : subscribers.values()) {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private void send(TaskProgressEvent event) {
+        List<SseEmitter> emitters = subscribers.getOrDefault(event.getTaskId(), Collections.emptyList());
+        for (SseEmitter emitter : emitters) {
+            if (trySend(emitter, event) && event.isFinished()) {
+                emitter.complete();
+            }
+        }
+        if (event.isFinished()) {
+            subscribers.remove(event.getTaskId());
+            remoteProgress.remove(event.getTaskId());
+        }
+    }
+
+    private boolean trySend(SseEmitter emitter, TaskProgressEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(event, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // 客户端已断开
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(String taskId, SseEmitter emitter) {
+        subscribers.computeIfPresent(taskId, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+        if (!subscribers.containsKey(taskId)) {
+            remoteProgress.remove(taskId);
+        }
+    }
+
+    private static TaskProgressEvent toEvent(TaskRecord task) {
+        return new TaskProgressEvent()
+                .setTaskId(task.getTaskId())
+                .setStatus(task.getStatus())
+                .setProgress(Objects.requireNonNullElse(task.getProgress(), 0))
+                .setMessage(task.getMessage())
+                .setErrorMessage(task.getErrorMessage());
+    }
+}
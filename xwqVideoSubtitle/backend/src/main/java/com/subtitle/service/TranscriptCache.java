@@ -0,0 +1,223 @@
+package com.subtitle.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.config.SttCacheConfig;
+import com.subtitle.entity.SubtitleSegment;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 基于内容哈希的语音识别结果磁盘缓存
+ * 键由上传音频内容的SHA-256与服务商、模型、语言共同决定，同一视频重复生成或重复上传时切片直接命中，不再请求服务商。
+ * 索引按访问顺序维护在内存中，总大小超过上限时淘汰最久未使用的结果；启动时按文件修改时间重建索引
+ */
+@Component
+public class TranscriptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscriptCache.class);
+
+    private static final TypeReference<List<SubtitleSegment>> SEGMENT_LIST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private SttCacheConfig cacheConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Path root;
+
+    private long maxBytes;
+
+    /**
+     * 缓存键 -> 文件大小，按访问顺序排列
+     */
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalBytes;
+
+    @PostConstruct
+    public void init() {
+        if (!cacheConfig.getEnabled()) {
+            return;
+        }
+        root = Paths.get(cacheConfig.getPath());
+        maxBytes = cacheConfig.getMaxSizeMb() * 1024 * 1024;
+        try {
+            Files.createDirectories(root);
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                        .sorted(Comparator.comparing(TranscriptCache::lastModified))
+                        .forEach(file -> {
+                            String key = file.getFileName().toString().replace(".json", "");
+                            long size = file.toFile().length();
+                            index.put(key, size);
+                            totalBytes += size;
+                        });
+            }
+            evict();
+            logger.info("识别结果缓存: {} 条, {} KB, 上限 {} MB", index.size(), totalBytes / 1024,
+                    cacheConfig.getMaxSizeMb());
+        } catch (IOException e) {
+            logger.warn("初始化识别结果缓存失败，缓存已停用: {}", e.getMessage());
+            root = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return root != null;
+    }
+
+    /**
+     * 计算缓存键
+     * @param audio 上传给服务商的音频（编码已由文件名后缀区分，编码不同的同一音频视为不同内容）
+     * @return 缓存键，读取音频失败或缓存未启用时返回null
+     */
+    public String key(SttCapabilities capabilities, String language, Resource audio) {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (audio instanceof ByteArrayResource byteArrayResource) {
+                digest.update(byteArrayResource.getByteArray());
+            } else {
+                try (InputStream in = audio.getInputStream()) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+            String filename = audio.getFilename() != null ? audio.getFilename() : "";
+            String meta = "|" + capabilities.getProvider() + "|" + capabilities.getModel() + "|" + language
+                    + "|" + filename.substring(filename.lastIndexOf('.') + 1);
+            digest.update(meta.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.warn("计算音频哈希失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 读取缓存的识别结果
+     * @return 字幕片段（时间相对音频起点），未命中时返回null
+     */
+    public List<SubtitleSegment> get(String key) {
+        if (key == null) {
+            return null;
+        }
+        synchronized (index) {
+            if (index.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = path(key);
+        try {
+            List<SubtitleSegment> segments = objectMapper.readValue(file.toFile(), SEGMENT_LIST);
+            // 记录访问时间，重启后按此恢复淘汰顺序
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return segments;
+        } catch (IOException e) {
+            logger.warn("读取识别结果缓存失败: {}", e.getMessage());
+            remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * 保存识别结果，写入临时文件后原子替换，并发读取不会读到不完整的文件
+     */
+    public void put(String key, List<SubtitleSegment> segments) {
+        if (key == null) {
+            return;
+        }
+        Path file = path(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            objectMapper.writeValue(temp.toFile(), segments);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(file);
+            synchronized (index) {
+                Long previous = index.put(key, size);
+                totalBytes += size - (previous != null ? previous : 0);
+                evict();
+            }
+        } catch (IOException e) {
+            logger.warn("写入识别结果缓存失败: {}", e.getMessage());
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (index) {
+            Long size = index.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        try {
+            Files.deleteIfExists(path(key));
+        } catch (IOException ignored) {
+            // 删除失败时下次淘汰或启动时再处理
+        }
+    }
+
+    /**
+     * 淘汰最久未使用的结果直到总大小不超过上限，调用方需持有索引锁
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.getValue();
+            try {
+                Files.deleteIfExists(path(entry.getKey()));
+            } catch (IOException e) {
+                logger.debug("删除缓存文件失败: {}", entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 按键的前两位分子目录，避免单个目录文件过多
+     */
+    private Path path(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key + ".json");
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
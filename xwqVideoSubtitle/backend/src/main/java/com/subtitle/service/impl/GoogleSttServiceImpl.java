@@ -1,19 +1,22 @@
 package com.subtitle.service.impl;
 
+import com.subtitle.config.ConditionalOnSttProvider;
+import com.subtitle.service.SttCapabilities;
 import com.subtitle.service.SttService;
 import com.subtitle.entity.SubtitleSegment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 @Service
-@ConditionalOnProperty(name = "app.stt.provider", havingValue = "google")
+@ConditionalOnSttProvider("google")
 public class GoogleSttServiceImpl implements SttService {
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleSttServiceImpl.class);
@@ -34,6 +37,25 @@ public class GoogleSttServiceImpl implements SttService {
         return segments;
     }
 
+    @Override
+    public List<SubtitleSegment> transcribeChunk(Resource audio, String language) {
+        logger.warn("Google STT服务暂未实现，切片未转写: {}", audio.getFilename());
+        return new ArrayList<>();
+    }
+
+    /**
+     * Google同步识别接口单次最长60秒、10MB
+     */
+    @Override
+    public SttCapabilities getCapabilities() {
+        return new SttCapabilities()
+                .setProvider("google")
+                .setMaxDurationSeconds(60)
+                .setMaxBytes(10L * 1024 * 1024)
+                .setAcceptedCodecs(Set.of("wav"))
+                .setMaxConcurrency(1);
+    }
+
     @Override
     public void transcribeStream(InputStream audioStream, String language, Consumer<SubtitleSegment> callback) {
         logger.info("开始使用Google实时转写音频流");
@@ -1,37 +1,51 @@
 package com.subtitle.service.impl;
 
+import com.subtitle.config.ConditionalOnSttProvider;
+import com.subtitle.service.ChunkResultStore;
+import com.subtitle.service.ChunkedTranscriptionService;
+import com.subtitle.service.SttCapabilities;
+import com.subtitle.service.SttHttpClient;
+import com.subtitle.service.SttRateLimitedException;
 import com.subtitle.service.SttService;
 import com.subtitle.entity.SubtitleSegment;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.core.io.Resource;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.File;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.Consumer;
 
 /**
  * OpenAI Whisper语音识别服务实现
- * 支持长音频，一次调用即可完成
+ * 单次请求最大25MB，长音频按能力描述切片后并发识别
  */
 @Service
-@ConditionalOnProperty(name = "app.stt.provider", havingValue = "whisper")
+@ConditionalOnSttProvider("whisper")
 public class OpenAIWhisperSttServiceImpl implements SttService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAIWhisperSttServiceImpl.class);
 
+    /**
+     * Whisper API单次上传大小上限（25MB）
+     */
+    private static final long MAX_UPLOAD_BYTES = 25L * 1024 * 1024;
+
     @Value("${app.stt.whisper.api-key}")
     private String apiKey;
 
@@ -41,90 +55,143 @@ public class OpenAIWhisperSttServiceImpl implements SttService {
     @Value("${app.stt.whisper.model:whisper-1}")
     private String model;
 
+    @Value("${app.stt.whisper.upload-format:flac}")
+    private String uploadFormat;
+
+    @Value("${app.stt.whisper.concurrency:2}")
+    private int concurrency;
+
+    @Value("${app.stt.whisper.requests-per-second:0}")
+    private double requestsPerSecond;
+
+    @Value("${app.stt.whisper.timeout:120000}")
+    private int timeout;
+
     @Autowired
     private ObjectMapper objectMapper;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private ChunkedTranscriptionService chunkedTranscriptionService;
+
+    @Autowired
+    private SttHttpClient sttHttpClient;
 
     @Override
     public List<SubtitleSegment> transcribeFile(String audioPath, String language) {
+        return transcribeFile(audioPath, language, ChunkResultStore.NONE);
+    }
+
+    @Override
+    public List<SubtitleSegment> transcribeFile(String audioPath, String language, ChunkResultStore store) {
         logger.info("开始使用OpenAI Whisper转写音频文件: {}", audioPath);
         logger.info("请求识别语言: {}", language);
-        List<SubtitleSegment> segments = new ArrayList<>();
 
+        // 单次请求限制25MB，超出时由共享切片服务按能力描述切片并发识别
+        return chunkedTranscriptionService.transcribe(this, audioPath, language, store);
+    }
+
+    @Override
+    public SttCapabilities getCapabilities() {
+        return new SttCapabilities()
+                .setProvider("whisper")
+                .setModel(model)
+                .setMaxBytes(MAX_UPLOAD_BYTES)
+                .setAcceptedCodecs(Set.of("flac", "wav"))
+                .setUploadCodec(uploadFormat)
+                .setMaxConcurrency(concurrency)
+                .setMaxRequestsPerSecond(requestsPerSecond);
+    }
+
+    /**
+     * 转写单个音频切片（一次API请求）
+     */
+    @Override
+    public List<SubtitleSegment> transcribeChunk(Resource audio, String language) {
         try {
-            // 验证文件是否存在
-            File audioFile = new File(audioPath);
-            if (!audioFile.exists()) {
-                logger.error("音频文件不存在: {}", audioPath);
-                return segments;
+            return transcribeChunkAsync(audio, language).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * 异步转写单个音频切片，请求经共享HTTP客户端发送
+     */
+    @Override
+    public CompletableFuture<List<SubtitleSegment>> transcribeChunkAsync(Resource audio, String language) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        try {
+            // 验证音频是否存在
+            if (!audio.exists()) {
+                logger.error("音频文件不存在: {}", audio.getDescription());
+                return CompletableFuture.failedFuture(new RuntimeException("音频文件不存在: " + audio.getDescription()));
             }
 
-            long fileSize = audioFile.length();
+            long fileSize = audio.contentLength();
             logger.info("音频文件大小: {} bytes ({} MB)", fileSize, fileSize / 1024 / 1024);
 
             // 检查文件大小限制（25MB）
-            if (fileSize > 25 * 1024 * 1024) {
+            if (fileSize > MAX_UPLOAD_BYTES) {
                 logger.error("音频文件太大: {} MB，超过25MB限制", fileSize / 1024 / 1024);
-                throw new RuntimeException("音频文件太大，最大支持25MB");
-            }
-
-            // 构建请求
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-            headers.setBearerAuth(apiKey);
-
-            // 构建multipart请求体
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new FileSystemResource(audioFile));
-            body.add("model", model);
-
-            // 设置语言（auto或不指定则自动检测）
-            if (!"auto".equalsIgnoreCase(language) && language != null && !language.isEmpty()) {
-                // 转换语言代码
-                String whisperLanguage = convertToWhisperLanguage(language);
-                body.add("language", whisperLanguage);
-                logger.info("使用指定语言: {} -> {}", language, whisperLanguage);
-            } else {
-                logger.info("启用自动语言检测");
+                return CompletableFuture.failedFuture(new RuntimeException("音频文件太大，最大支持25MB"));
             }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new RuntimeException("语音识别失败: " + e.getMessage(), e));
+        }
 
-            // 请求带时间戳的响应格式
-            body.add("response_format", "verbose_json");
+        fields.put("model", model);
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+        // 设置语言（auto或不指定则自动检测）
+        if (!"auto".equalsIgnoreCase(language) && language != null && !language.isEmpty()) {
+            // 转换语言代码
+            String whisperLanguage = convertToWhisperLanguage(language);
+            fields.put("language", whisperLanguage);
+            logger.info("使用指定语言: {} -> {}", language, whisperLanguage);
+        } else {
+            logger.info("启用自动语言检测");
+        }
 
-            logger.info("调用OpenAI Whisper API: {}", endpoint);
+        // 请求带时间戳的响应格式
+        fields.put("response_format", "verbose_json");
 
-            // 发送请求
-            ResponseEntity<String> response = restTemplate.exchange(
-                    endpoint,
-                    HttpMethod.POST,
-                    requestEntity,
-                    String.class
-            );
+        logger.info("调用OpenAI Whisper API: {}", endpoint);
 
+        CompletableFuture<HttpResponse<String>> request = sttHttpClient.postMultipart(endpoint, apiKey, fields, "file",
+                audio, Duration.ofMillis(timeout));
+        return SttHttpClient.cancelWith(request, request.handle((response, e) -> {
+            if (e != null) {
+                logger.error("调用OpenAI Whisper API时发生错误", e);
+                throw new RuntimeException("语音识别失败: " + e.getMessage(), e);
+            }
             // 处理响应
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            if (response.statusCode() == HttpStatus.OK.value() && response.body() != null) {
                 logger.info("Whisper转写成功");
-                segments = parseWhisperResponse(response.getBody());
+                List<SubtitleSegment> segments = parseWhisperResponse(response.body());
                 logger.info("解析到 {} 个字幕片段", segments.size());
-            } else {
-                logger.error("Whisper转写失败: HTTP {}", response.getStatusCode());
+                return segments;
             }
-
-        } catch (Exception e) {
-            logger.error("调用OpenAI Whisper API时发生错误", e);
-            throw new RuntimeException("语音识别失败: " + e.getMessage(), e);
-        }
-
-        return segments;
+            if (response.statusCode() == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                throw new SttRateLimitedException("Whisper限流: HTTP " + response.statusCode(),
+                        SttRateLimitedException.parseRetryAfter(
+                                response.headers().firstValue("Retry-After").orElse(null)));
+            }
+            logger.error("Whisper转写失败: HTTP {}, {}", response.statusCode(), response.body());
+            throw new RuntimeException("语音识别失败: HTTP " + response.statusCode());
+        }));
     }
 
     @Override
     public void transcribeStream(InputStream audioStream, String language, Consumer<SubtitleSegment> callback) {
-        logger.info("开始使用Whisper实时转写音频流");
-        logger.warn("Whisper暂不支持实时流式转写");
+        transcribeStream(audioStream, language, ChunkResultStore.NONE, callback);
+    }
+
+    @Override
+    public void transcribeStream(InputStream audioStream, String language, ChunkResultStore store,
+                                 Consumer<SubtitleSegment> callback) {
+        logger.info("开始使用OpenAI Whisper流式转写音频流");
+        logger.info("请求识别语言: {}", language);
+        chunkedTranscriptionService.transcribeStream(this, audioStream, language, store, callback);
     }
 
     /**
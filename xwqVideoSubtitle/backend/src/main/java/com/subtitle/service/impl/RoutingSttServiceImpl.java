@@ -0,0 +1,506 @@
+package com.subtitle.service.impl;
+
+import com.subtitle.config.SttRoutingConfig;
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.service.AdaptiveRateLimiter;
+import com.subtitle.service.ChunkResultStore;
+import com.subtitle.service.ChunkedTranscriptionService;
+import com.subtitle.service.SttCapabilities;
+import com.subtitle.service.SttRateLimitedException;
+import com.subtitle.service.SttService;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 多服务商路由的STT服务
+ * 只启用一个服务商时直接委托给它；启用多个服务商时按切片路由：
+ * 每个切片按近期延迟和错误率综合评分排序，发往第一个有空闲额度的服务商，最优服务商额度已满时不排队等它；
+ * 请求耗时超过该服务商延迟分位数时向下一个有空闲额度的服务商发出对冲请求，取先成功返回的结果；
+ * 一个服务商失败或限流时立即转发到下一个服务商。
+ * 每次请求（含对冲与故障转移）都先取得目标服务商自身限流器的许可，各服务商的并发与速率上限互不借用
+ */
+@Service
+@Primary
+public class RoutingSttServiceImpl implements SttService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingSttServiceImpl.class);
+
+    /**
+     * 每个服务商保留的最近延迟样本数
+     */
+    private static final int LATENCY_WINDOW = 200;
+
+    /**
+     * 平均延迟和错误率的平滑系数
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * 错误率对路由评分的放大倍数：错误率25%时评分翻倍
+     */
+    private static final double ERROR_PENALTY = 4.0;
+
+    /**
+     * 每次失败按此延迟计入评分，从未成功的服务商也会随失败次数排到后面
+     */
+    private static final double FAILURE_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * 所有服务商额度都已满时，在最优服务商上单次等待许可的时长，超时后重新检查所有服务商
+     */
+    private static final long PERMIT_POLL_MILLIS = 50;
+
+    /**
+     * 对冲额度的累积上限
+     */
+    private static final double MAX_HEDGE_TOKENS = 10;
+
+    @Autowired
+    private List<SttService> sttServices;
+
+    @Autowired
+    private SttRoutingConfig routingConfig;
+
+    @Autowired
+    private ChunkedTranscriptionService chunkedTranscriptionService;
+
+    @Value("${app.stt.provider}")
+    private String primaryProvider;
+
+    private List<ProviderStats> providers;
+
+    private double hedgeTokens = MAX_HEDGE_TOKENS;
+
+    @PostConstruct
+    public void init() {
+        // 主服务商排在最前，其余按配置顺序，评分相同时按此顺序选择
+        List<String> order = new ArrayList<>();
+        order.add(primaryProvider.toLowerCase());
+        routingConfig.getProviders().forEach(provider -> order.add(provider.toLowerCase()));
+
+        providers = sttServices.stream()
+                .filter(service -> !(service instanceof RoutingSttServiceImpl))
+                .map(ProviderStats::new)
+                .sorted(Comparator.comparingInt(stats -> {
+                    int index = order.indexOf(stats.name);
+                    return index >= 0 ? index : order.size();
+                }))
+                .collect(Collectors.toList());
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("未启用任何STT服务商，请检查 app.stt.provider 配置");
+        }
+        logger.info("STT服务商: {}{}", providers.stream().map(stats -> stats.name).collect(Collectors.joining(", ")),
+                isRouting() ? "，按切片路由" + (routingConfig.getHedgeEnabled() ? "并启用对冲请求" : "") : "");
+    }
+
+    @Override
+    public List<SubtitleSegment> transcribeFile(String audioPath, String language) {
+        return transcribeFile(audioPath, language, ChunkResultStore.NONE);
+    }
+
+    @Override
+    public List<SubtitleSegment> transcribeFile(String audioPath, String language, ChunkResultStore store) {
+        if (!isRouting()) {
+            return providers.get(0).service.transcribeFile(audioPath, language, store);
+        }
+        return chunkedTranscriptionService.transcribe(this, audioPath, language, store);
+    }
+
+    @Override
+    public void transcribeStream(InputStream audioStream, String language, Consumer<SubtitleSegment> callback) {
+        transcribeStream(audioStream, language, ChunkResultStore.NONE, callback);
+    }
+
+    @Override
+    public void transcribeStream(InputStream audioStream, String language, ChunkResultStore store,
+                                 Consumer<SubtitleSegment> callback) {
+        if (!isRouting()) {
+            providers.get(0).service.transcribeStream(audioStream, language, store, callback);
+            return;
+        }
+        chunkedTranscriptionService.transcribeStream(this, audioStream, language, store, callback);
+    }
+
+    @Override
+    public List<SubtitleSegment> transcribeChunk(Resource audio, String language) {
+        try {
+            return transcribeChunkAsync(audio, language).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<SubtitleSegment>> transcribeChunkAsync(Resource audio, String language) {
+        if (!isRouting()) {
+            return providers.get(0).service.transcribeChunkAsync(audio, language);
+        }
+
+        List<ProviderStats> ranked = new ArrayList<>(providers);
+        long now = System.nanoTime();
+        ranked.sort(Comparator.comparingDouble(stats -> stats.score(now)));
+
+        ChunkCall call = new ChunkCall(ranked, audio, language);
+        call.launchNext("路由", true);
+        return call.result;
+    }
+
+    /**
+     * 启用多个服务商时，切片需同时满足所有服务商的限制
+     */
+    @Override
+    public SttCapabilities getCapabilities() {
+        if (!isRouting()) {
+            return providers.get(0).service.getCapabilities();
+        }
+
+        List<SttCapabilities> all = providers.stream().map(stats -> stats.service.getCapabilities()).toList();
+        Set<String> codecs = new HashSet<>(all.get(0).getAcceptedCodecs());
+        all.forEach(capabilities -> codecs.retainAll(capabilities.getAcceptedCodecs()));
+        if (codecs.isEmpty()) {
+            codecs.add("wav");
+        }
+        String uploadCodec = all.get(0).getUploadCodec();
+        if (uploadCodec == null || !codecs.contains(uploadCodec.toLowerCase())) {
+            uploadCodec = "wav";
+        }
+
+        return new SttCapabilities()
+                .setProvider("routing")
+                .setModel(all.stream().map(SttCapabilities::getModel).filter(Objects::nonNull).collect(Collectors.joining("+")))
+                .setMaxDurationSeconds(minPositive(all.stream().mapToDouble(SttCapabilities::getMaxDurationSeconds).toArray()))
+                .setMaxBytes((long) minPositive(all.stream().mapToDouble(SttCapabilities::getMaxBytes).toArray()))
+                .setAcceptedCodecs(codecs)
+                .setUploadCodec(uploadCodec)
+                .setMaxConcurrency(all.stream().mapToInt(SttCapabilities::getMaxConcurrency).sum());
+    }
+
+    private boolean isRouting() {
+        return providers.size() > 1;
+    }
+
+    /**
+     * 每个切片累积一定比例的对冲额度，额度用尽时不再对冲
+     */
+    private synchronized boolean tryAcquireHedge() {
+        if (hedgeTokens < 1) {
+            return false;
+        }
+        hedgeTokens -= 1;
+        return true;
+    }
+
+    private synchronized void refundHedge() {
+        hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + 1);
+    }
+
+    private synchronized void accrueHedge() {
+        hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + routingConfig.getHedgeBudget());
+    }
+
+    /**
+     * 最小的正数，全部为0（不限制）时返回0
+     */
+    private static double minPositive(double[] values) {
+        return Arrays.stream(values).filter(value -> value > 0).min().orElse(0);
+    }
+
+    /**
+     * 一个切片的路由请求：按评分顺序选择第一个有空闲许可的服务商发出，先成功的结果生效，
+     * 全部失败时返回最有代表性的错误。所有服务商额度都已满时在虚拟线程上等待，不阻塞调用方
+     */
+    private final class ChunkCall {
+
+        private final List<ProviderStats> remaining;
+        private final Resource audio;
+        private final String language;
+        private final CompletableFuture<List<SubtitleSegment>> result = new CompletableFuture<>();
+        private final List<CompletableFuture<List<SubtitleSegment>>> attempts = new ArrayList<>();
+
+        private int inFlight;
+        private boolean waiting;
+        private boolean hedgeScheduled;
+        private Throwable error;
+
+        ChunkCall(List<ProviderStats> candidates, Resource audio, String language) {
+            this.remaining = new ArrayList<>(candidates);
+            this.audio = audio;
+            this.language = language;
+            accrueHedge();
+            // 调用方取消时（如其他切片失败）一并取消在途请求
+            result.whenComplete((segments, e) -> {
+                synchronized (this) {
+                    attempts.forEach(attempt -> attempt.cancel(true));
+                }
+            });
+        }
+
+        /**
+         * 向尚未尝试的服务商中评分最优且有空闲许可的一个发出请求
+         * @param wait 所有服务商额度都已满时是否在虚拟线程上等待许可；为false时直接放弃
+         * @return 是否已发出或将要发出请求
+         */
+        boolean launchNext(String reason, boolean wait) {
+            Permit permit;
+            synchronized (this) {
+                if (result.isDone() || remaining.isEmpty()) {
+                    return false;
+                }
+                permit = tryAcquireAny();
+                if (permit == null) {
+                    if (!wait) {
+                        return false;
+                    }
+                    if (!waiting) {
+                        waiting = true;
+                        Thread.ofVirtual().start(() -> awaitPermit(reason));
+                    }
+                    return true;
+                }
+            }
+            send(permit, reason);
+            return true;
+        }
+
+        /**
+         * 等待任一剩余服务商的许可：在最优服务商的限流器上短暂等待，超时后重新检查所有服务商，
+         * 额度先空出的服务商先被使用
+         */
+        private void awaitPermit(String reason) {
+            Permit permit = null;
+            try {
+                while (permit == null) {
+                    ProviderStats best;
+                    synchronized (this) {
+                        if (result.isDone() || remaining.isEmpty()) {
+                            waiting = false;
+                            failIfExhausted();
+                            return;
+                        }
+                        permit = tryAcquireAny();
+                        if (permit != null) {
+                            break;
+                        }
+                        best = remaining.get(0);
+                    }
+                    AdaptiveRateLimiter limiter = limiterOf(best);
+                    if (!limiter.tryAcquire(PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        continue;
+                    }
+                    synchronized (this) {
+                        if (!result.isDone() && remaining.remove(best)) {
+                            inFlight++;
+                            permit = new Permit(best, limiter);
+                            continue;
+                        }
+                    }
+                    // 期间已被对冲请求使用或切片已结束，归还许可
+                    limiter.onError();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(new RuntimeException("语音识别被中断", e));
+                return;
+            }
+            synchronized (this) {
+                waiting = false;
+            }
+            send(permit, reason);
+        }
+
+        /**
+         * 按评分顺序不等待地尝试取得剩余服务商的许可，取得后将其从候选中移除
+         */
+        private Permit tryAcquireAny() {
+            for (int i = 0; i < remaining.size(); i++) {
+                ProviderStats stats = remaining.get(i);
+                AdaptiveRateLimiter limiter = limiterOf(stats);
+                if (limiter.tryAcquire()) {
+                    remaining.remove(i);
+                    inFlight++;
+                    return new Permit(stats, limiter);
+                }
+            }
+            return null;
+        }
+
+        private void send(Permit permit, String reason) {
+            ProviderStats stats = permit.stats();
+            if (!"路由".equals(reason)) {
+                logger.info("[routing] {}请求发往 {}: {}", reason, stats.name, audio.getFilename());
+            }
+            scheduleHedge(stats);
+
+            long start = System.nanoTime();
+            CompletableFuture<List<SubtitleSegment>> attempt;
+            try {
+                attempt = stats.service.transcribeChunkAsync(audio, language);
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) {
+                attempts.add(attempt);
+            }
+            attempt.whenComplete((segments, e) -> onComplete(stats, permit.limiter(), start, segments, e));
+        }
+
+        /**
+         * 首个请求发出后，超过其服务商延迟分位数仍未返回时向下一个有空闲额度的服务商发出对冲请求；
+         * 对冲只使用空闲额度，额度已满时放弃并退回对冲额度
+         */
+        private void scheduleHedge(ProviderStats stats) {
+            synchronized (this) {
+                if (!routingConfig.getHedgeEnabled() || hedgeScheduled) {
+                    return;
+                }
+                hedgeScheduled = true;
+            }
+            long delayMillis = stats.hedgeDelayMillis(routingConfig.getHedgePercentile(),
+                    routingConfig.getHedgeMinSamples(), routingConfig.getHedgeMinDelayMs());
+            CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+                if (!result.isDone() && tryAcquireHedge() && !launchNext("对冲", false)) {
+                    refundHedge();
+                }
+            });
+        }
+
+        private void onComplete(ProviderStats stats, AdaptiveRateLimiter limiter, long start,
+                                List<SubtitleSegment> segments, Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            synchronized (this) {
+                inFlight--;
+            }
+            if (cause == null) {
+                long latency = System.nanoTime() - start;
+                limiter.onSuccess(latency);
+                stats.recordSuccess(latency);
+                result.complete(segments);
+                return;
+            }
+            if (cause instanceof SttRateLimitedException rateLimited) {
+                limiter.onRateLimited(rateLimited.getRetryAfter());
+            } else {
+                limiter.onError();
+            }
+            if (result.isDone()) {
+                // 另一个请求已先返回，被取消的请求不计入统计
+                return;
+            }
+            stats.recordFailure(cause);
+            logger.warn("[routing] {} 识别切片失败: {}", stats.name, cause.getMessage());
+            synchronized (this) {
+                // 优先保留非限流错误；全部被限流时返回限流错误，由切片转写服务降速重试
+                if (error == null || (error instanceof SttRateLimitedException
+                        && !(cause instanceof SttRateLimitedException))) {
+                    error = cause;
+                }
+            }
+            if (!launchNext("故障转移", true)) {
+                synchronized (this) {
+                    failIfExhausted();
+                }
+            }
+        }
+
+        /**
+         * 没有在途请求、没有等待中的请求且已无可尝试的服务商时以记录的错误结束
+         */
+        private void failIfExhausted() {
+            if (inFlight == 0 && !waiting && remaining.isEmpty() && error != null) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * 已取得的服务商许可
+     */
+    private record Permit(ProviderStats stats, AdaptiveRateLimiter limiter) {
+    }
+
+    private AdaptiveRateLimiter limiterOf(ProviderStats stats) {
+        return chunkedTranscriptionService.getLimiter(stats.service.getCapabilities());
+    }
+
+    /**
+     * 单个服务商的近期延迟和错误统计
+     */
+    private static final class ProviderStats {
+
+        private final SttService service;
+        private final String name;
+
+        private final long[] latencies = new long[LATENCY_WINDOW];
+        private int samples;
+        private int next;
+        private double averageLatency;
+        private double errorRate;
+        private long coolDownUntil;
+
+        ProviderStats(SttService service) {
+            this.service = service;
+            this.name = service.getCapabilities().getProvider();
+        }
+
+        synchronized void recordSuccess(long latencyNanos) {
+            latencies[next] = latencyNanos;
+            next = (next + 1) % LATENCY_WINDOW;
+            samples = Math.min(samples + 1, LATENCY_WINDOW);
+            averageLatency = averageLatency == 0 ? latencyNanos
+                    : averageLatency + SMOOTHING * (latencyNanos - averageLatency);
+            errorRate -= SMOOTHING * errorRate;
+        }
+
+        synchronized void recordFailure(Throwable cause) {
+            errorRate += SMOOTHING * (1 - errorRate);
+            if (cause instanceof SttRateLimitedException rateLimited) {
+                Duration retryAfter = rateLimited.getRetryAfter() != null ? rateLimited.getRetryAfter()
+                        : Duration.ofSeconds(1);
+                coolDownUntil = System.nanoTime() + retryAfter.toNanos();
+            }
+        }
+
+        /**
+         * 路由评分，越小越优先：平均延迟按错误率放大，再加上按错误率折算的失败延迟，限流冷却中的服务商排在最后；
+         * 尚无样本的服务商评分为0，会先被尝试以获得统计
+         */
+        synchronized double score(long now) {
+            double score = averageLatency * (1 + ERROR_PENALTY * errorRate) + FAILURE_LATENCY_NANOS * errorRate;
+            return now - coolDownUntil < 0 ? Double.MAX_VALUE : score;
+        }
+
+        /**
+         * 触发对冲前的等待时间：近期延迟的指定分位数，不低于最短等待时间
+         */
+        synchronized long hedgeDelayMillis(double percentile, int minSamples, long minDelayMillis) {
+            if (samples < minSamples) {
+                return minDelayMillis;
+            }
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            int index = Math.min(samples - 1, (int) Math.ceil(percentile * samples) - 1);
+            return Math.max(minDelayMillis, TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(0, index)]));
+        }
+    }
+}
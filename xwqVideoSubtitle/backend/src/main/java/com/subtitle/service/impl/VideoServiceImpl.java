@@ -4,9 +4,14 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.subtitle.entity.Video;
 import com.subtitle.dto.VideoUploadDTO;
 import com.subtitle.mapper.VideoMapper;
+import com.subtitle.service.AudioFingerprintService;
+import com.subtitle.service.StageOutputService;
+import com.subtitle.service.SubtitleJobQueue;
 import com.subtitle.service.VideoService;
 import com.subtitle.utils.AudioExtractor;
+import com.subtitle.utils.MediaInfo;
 import com.subtitle.config.AppConfig;
+import com.subtitle.config.ClusterConfig;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -30,6 +35,18 @@ public class VideoServiceImpl implements VideoService {
     @Autowired
     private AppConfig appConfig;
 
+    @Autowired
+    private ClusterConfig clusterConfig;
+
+    @Autowired
+    private AudioFingerprintService audioFingerprintService;
+
+    @Autowired
+    private StageOutputService stageOutputService;
+
+    @Autowired
+    private SubtitleJobQueue subtitleJobQueue;
+
     @Override
     public Video uploadVideo(MultipartFile file, VideoUploadDTO uploadDTO, Long userId) {
         // 验证文件
@@ -68,14 +85,25 @@ public class VideoServiceImpl implements VideoService {
                      originalFilename.substring(0, originalFilename.lastIndexOf(".")));
         video.setFileName(originalFilename);
         video.setFilePath(targetPath.toString());
+        video.setOriginNode(clusterConfig.getNodeUrl());
         video.setFileSize(file.getSize());
         video.setFormat(extension.substring(1));
         video.setStatus(1); // 上传完成
         video.setProgress(100);
 
-        // 获取视频信息
-        double duration = AudioExtractor.getVideoDuration(targetPath.toString());
-        video.setDuration(String.format("%.2f", duration));
+        // 获取视频信息（一次探测，结果写入视频记录供后续流程使用）
+        MediaInfo mediaInfo = AudioExtractor.probe(targetPath.toString());
+        if (mediaInfo != null) {
+            video.setDuration(String.format("%.2f", mediaInfo.getDurationSeconds()));
+            video.setDurationSeconds(mediaInfo.getDurationSeconds());
+            video.setHasAudio(mediaInfo.isHasAudio());
+            video.setAudioCodec(mediaInfo.getAudioCodec());
+            video.setAudioSampleRate(mediaInfo.getAudioSampleRate());
+            video.setAudioChannels(mediaInfo.getAudioChannels());
+            video.setBitRate(mediaInfo.getBitRate());
+        } else {
+            video.setDuration(String.format("%.2f", 0.0));
+        }
 
         // 保存到数据库
         videoMapper.insert(video);
@@ -100,6 +128,9 @@ public class VideoServiceImpl implements VideoService {
     public void deleteVideo(Long id) {
         Video video = videoMapper.selectById(id);
         if (video != null) {
+            // 先取消视频的字幕任务，执行节点随后停止FFmpeg进程和在途的识别请求
+            subtitleJobQueue.cancelByVideo(id);
+
             // 删除物理文件
             try {
                 Files.deleteIfExists(Paths.get(video.getFilePath()));
@@ -109,6 +140,8 @@ public class VideoServiceImpl implements VideoService {
             }
 
             // 删除数据库记录
+            audioFingerprintService.deleteByVideo(id);
+            stageOutputService.deleteByVideo(id);
             videoMapper.deleteById(id);
         }
     }
@@ -1,26 +1,32 @@
 package com.subtitle.service.impl;
 
+import com.subtitle.config.ConditionalOnSttProvider;
 import com.subtitle.config.ZhipuSttConfig;
+import com.subtitle.service.ChunkResultStore;
+import com.subtitle.service.ChunkedTranscriptionService;
+import com.subtitle.service.SttCapabilities;
+import com.subtitle.service.SttHttpClient;
+import com.subtitle.service.SttRateLimitedException;
 import com.subtitle.service.SttService;
 import com.subtitle.entity.SubtitleSegment;
-import com.subtitle.utils.AudioExtractor;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.core.io.Resource;
 
 import java.io.InputStream;
-import java.io.File;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 /**
@@ -28,7 +34,7 @@ import java.util.function.Consumer;
  * 基于GLM-ASR模型实现语音转文字功能
  */
 @Service
-@ConditionalOnProperty(name = "app.stt.provider", havingValue = "zhipu")
+@ConditionalOnSttProvider("zhipu")
 public class ZhipuSttServiceImpl implements SttService {
 
     private static final Logger logger = LoggerFactory.getLogger(ZhipuSttServiceImpl.class);
@@ -39,133 +45,111 @@ public class ZhipuSttServiceImpl implements SttService {
     @Autowired
     private ObjectMapper objectMapper;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private ChunkedTranscriptionService chunkedTranscriptionService;
+
+    @Autowired
+    private SttHttpClient sttHttpClient;
 
     @Override
     public List<SubtitleSegment> transcribeFile(String audioPath, String language) {
+        return transcribeFile(audioPath, language, ChunkResultStore.NONE);
+    }
+
+    @Override
+    public List<SubtitleSegment> transcribeFile(String audioPath, String language, ChunkResultStore store) {
         logger.info("开始使用智谱AI GLM-ASR转写音频文件: {}", audioPath);
         logger.info("请求识别语言: {}", language);
-        List<SubtitleSegment> segments = new ArrayList<>();
-
-        try {
-            // 检查音频时长
-            double audioDuration = AudioExtractor.getAudioDuration(audioPath);
-            logger.info("音频时长: {} 秒", audioDuration);
-
-            // 智谱AI限制30秒，需要切片
-            final int MAX_DURATION = 25; // 留5秒余量
-            List<String> audioSegments;
-
-            if (audioDuration > MAX_DURATION) {
-                logger.info("音频时长超过{}秒，开始切片...", MAX_DURATION);
-                audioSegments = AudioExtractor.splitAudioFile(audioPath, MAX_DURATION);
-                logger.info("音频已切分为 {} 个片段", audioSegments.size());
-            } else {
-                logger.info("音频时长在限制内，无需切片");
-                audioSegments = new ArrayList<>();
-                audioSegments.add(audioPath);
-            }
-
-            // 依次识别每个片段
-            double timeOffset = 0;
-            for (int i = 0; i < audioSegments.size(); i++) {
-                String segmentPath = audioSegments.get(i);
-                logger.info("正在识别第 {}/{} 个片段: {}", i + 1, audioSegments.size(), segmentPath);
 
-                List<SubtitleSegment> segmentResult = transcribeSingleFile(segmentPath, language);
-
-                // 调整时间偏移
-                for (SubtitleSegment segment : segmentResult) {
-                    segment.setStartTime(segment.getStartTime() + timeOffset);
-                    segment.setEndTime(segment.getEndTime() + timeOffset);
-                    segments.add(segment);
-                }
-
-                // 更新时间偏移
-                double segmentDuration = AudioExtractor.getAudioDuration(segmentPath);
-                timeOffset += segmentDuration;
-
-                logger.info("第 {} 个片段识别完成，获得 {} 个字幕片段", i + 1, segmentResult.size());
-            }
-
-            logger.info("所有片段识别完成，共 {} 个字幕片段", segments.size());
-
-        } catch (Exception e) {
-            logger.error("调用智谱AI API时发生错误", e);
-        }
+        // 智谱AI单次请求限制30秒，由共享切片服务按能力描述切片并发识别；切片失败时抛出，不再以空结果掩盖
+        return chunkedTranscriptionService.transcribe(this, audioPath, language, store);
+    }
 
-        return segments;
+    @Override
+    public SttCapabilities getCapabilities() {
+        return new SttCapabilities()
+                .setProvider("zhipu")
+                .setModel(zhipuConfig.getModel())
+                .setMaxDurationSeconds(zhipuConfig.getMaxChunkDuration())
+                .setMaxBytes(25L * 1024 * 1024)
+                .setAcceptedCodecs(Set.of("wav"))
+                .setUploadCodec(zhipuConfig.getUploadFormat())
+                .setMaxConcurrency(zhipuConfig.getConcurrency())
+                .setMaxRequestsPerSecond(zhipuConfig.getRequestsPerSecond());
     }
 
     /**
-     * 转写单个音频文件
+     * 转写单个音频切片
      */
-    private List<SubtitleSegment> transcribeSingleFile(String audioPath, String language) {
-        List<SubtitleSegment> segments = new ArrayList<>();
+    @Override
+    public List<SubtitleSegment> transcribeChunk(Resource audio, String language) {
+        return transcribeChunkAsync(audio, language).join();
+    }
 
-        try {
-            // 验证文件是否存在
-            File audioFile = new File(audioPath);
-            if (!audioFile.exists()) {
-                logger.error("音频文件不存在: {}", audioPath);
-                return segments;
-            }
+    /**
+     * 异步转写单个音频切片，请求经共享HTTP客户端发送，失败时由切片转写服务重试
+     */
+    @Override
+    public CompletableFuture<List<SubtitleSegment>> transcribeChunkAsync(Resource audio, String language) {
+        // 验证音频是否存在
+        if (!audio.exists()) {
+            logger.error("音频文件不存在: {}", audio.getDescription());
+            return CompletableFuture.failedFuture(new RuntimeException("音频文件不存在: " + audio.getDescription()));
+        }
 
-            // 构建请求
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-            headers.setBearerAuth(zhipuConfig.getApiKey());
+        // 构建multipart表单字段
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("model", zhipuConfig.getModel());
+
+        // 设置语言
+        if ("auto".equalsIgnoreCase(language) || language == null || language.isEmpty()) {
+            // 自动检测语言 - 不传递language参数，让智谱AI自动检测
+            logger.info("启用自动语言检测模式");
+        } else {
+            // 使用指定的语言
+            String apiLanguage = convertLanguageCode(language);
+            fields.put("language", apiLanguage);
+            logger.info("使用指定语言代码: {} -> {}", language, apiLanguage);
+        }
 
-            // 构建multipart请求体
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", new FileSystemResource(audioFile));
-            body.add("model", zhipuConfig.getModel());
+        logger.debug("调用智谱AI API: {}", zhipuConfig.getEndpoint());
 
-            // 设置语言
-            if ("auto".equalsIgnoreCase(language) || language == null || language.isEmpty()) {
-                // 自动检测语言 - 不传递language参数，让智谱AI自动检测
-                logger.info("启用自动语言检测模式");
-                // 不添加language参数
-            } else {
-                // 使用指定的语言
-                String apiLanguage = convertLanguageCode(language);
-                body.add("language", apiLanguage);
-                logger.info("使用指定语言代码: {} -> {}", language, apiLanguage);
+        CompletableFuture<HttpResponse<String>> request = sttHttpClient.postMultipart(zhipuConfig.getEndpoint(),
+                zhipuConfig.getApiKey(), fields, "file", audio, Duration.ofMillis(zhipuConfig.getTimeout()));
+        return SttHttpClient.cancelWith(request, request.handle((response, e) -> {
+            if (e != null) {
+                logger.error("调用智谱AI API时发生错误: {}", audio.getDescription(), e);
+                throw new RuntimeException("语音识别失败: " + e.getMessage(), e);
             }
-
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-            logger.debug("调用智谱AI API: {}", zhipuConfig.getEndpoint());
-
-            // 发送请求
-            ResponseEntity<String> response = restTemplate.exchange(
-                    zhipuConfig.getEndpoint(),
-                    HttpMethod.POST,
-                    requestEntity,
-                    String.class
-            );
-
             // 处理响应
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            if (response.statusCode() == HttpStatus.OK.value() && response.body() != null) {
                 logger.info("智谱AI转写成功");
-                segments = parseTranscriptionResponse(response.getBody());
+                List<SubtitleSegment> segments = parseTranscriptionResponse(response.body());
                 logger.info("解析到 {} 个字幕片段", segments.size());
-            } else {
-                logger.error("智谱AI转写失败: HTTP {}", response.getStatusCode());
+                return segments;
             }
-
-        } catch (Exception e) {
-            logger.error("转写单个音频文件失败: " + audioPath, e);
-        }
-
-        return segments;
+            if (response.statusCode() == HttpStatus.TOO_MANY_REQUESTS.value()
+                    || response.statusCode() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                throw new SttRateLimitedException("智谱AI限流: HTTP " + response.statusCode(),
+                        SttRateLimitedException.parseRetryAfter(
+                                response.headers().firstValue("Retry-After").orElse(null)));
+            }
+            logger.error("智谱AI转写失败: HTTP {}, {}", response.statusCode(), response.body());
+            throw new RuntimeException("语音识别失败: HTTP " + response.statusCode());
+        }));
     }
 
     @Override
     public void transcribeStream(InputStream audioStream, String language, Consumer<SubtitleSegment> callback) {
-        logger.info("开始使用智谱AI实时转写音频流");
-        // TODO: 实现实时流式转写(智谱AI可能需要通过WebSocket实现)
-        logger.warn("智谱AI实时流式转写功能暂未实现");
+        transcribeStream(audioStream, language, ChunkResultStore.NONE, callback);
+    }
+
+    @Override
+    public void transcribeStream(InputStream audioStream, String language, ChunkResultStore store,
+                                 Consumer<SubtitleSegment> callback) {
+        logger.info("开始使用智谱AI流式转写音频流");
+        logger.info("请求识别语言: {}", language);
+        chunkedTranscriptionService.transcribeStream(this, audioStream, language, store, callback);
     }
 
     /**
@@ -0,0 +1,41 @@
+package com.subtitle.utils;
+
+/**
+ * 音频切片描述
+ * @param index 切片序号（从0开始）
+ * @param startFrame 起始帧（含）
+ * @param endFrame 结束帧（不含）
+ * @param sampleRate 采样率
+ * @param path 切片文件路径，未落盘时为null
+ */
+public record AudioChunk(int index, long startFrame, long endFrame, int sampleRate, String path) {
+
+    /**
+     * 切片在原音频中的起始时间（秒）
+     */
+    public double getStartTime() {
+        return startFrame / (double) sampleRate;
+    }
+
+    /**
+     * 切片在原音频中的结束时间（秒）
+     */
+    public double getEndTime() {
+        return endFrame / (double) sampleRate;
+    }
+
+    /**
+     * 切片时长（秒）
+     */
+    public double getDuration() {
+        return (endFrame - startFrame) / (double) sampleRate;
+    }
+
+    public long getFrameCount() {
+        return endFrame - startFrame;
+    }
+
+    public AudioChunk withPath(String chunkPath) {
+        return new AudioChunk(index, startFrame, endFrame, sampleRate, chunkPath);
+    }
+}
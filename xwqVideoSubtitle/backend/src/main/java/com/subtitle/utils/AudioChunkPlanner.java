@@ -0,0 +1,117 @@
+package com.subtitle.utils;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于语音活动检测的切片规划
+ * 在不超过单次请求最大时长的前提下，把切点放在静音处，并跳过不含语音的区间
+ */
+public final class AudioChunkPlanner {
+
+    /**
+     * 两段语音间静音超过该时长（秒）时不再合并到同一切片，避免上传长静音
+     */
+    private static final double MAX_MERGE_GAP_SECONDS = 2.0;
+
+    private AudioChunkPlanner() {
+    }
+
+    /**
+     * 规划切片
+     * @param pcm 16bit单声道采样
+     * @param sampleRate 采样率
+     * @param maxChunkSeconds 单个切片最大时长（秒）
+     * @return 按时间顺序排列的切片，不含语音的区间不会出现在结果中
+     */
+    public static List<AudioChunk> plan(ShortBuffer pcm, int sampleRate, double maxChunkSeconds) {
+        VoiceActivityDetector.Analysis analysis = VoiceActivityDetector.analyze(pcm, sampleRate);
+        int maxFrames = Math.max(1, (int) (maxChunkSeconds * 1000 / VoiceActivityDetector.FRAME_MILLIS));
+        int maxGapFrames = (int) (MAX_MERGE_GAP_SECONDS * 1000 / VoiceActivityDetector.FRAME_MILLIS);
+
+        // 1. 找出连续语音区间 [start, end)
+        List<int[]> regions = new ArrayList<>();
+        int frameCount = analysis.getFrameCount();
+        int i = 0;
+        while (i < frameCount) {
+            if (!analysis.isSpeech(i)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < frameCount && analysis.isSpeech(i)) {
+                i++;
+            }
+            regions.add(new int[]{start, i});
+        }
+
+        // 2. 合并相邻的短语音区间，超长区间在能量最低处切开
+        List<int[]> spans = new ArrayList<>();
+        int[] current = null;
+        for (int[] region : regions) {
+            if (current != null
+                    && region[1] - current[0] <= maxFrames
+                    && region[0] - current[1] <= maxGapFrames) {
+                current[1] = region[1];
+                continue;
+            }
+            if (current != null) {
+                splitSpan(analysis, current, maxFrames, spans);
+            }
+            current = new int[]{region[0], region[1]};
+        }
+        if (current != null) {
+            splitSpan(analysis, current, maxFrames, spans);
+        }
+
+        // 3. 换算为采样帧
+        List<AudioChunk> chunks = new ArrayList<>(spans.size());
+        long frameSize = analysis.getFrameSize();
+        for (int[] span : spans) {
+            long startSample = span[0] * frameSize;
+            long endSample = Math.min(span[1] * frameSize, analysis.getSampleCount());
+            chunks.add(new AudioChunk(chunks.size(), startSample, endSample, sampleRate, null));
+        }
+        return chunks;
+    }
+
+    /**
+     * 按固定时长规划切片（无法做语音检测时使用）
+     */
+    public static List<AudioChunk> planFixed(long totalFrames, int sampleRate, double maxChunkSeconds) {
+        List<AudioChunk> chunks = new ArrayList<>();
+        long framesPerChunk = Math.max(1, (long) (maxChunkSeconds * sampleRate));
+        for (long start = 0; start < totalFrames; start += framesPerChunk) {
+            chunks.add(new AudioChunk(chunks.size(), start, Math.min(start + framesPerChunk, totalFrames), sampleRate, null));
+        }
+        return chunks;
+    }
+
+    /**
+     * 将超过最大长度的区间在后半窗口内能量最低的帧处切开
+     */
+    private static void splitSpan(VoiceActivityDetector.Analysis analysis, int[] span, int maxFrames, List<int[]> out) {
+        int start = span[0];
+        int end = span[1];
+        while (end - start > maxFrames) {
+            int windowStart = start + maxFrames / 2;
+            int windowEnd = start + maxFrames;
+            int cut = windowEnd;
+            double minEnergy = Double.MAX_VALUE;
+            for (int frame = windowEnd - 1; frame >= windowStart; frame--) {
+                double energy = analysis.getEnergyDb(frame);
+                if (energy < minEnergy) {
+                    minEnergy = energy;
+                    cut = frame;
+                }
+            }
+            if (cut <= start) {
+                cut = windowEnd;
+            }
+            out.add(new int[]{start, cut});
+            start = cut;
+        }
+        out.add(new int[]{start, end});
+    }
+}
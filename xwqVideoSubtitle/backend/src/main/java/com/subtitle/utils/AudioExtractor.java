@@ -8,15 +8,27 @@ import org.bytedeco.javacv.FrameRecorder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 public class AudioExtractor {
 
     private static final Logger logger = LoggerFactory.getLogger(AudioExtractor.class);
 
+    /**
+     * FFmpeg命令行是否可用，首次检查后缓存
+     */
+    private static volatile Boolean ffmpegAvailable;
+
     /**
      * 从视频中提取音频（使用命令行FFmpeg，更稳定）
      * @param videoPath 视频文件路径
@@ -52,7 +64,7 @@ public class AudioExtractor {
             logger.info("执行命令: ffmpeg -i {} -vn -acodec pcm_s16le -ar 16000 -ac 1 {}",
                 videoPath, audioPath);
 
-            Process process = pb.start();
+            Process process = TaskCancellation.track(pb.start());
 
             // 读取输出
             java.io.BufferedReader reader = new java.io.BufferedReader(
@@ -84,6 +96,32 @@ public class AudioExtractor {
         }
     }
 
+    /**
+     * 启动FFmpeg将视频音轨解码为16kHz单声道s16le PCM写到标准输出，不生成中间音频文件
+     * 调用方负责读完 process.getInputStream() 并检查退出码
+     * @param videoPath 视频文件路径
+     * @return FFmpeg进程
+     */
+    public static Process startPcmStream(String videoPath) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(
+            "ffmpeg",
+            "-nostdin",
+            "-loglevel", "error",
+            "-i", videoPath,  // 输入文件
+            "-vn",  // 不包含视频
+            "-f", "s16le",  // 裸PCM输出
+            "-acodec", "pcm_s16le",
+            "-ar", "16000",  // 采样率
+            "-ac", "1",  // 单声道
+            "pipe:1"
+        );
+        // 标准错误直接丢弃，避免缓冲区写满阻塞进程
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        logger.info("执行命令: ffmpeg -i {} -vn -f s16le -acodec pcm_s16le -ar 16000 -ac 1 pipe:1", videoPath);
+        return TaskCancellation.track(pb.start());
+    }
+
     /**
      * 从视频中提取音频
      * @param videoPath 视频文件路径
@@ -159,6 +197,10 @@ public class AudioExtractor {
                 Frame frame;
                 int frameCount = 0;
                 while ((frame = grabber.grab()) != null) {
+                    if (TaskCancellation.isCurrentCancelled()) {
+                        logger.info("任务已取消，停止提取音频: {}", videoPath);
+                        return false;
+                    }
                     if (frame.samples != null) {
                         recorder.record(frame);
                         frameCount++;
@@ -193,11 +235,27 @@ public class AudioExtractor {
     }
 
     /**
-     * 检查系统是否安装了FFmpeg
+     * 检查系统是否安装了FFmpeg（结果在进程生命周期内缓存，只启动一次 ffmpeg -version）
      */
-    private static boolean isFFmpegAvailable() {
+    public static boolean isFFmpegAvailable() {
+        Boolean available = ffmpegAvailable;
+        if (available == null) {
+            synchronized (AudioExtractor.class) {
+                available = ffmpegAvailable;
+                if (available == null) {
+                    available = detectFFmpeg();
+                    ffmpegAvailable = available;
+                }
+            }
+        }
+        return available;
+    }
+
+    private static boolean detectFFmpeg() {
         try {
             ProcessBuilder pb = new ProcessBuilder("ffmpeg", "-version");
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
             Process process = pb.start();
             int exitCode = process.waitFor();
             return exitCode == 0;
@@ -208,37 +266,50 @@ public class AudioExtractor {
     }
 
     /**
-     * 获取视频信息
+     * 探测媒体文件信息，只打开一次容器
      * @param videoPath 视频文件路径
-     * @return 视频时长（秒）
+     * @return 探测结果，失败时返回null
      */
-    public static double getVideoDuration(String videoPath) {
+    public static MediaInfo probe(String videoPath) {
         try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath)) {
             grabber.start();
-            double duration = grabber.getLengthInTime() / (double) 1000000; // 转换为秒
+            MediaInfo info = new MediaInfo()
+                    .setFormat(grabber.getFormat())
+                    .setDurationSeconds(grabber.getLengthInTime() / (double) 1000000) // 转换为秒
+                    .setBitRate(Math.max(0, grabber.getFormatContext().bit_rate()))
+                    .setHasAudio(grabber.getAudioStream() != -1);
+            if (info.isHasAudio()) {
+                info.setAudioCodec(grabber.getAudioCodecName())
+                        .setAudioSampleRate(grabber.getSampleRate())
+                        .setAudioChannels(grabber.getAudioChannels());
+            }
             grabber.stop();
-            return duration;
+            logger.info("媒体探测完成: {} -> {}", videoPath, info);
+            return info;
         } catch (IOException e) {
-            logger.error("获取视频时长失败", e);
-            return 0;
+            logger.error("探测媒体信息失败: " + videoPath, e);
+            return null;
         }
     }
 
+    /**
+     * 获取视频信息
+     * @param videoPath 视频文件路径
+     * @return 视频时长（秒）
+     */
+    public static double getVideoDuration(String videoPath) {
+        MediaInfo info = probe(videoPath);
+        return info != null ? info.getDurationSeconds() : 0;
+    }
+
     /**
      * 检查视频是否包含音频
      * @param videoPath 视频文件路径
      * @return 是否包含音频
      */
     public static boolean hasAudio(String videoPath) {
-        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath)) {
-            grabber.start();
-            boolean hasAudio = grabber.getAudioStream() != -1;
-            grabber.stop();
-            return hasAudio;
-        } catch (IOException e) {
-            logger.error("检查音频失败", e);
-            return false;
-        }
+        MediaInfo info = probe(videoPath);
+        return info != null && info.isHasAudio();
     }
 
     /**
@@ -247,21 +318,27 @@ public class AudioExtractor {
      * @return 格式名称
      */
     public static String getVideoFormat(String videoPath) {
-        try (FFmpegFrameGrabber grabber = new FFmpegFrameGrabber(videoPath)) {
-            grabber.start();
-            String format = grabber.getFormat();
-            grabber.stop();
-            return format;
-        } catch (IOException e) {
-            logger.error("获取视频格式失败", e);
-            return "unknown";
-        }
+        MediaInfo info = probe(videoPath);
+        return info != null ? info.getFormat() : "unknown";
     }
 
     /**
      * 获取音频时长（秒）
+     * PCM WAV直接解析文件头计算，其他格式回退到ffprobe
      */
     public static double getAudioDuration(String audioPath) {
+        try {
+            return WavFile.readDuration(audioPath);
+        } catch (IOException e) {
+            logger.debug("无法按PCM WAV解析音频头，改用ffprobe: {}", e.getMessage());
+        }
+        return probeAudioDuration(audioPath);
+    }
+
+    /**
+     * 使用ffprobe获取音频时长（秒）
+     */
+    private static double probeAudioDuration(String audioPath) {
         try {
             ProcessBuilder pb = new ProcessBuilder(
                 "ffprobe",
@@ -288,6 +365,133 @@ public class AudioExtractor {
         return 0;
     }
 
+    /**
+     * 确保音频为可直接映射的PCM WAV，其他格式（MP3、AAC、浮点WAV等）先用ffmpeg转为16kHz单声道PCM WAV
+     * @param audioPath 音频文件路径
+     * @return 可直接读取的PCM WAV路径；发生转换时为同目录下的临时文件，由调用方删除
+     * @throws IOException ffmpeg转换失败
+     */
+    public static String toPcmWav(String audioPath) throws IOException {
+        try {
+            WavFile.readDuration(audioPath);
+            return audioPath;
+        } catch (IOException e) {
+            logger.info("音频不是PCM WAV，使用ffmpeg转换: {} ({})", audioPath, e.getMessage());
+        }
+
+        File audioFile = new File(audioPath);
+        File parentDir = audioFile.getAbsoluteFile().getParentFile();
+        String baseName = audioFile.getName().replaceAll("\\.[^.]*$", "");
+        Path target = Files.createTempFile(parentDir.toPath(), baseName + "_pcm", ".wav");
+        if (!extractAudioWithCommandLine(audioPath, target.toString())) {
+            Files.deleteIfExists(target);
+            throw new IOException("ffmpeg转换音频失败: " + audioPath);
+        }
+        return target.toString();
+    }
+
+    /**
+     * 按语音活动切片：切点落在静音处，跳过无语音区间
+     * @param audioPath PCM WAV文件路径，其他格式需先经 {@link #toPcmWav} 转换
+     * @param maxChunkSeconds 单个切片最大时长（秒）
+     * @param codec 切片上传编码（wav 或 flac）
+     * @param maxBytes 单个切片最大字节数，0表示不限制；编码后超限的切片会对半再分
+     * @return 已写出文件的切片列表，时间偏移取切片的起始时间
+     */
+    public static List<AudioChunk> splitAudioBySpeech(String audioPath, double maxChunkSeconds,
+                                                      String codec, long maxBytes) throws IOException {
+        logger.info("开始按语音活动切片: {}, 每片最长{}秒, 编码: {}", audioPath, maxChunkSeconds, codec);
+
+        try (WavFile wav = WavFile.open(audioPath)) {
+            List<AudioChunk> plan;
+            if (isMono16(wav)) {
+                plan = AudioChunkPlanner.plan(wav.slice(0, wav.getFrameCount()).asShortBuffer(),
+                        wav.getSampleRate(), maxChunkSeconds);
+            } else {
+                logger.warn("音频不是16bit单声道，按固定时长切片");
+                plan = AudioChunkPlanner.planFixed(wav.getFrameCount(), wav.getSampleRate(), maxChunkSeconds);
+            }
+
+            double speechSeconds = plan.stream().mapToDouble(AudioChunk::getDuration).sum();
+            logger.info("音频总时长: {} 秒，语音切片 {} 个，共 {} 秒",
+                    wav.getDuration(), plan.size(), String.format("%.1f", speechSeconds));
+
+            File audioFile = new File(audioPath);
+            String baseName = audioFile.getName().replace(".wav", "");
+            String parentDir = audioFile.getParent();
+
+            List<AudioChunk> chunks = new ArrayList<>(plan.size());
+            Deque<AudioChunk> pending = new ArrayDeque<>(plan);
+            long uploadBytes = 0;
+            while (!pending.isEmpty()) {
+                AudioChunk chunk = pending.pollFirst();
+                String chunkPath = parentDir + File.separator + baseName + "_part" + (chunks.size() + 1)
+                        + "." + resolveCodec(wav, codec);
+                long size = encodeChunk(wav, chunk.startFrame(), chunk.getFrameCount(), codec, Paths.get(chunkPath));
+
+                if (maxBytes > 0 && size > maxBytes && chunk.getFrameCount() > 1) {
+                    // 编码后仍超出字节上限，对半切开后重新编码
+                    long middle = chunk.startFrame() + chunk.getFrameCount() / 2;
+                    pending.addFirst(new AudioChunk(0, middle, chunk.endFrame(), chunk.sampleRate(), null));
+                    pending.addFirst(new AudioChunk(0, chunk.startFrame(), middle, chunk.sampleRate(), null));
+                    logger.info("切片编码后 {} bytes 超出上限 {}，对半再分", size, maxBytes);
+                    continue;
+                }
+                uploadBytes += size;
+                chunks.add(new AudioChunk(chunks.size(), chunk.startFrame(), chunk.endFrame(), chunk.sampleRate(), chunkPath));
+            }
+            logger.info("切片写出完成，共 {} 个，上传总量 {} bytes（原始PCM {} bytes）",
+                    chunks.size(), uploadBytes, wav.getDataSize());
+            return chunks;
+        }
+    }
+
+    /**
+     * 将整段PCM WAV编码为指定格式
+     * @return 编码后的文件路径，编码为wav时直接返回原路径
+     */
+    public static String encodeAudio(String audioPath, String codec) throws IOException {
+        try (WavFile wav = WavFile.open(audioPath)) {
+            String resolved = resolveCodec(wav, codec);
+            if ("wav".equals(resolved)) {
+                return audioPath;
+            }
+            String encodedPath = audioPath.replaceAll("\\.wav$", "") + "_full." + resolved;
+            long size = encodeChunk(wav, 0, wav.getFrameCount(), resolved, Paths.get(encodedPath));
+            logger.info("音频编码完成: {} -> {}, {} bytes -> {} bytes", audioPath, encodedPath,
+                    WavFile.HEADER_SIZE + wav.getDataSize(), size);
+            return encodedPath;
+        }
+    }
+
+    /**
+     * 从映射的PCM中直接编码一段音频写入文件
+     * @return 写出的文件字节数
+     */
+    private static long encodeChunk(WavFile wav, long startFrame, long frameCount, String codec, Path target) throws IOException {
+        if ("flac".equals(resolveCodec(wav, codec))) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024)) {
+                FlacEncoder.encode(wav.slice(startFrame, frameCount).asShortBuffer(), wav.getSampleRate(), out);
+            }
+            return Files.size(target);
+        }
+        return WavFile.HEADER_SIZE + wav.writeChunk(startFrame, frameCount, target);
+    }
+
+    /**
+     * FLAC编码仅支持16bit单声道，其他情况退回WAV
+     */
+    private static String resolveCodec(WavFile wav, String codec) {
+        if ("flac".equalsIgnoreCase(codec) && isMono16(wav)) {
+            return "flac";
+        }
+        return "wav";
+    }
+
+    private static boolean isMono16(WavFile wav) {
+        return wav.getChannels() == 1 && wav.getBitsPerSample() == 16;
+    }
+
     /**
      * 将音频文件切片为多个片段
      * @param audioPath 原始音频文件路径
@@ -296,11 +500,60 @@ public class AudioExtractor {
      */
     public static List<String> splitAudioFile(String audioPath, int segmentDuration) {
         logger.info("开始切片音频文件: {}, 每片{}秒", audioPath, segmentDuration);
+
+        try (WavFile wav = WavFile.open(audioPath)) {
+            return splitWavFile(wav, audioPath, segmentDuration);
+        } catch (IOException e) {
+            logger.warn("无法按PCM WAV切片，改用ffmpeg: {}", e.getMessage());
+        }
+        return splitAudioFileWithFFmpeg(audioPath, segmentDuration);
+    }
+
+    /**
+     * 按字节偏移切分PCM WAV，每个切片写入一次，不启动外部进程
+     */
+    private static List<String> splitWavFile(WavFile wav, String audioPath, int segmentDuration) throws IOException {
+        List<String> segments = new ArrayList<>();
+        double totalDuration = wav.getDuration();
+        logger.info("音频总时长: {} 秒", totalDuration);
+
+        if (totalDuration <= segmentDuration) {
+            logger.info("音频时长小于{}秒，无需切片", segmentDuration);
+            segments.add(audioPath);
+            return segments;
+        }
+
+        long framesPerSegment = (long) segmentDuration * wav.getSampleRate();
+        int segmentCount = (int) ((wav.getFrameCount() + framesPerSegment - 1) / framesPerSegment);
+        logger.info("需要切分为 {} 个片段", segmentCount);
+
+        File audioFile = new File(audioPath);
+        String baseName = audioFile.getName().replace(".wav", "");
+        String parentDir = audioFile.getParent();
+
+        for (int i = 0; i < segmentCount; i++) {
+            long startFrame = i * framesPerSegment;
+            String segmentPath = parentDir + File.separator + baseName + "_part" + (i + 1) + ".wav";
+            wav.writeChunk(startFrame, framesPerSegment, Paths.get(segmentPath));
+            segments.add(segmentPath);
+            logger.debug("切片 {} 创建成功: {} ({}-{}秒)", i + 1, segmentPath,
+                    startFrame / (double) wav.getSampleRate(),
+                    Math.min(startFrame + framesPerSegment, wav.getFrameCount()) / (double) wav.getSampleRate());
+        }
+
+        logger.info("音频切片完成，共 {} 个片段", segments.size());
+        return segments;
+    }
+
+    /**
+     * 使用ffmpeg切片（非PCM WAV输入时的回退方案）
+     */
+    private static List<String> splitAudioFileWithFFmpeg(String audioPath, int segmentDuration) {
         List<String> segments = new ArrayList<>();
 
         try {
             // 获取音频总时长
-            double totalDuration = getAudioDuration(audioPath);
+            double totalDuration = probeAudioDuration(audioPath);
             logger.info("音频总时长: {} 秒", totalDuration);
 
             if (totalDuration <= segmentDuration) {
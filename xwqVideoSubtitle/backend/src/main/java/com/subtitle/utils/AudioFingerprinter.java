@@ -0,0 +1,281 @@
+package com.subtitle.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 基于频谱峰值对（landmark）的音频指纹
+ * 对16kHz单声道PCM做短时傅里叶变换，在若干频带内挑选时间邻域内的能量峰值，
+ * 再把每个峰值（锚点）与其后不远处的两个峰值组成三元组，以 (锚点频率, 频率1, 时间差1, 频率2, 时间差2) 作为64位哈希，
+ * 比两两配对的哈希多出一组频率和时间差，不同内容之间的碰撞大幅减少。
+ * 哈希只依赖峰值的相对位置，对重新编码、码率变化和首尾裁剪不敏感；匹配时同一偏移上一致的哈希数量即相似度
+ */
+public final class AudioFingerprinter {
+
+    /**
+     * 输入采样率（与 AudioExtractor 的PCM输出一致）
+     */
+    public static final int SAMPLE_RATE = 16000;
+
+    private static final int FFT_SIZE = 1024;
+
+    private static final int HOP_SIZE = 512;
+
+    /**
+     * 指纹帧长（秒），帧号乘以该值即时间
+     */
+    public static final double FRAME_SECONDS = HOP_SIZE / (double) SAMPLE_RATE;
+
+    /**
+     * 峰值频带边界（Hz），每个频带独立选峰，避免低频能量淹没高频特征
+     */
+    private static final int[] BAND_EDGES_HZ = {250, 520, 1000, 2000, 4000};
+
+    /**
+     * 峰值需是前后该帧数内同频带的最大值（约160ms）
+     */
+    private static final int PEAK_NEIGHBORHOOD = 5;
+
+    /**
+     * 峰值最低能量（dB，约-70dBFS的单频信号），低于该值视为静音
+     */
+    private static final double MIN_PEAK_DB = 30.0;
+
+    /**
+     * 每个锚点最多选取的后续峰值数，两两组合成三元组（3个峰值对应3个哈希）
+     */
+    private static final int FAN_OUT = 3;
+
+    /**
+     * 配对峰值与锚点的最大时间差（帧），哈希中占8位
+     */
+    private static final int MAX_DELTA_FRAMES = 255;
+
+    /**
+     * 哈希中频点占的位数（FFT_SIZE/2 个频点）
+     */
+    private static final int BIN_BITS = 9;
+
+    private static final int DELTA_BITS = 8;
+
+    private static final double[] HANN = new double[FFT_SIZE];
+
+    static {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            HANN[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (FFT_SIZE - 1));
+        }
+    }
+
+    private AudioFingerprinter() {
+    }
+
+    /**
+     * 音频指纹：第 i 个哈希的锚点峰值位于第 frames[i] 帧
+     */
+    public record Fingerprint(long[] hashes, int[] frames) {
+        public int size() {
+            return hashes.length;
+        }
+    }
+
+    /**
+     * 读取整个PCM流并计算指纹
+     * @param pcmStream 16kHz单声道16bit小端裸PCM流
+     */
+    public static Fingerprint compute(InputStream pcmStream) throws IOException {
+        int bands = BAND_EDGES_HZ.length - 1;
+        int[] bandStart = new int[bands];
+        int[] bandEnd = new int[bands];
+        for (int b = 0; b < bands; b++) {
+            bandStart[b] = BAND_EDGES_HZ[b] * FFT_SIZE / SAMPLE_RATE;
+            bandEnd[b] = BAND_EDGES_HZ[b + 1] * FFT_SIZE / SAMPLE_RATE;
+        }
+
+        // 每帧每个频带的最大能量及其频点
+        int capacity = 4096;
+        int[] peakBins = new int[capacity * bands];
+        float[] peakDb = new float[capacity * bands];
+        int frameCount = 0;
+
+        double[] samples = new double[FFT_SIZE];
+        double[] re = new double[FFT_SIZE];
+        double[] im = new double[FFT_SIZE];
+        int filled = 0;
+        byte[] buffer = new byte[64 * 1024];
+        // 小端低字节，读取块边界可能落在一个采样中间
+        int low = -1;
+        int read;
+        while ((read = pcmStream.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                if (low < 0) {
+                    low = buffer[i] & 0xFF;
+                    continue;
+                }
+                samples[filled++] = (short) ((buffer[i] << 8) | low);
+                low = -1;
+                if (filled == FFT_SIZE) {
+                    if (frameCount == capacity) {
+                        capacity *= 2;
+                        peakBins = Arrays.copyOf(peakBins, capacity * bands);
+                        peakDb = Arrays.copyOf(peakDb, capacity * bands);
+                    }
+                    analyzeFrame(samples, re, im, bandStart, bandEnd, peakBins, peakDb, frameCount * bands);
+                    frameCount++;
+                    System.arraycopy(samples, HOP_SIZE, samples, 0, FFT_SIZE - HOP_SIZE);
+                    filled = FFT_SIZE - HOP_SIZE;
+                }
+            }
+        }
+
+        return buildLandmarks(peakBins, peakDb, frameCount, bands);
+    }
+
+    /**
+     * 加窗FFT后记录每个频带的最大能量频点
+     */
+    private static void analyzeFrame(double[] samples, double[] re, double[] im, int[] bandStart, int[] bandEnd,
+                                     int[] peakBins, float[] peakDb, int offset) {
+        for (int i = 0; i < FFT_SIZE; i++) {
+            re[i] = samples[i] * HANN[i];
+            im[i] = 0;
+        }
+        fft(re, im);
+        for (int b = 0; b < bandStart.length; b++) {
+            int bestBin = bandStart[b];
+            double bestPower = -1;
+            for (int k = bandStart[b]; k < bandEnd[b]; k++) {
+                double power = re[k] * re[k] + im[k] * im[k];
+                if (power > bestPower) {
+                    bestPower = power;
+                    bestBin = k;
+                }
+            }
+            peakBins[offset + b] = bestBin;
+            peakDb[offset + b] = (float) (10 * Math.log10(bestPower / FFT_SIZE + 1e-10));
+        }
+    }
+
+    /**
+     * 选出时间邻域内的峰值并两两配对生成哈希
+     */
+    private static Fingerprint buildLandmarks(int[] peakBins, float[] peakDb, int frameCount, int bands) {
+        // 峰值按帧号递增排列：peakFrame / peakBin
+        int[] peakFrame = new int[frameCount];
+        int[] peakBin = new int[frameCount];
+        int peaks = 0;
+        for (int t = 0; t < frameCount; t++) {
+            for (int b = 0; b < bands; b++) {
+                float db = peakDb[t * bands + b];
+                if (db < MIN_PEAK_DB || !isLocalMaximum(peakDb, frameCount, bands, t, b, db)) {
+                    continue;
+                }
+                if (peaks == peakFrame.length) {
+                    peakFrame = Arrays.copyOf(peakFrame, Math.max(16, peaks * 2));
+                    peakBin = Arrays.copyOf(peakBin, Math.max(16, peaks * 2));
+                }
+                peakFrame[peaks] = t;
+                peakBin[peaks] = peakBins[t * bands + b];
+                peaks++;
+            }
+        }
+
+        int triplets = FAN_OUT * (FAN_OUT - 1) / 2;
+        long[] hashes = new long[peaks * triplets];
+        int[] frames = new int[peaks * triplets];
+        int[] targets = new int[FAN_OUT];
+        int count = 0;
+        for (int i = 0; i < peaks; i++) {
+            int paired = 0;
+            for (int j = i + 1; j < peaks && paired < FAN_OUT; j++) {
+                int delta = peakFrame[j] - peakFrame[i];
+                if (delta == 0) {
+                    continue;
+                }
+                if (delta > MAX_DELTA_FRAMES) {
+                    break;
+                }
+                targets[paired++] = j;
+            }
+            for (int a = 0; a < paired; a++) {
+                for (int b = a + 1; b < paired; b++) {
+                    hashes[count] = hash(peakBin[i], peakBin[targets[a]], peakFrame[targets[a]] - peakFrame[i],
+                            peakBin[targets[b]], peakFrame[targets[b]] - peakFrame[i]);
+                    frames[count] = peakFrame[i];
+                    count++;
+                }
+            }
+        }
+        return new Fingerprint(Arrays.copyOf(hashes, count), Arrays.copyOf(frames, count));
+    }
+
+    /**
+     * 锚点频点(9位) | 频点1(9位) | 时间差1(8位) | 频点2(9位) | 时间差2(8位)，共43位
+     */
+    private static long hash(int anchorBin, int bin1, int delta1, int bin2, int delta2) {
+        long hash = anchorBin;
+        hash = (hash << BIN_BITS) | bin1;
+        hash = (hash << DELTA_BITS) | delta1;
+        hash = (hash << BIN_BITS) | bin2;
+        return (hash << DELTA_BITS) | delta2;
+    }
+
+    /**
+     * 是否为前后 PEAK_NEIGHBORHOOD 帧内同频带的最大值，相等时取最早的一帧
+     */
+    private static boolean isLocalMaximum(float[] peakDb, int frameCount, int bands, int t, int b, float db) {
+        int from = Math.max(0, t - PEAK_NEIGHBORHOOD);
+        int to = Math.min(frameCount - 1, t + PEAK_NEIGHBORHOOD);
+        for (int u = from; u <= to; u++) {
+            float other = peakDb[u * bands + b];
+            if (other > db || (other == db && u < t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 原地基2迭代FFT
+     */
+    private static void fft(double[] re, double[] im) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double tr = re[i];
+                re[i] = re[j];
+                re[j] = tr;
+                double ti = im[i];
+                im[i] = im[j];
+                im[j] = ti;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double angle = -2 * Math.PI / len;
+            double wRe = Math.cos(angle);
+            double wIm = Math.sin(angle);
+            for (int i = 0; i < n; i += len) {
+                double curRe = 1;
+                double curIm = 0;
+                for (int k = 0; k < len / 2; k++) {
+                    int a = i + k;
+                    int b = a + len / 2;
+                    double vRe = re[b] * curRe - im[b] * curIm;
+                    double vIm = re[b] * curIm + im[b] * curRe;
+                    re[b] = re[a] - vRe;
+                    im[b] = im[a] - vIm;
+                    re[a] += vRe;
+                    im[a] += vIm;
+                    double nextRe = curRe * wRe - curIm * wIm;
+                    curIm = curRe * wIm + curIm * wRe;
+                    curRe = nextRe;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.subtitle.utils;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 文件下载工具类
+ * 文件内容不读入内存：未压缩时优先交给Tomcat sendfile，否则用 FileChannel.transferTo 写出；
+ * 支持 ETag/If-None-Match 协商缓存、单区间 Range 断点续传和 gzip 压缩传输。
+ * 内存中的内容与边生成边写出的内容使用相同的响应头和协商规则
+ */
+public class FileDownloadUtils {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * 小于该大小的文件不压缩，gzip头和压缩开销抵消不了节省的流量
+     */
+    private static final long MIN_GZIP_SIZE = 1024;
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private FileDownloadUtils() {
+    }
+
+    /**
+     * 以附件形式发送文件
+     * @param file 文件
+     * @param contentType Content-Type
+     * @param downloadName 下载文件名
+     */
+    public static void send(File file, String contentType, String downloadName,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        Range range = prepare(length, etag, lastModified, contentType, downloadName, request, response);
+        if (range == null) {
+            return;
+        }
+        if (range.gzip()) {
+            try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE)) {
+                transfer(file, 0, length, out);
+            }
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // 由Tomcat在请求处理结束后直接从文件发送到套接字
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, range.start());
+            request.setAttribute(SENDFILE_END_ATTR, range.start() + range.count());
+            return;
+        }
+        transfer(file, range.start(), range.count(), response.getOutputStream());
+    }
+
+    /**
+     * 以附件形式发送内存中的内容
+     * @param content 内容
+     * @param etag 内容的ETag（含引号）
+     * @param lastModified 最后修改时间（毫秒），未知时传-1
+     */
+    public static void send(byte[] content, String etag, long lastModified, String contentType, String downloadName,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Range range = prepare(content.length, etag, lastModified, contentType, downloadName, request, response);
+        if (range == null) {
+            return;
+        }
+        if (range.gzip()) {
+            try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE)) {
+                out.write(content);
+            }
+            return;
+        }
+        response.getOutputStream().write(content, (int) range.start(), (int) range.count());
+    }
+
+    /**
+     * 以附件形式发送边生成边写出的内容，长度未知，不支持Range，客户端接受时gzip压缩
+     * @param etag 内容的ETag（含引号）
+     * @param lastModified 最后修改时间（毫秒），未知时传-1
+     * @param body 写出内容，调用方不关闭输出流
+     */
+    public static void stream(String etag, long lastModified, String contentType, String downloadName,
+                              HttpServletRequest request, HttpServletResponse response, BodyWriter body) throws IOException {
+        boolean gzip = acceptsGzip(request);
+        if (!writeHeaders(etag, gzip, lastModified, request, response)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        setAttachment(contentType, downloadName, response);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+        if (gzip) {
+            try (GZIPOutputStream out = new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE)) {
+                body.writeTo(out);
+            }
+            return;
+        }
+        body.writeTo(response.getOutputStream());
+    }
+
+    /**
+     * 协商缓存：If-None-Match 命中时写出304
+     * 用于内容生成代价较高的场景，在生成内容之前先判断
+     * @return 是否已返回304
+     */
+    public static boolean checkNotModified(String etag, HttpServletRequest request, HttpServletResponse response) {
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag, gzipEtag(etag))) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 写出内容的回调
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * 待写出的区间；gzip时写出完整内容
+     */
+    private record Range(long start, long count, boolean gzip) {
+    }
+
+    /**
+     * 写出响应头并解析Range
+     * @return 需要写出的区间，已完成响应（304、416、HEAD或空内容）时返回null
+     */
+    private static Range prepare(long length, String etag, long lastModified, String contentType, String downloadName,
+                                 HttpServletRequest request, HttpServletResponse response) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        boolean gzip = length >= MIN_GZIP_SIZE && acceptsGzip(request) && rangeHeader == null;
+        if (!writeHeaders(etag, gzip, lastModified, request, response)) {
+            return null;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        setAttachment(contentType, downloadName, response);
+
+        long start = 0;
+        long end = length - 1;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            // 多区间请求按完整内容返回
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                if (length == 0 || range.getRangeStart(length) >= length) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return null;
+                }
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+        long count = end - start + 1;
+
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return "HEAD".equals(request.getMethod()) ? null : new Range(0, length, true);
+        }
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return null;
+        }
+        return new Range(start, count, false);
+    }
+
+    /**
+     * 写出缓存相关响应头，If-None-Match 命中时返回304
+     * @return 是否需要继续写出内容
+     */
+    private static boolean writeHeaders(String etag, boolean gzip, long lastModified,
+                                        HttpServletRequest request, HttpServletResponse response) {
+        // 同一内容的压缩与未压缩传输是不同的表示，ETag需区分
+        String gzipEtag = gzipEtag(etag);
+        response.setHeader(HttpHeaders.ETAG, gzip ? gzipEtag : etag);
+        if (lastModified >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+
+        if (matchesAny(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag, gzipEtag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return false;
+        }
+        return true;
+    }
+
+    private static void setAttachment(String contentType, String downloadName, HttpServletResponse response) {
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(downloadName, StandardCharsets.UTF_8).build().toString());
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    private static void transfer(File file, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long end = position + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-None-Match 使用弱比较，任一表示的ETag匹配即可
+     */
+    private static boolean matchesAny(String ifNoneMatch, String... etags) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            for (String etag : etags) {
+                if (tag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
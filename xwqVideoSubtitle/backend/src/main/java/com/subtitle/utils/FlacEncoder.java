@@ -0,0 +1,364 @@
+package com.subtitle.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 纯Java FLAC编码器（16bit PCM）
+ * 每个块在定阶预测（0~4阶）与原样存储之间择优，残差采用分区Rice编码，
+ * 语音音频通常可压缩到WAV的40%~60%，且无需启动外部进程
+ */
+public final class FlacEncoder {
+
+    /**
+     * 每帧采样数
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    private static final int MAX_FIXED_ORDER = 4;
+    private static final int MAX_PARTITION_ORDER = 6;
+    private static final int MAX_RICE_PARAM = 14;
+
+    private static final int[] CRC8_TABLE = new int[256];
+    private static final int[] CRC16_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc8 = i;
+            int crc16 = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc8 = (crc8 & 0x80) != 0 ? (crc8 << 1) ^ 0x07 : crc8 << 1;
+                crc16 = (crc16 & 0x8000) != 0 ? (crc16 << 1) ^ 0x8005 : crc16 << 1;
+            }
+            CRC8_TABLE[i] = crc8 & 0xFF;
+            CRC16_TABLE[i] = crc16 & 0xFFFF;
+        }
+    }
+
+    private FlacEncoder() {
+    }
+
+    /**
+     * 将16bit单声道PCM编码为FLAC写入输出流
+     * @param pcm 采样数据，从当前位置读到末尾，不改变缓冲区位置
+     * @param sampleRate 采样率
+     * @param out 输出流，不会被关闭
+     */
+    public static void encode(ShortBuffer pcm, int sampleRate, OutputStream out) throws IOException {
+        int base = pcm.position();
+        int totalSamples = pcm.remaining();
+
+        writeStreamHeader(out, sampleRate, totalSamples);
+
+        BitWriter writer = new BitWriter(BLOCK_SIZE * 2 + 64);
+        int[] samples = new int[BLOCK_SIZE];
+        int[] residual = new int[BLOCK_SIZE];
+        long frameNumber = 0;
+
+        for (int offset = 0; offset < totalSamples; offset += BLOCK_SIZE) {
+            int blockSize = Math.min(BLOCK_SIZE, totalSamples - offset);
+            for (int i = 0; i < blockSize; i++) {
+                samples[i] = pcm.get(base + offset + i);
+            }
+            writer.reset();
+            writeFrame(writer, samples, residual, blockSize, frameNumber++);
+            out.write(writer.buffer(), 0, writer.length());
+        }
+    }
+
+    /**
+     * 写出 "fLaC" 标记与 STREAMINFO 元数据块（MD5置零表示未计算）
+     */
+    private static void writeStreamHeader(OutputStream out, int sampleRate, long totalSamples) throws IOException {
+        BitWriter header = new BitWriter(64);
+        header.write(0x664C6143, 32);                 // "fLaC"
+        header.write(1, 1);                           // 最后一个元数据块
+        header.write(0, 7);                           // STREAMINFO
+        header.write(34, 24);
+        header.write(BLOCK_SIZE, 16);                 // 最小块大小
+        header.write(BLOCK_SIZE, 16);                 // 最大块大小
+        header.write(0, 24);                          // 最小帧大小（未知）
+        header.write(0, 24);                          // 最大帧大小（未知）
+        header.write(sampleRate, 20);
+        header.write(0, 3);                           // 声道数-1
+        header.write(15, 5);                          // 位深-1
+        header.write((int) (totalSamples >>> 32), 4);
+        header.write((int) totalSamples, 32);
+        for (int i = 0; i < 4; i++) {
+            header.write(0, 32);                      // MD5
+        }
+        out.write(header.buffer(), 0, header.length());
+    }
+
+    private static void writeFrame(BitWriter writer, int[] samples, int[] residual, int blockSize, long frameNumber) {
+        // 帧头
+        writer.write(0x3FFE, 14);                     // 同步码
+        writer.write(0, 1);
+        writer.write(0, 1);                           // 固定块大小
+        boolean standardSize = blockSize == BLOCK_SIZE;
+        writer.write(standardSize ? 0b1100 : 0b0111, 4);
+        writer.write(0, 4);                           // 采样率取自STREAMINFO
+        writer.write(0, 4);                           // 单声道
+        writer.write(0b100, 3);                       // 16bit
+        writer.write(0, 1);
+        writeUtf8(writer, frameNumber);
+        if (!standardSize) {
+            writer.write(blockSize - 1, 16);
+        }
+        writer.write(crc8(writer.buffer(), writer.length()), 8);
+
+        writeSubframe(writer, samples, residual, blockSize);
+
+        writer.alignToByte();
+        writer.write(crc16(writer.buffer(), writer.length()), 16);
+    }
+
+    private static void writeSubframe(BitWriter writer, int[] samples, int[] residual, int blockSize) {
+        boolean constant = true;
+        for (int i = 1; i < blockSize && constant; i++) {
+            constant = samples[i] == samples[0];
+        }
+        if (constant) {
+            writer.write(0, 8);                       // SUBFRAME_CONSTANT
+            writer.write(samples[0], 16);
+            return;
+        }
+
+        // 选择残差绝对值之和最小的定阶预测器
+        int bestOrder = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int order = 0; order <= Math.min(MAX_FIXED_ORDER, blockSize - 1); order++) {
+            long sum = 0;
+            for (int i = order; i < blockSize; i++) {
+                sum += Math.abs(predictResidual(samples, i, order));
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                bestOrder = order;
+            }
+        }
+        for (int i = bestOrder; i < blockSize; i++) {
+            residual[i] = predictResidual(samples, i, bestOrder);
+        }
+
+        RicePlan plan = planRice(residual, bestOrder, blockSize);
+        long fixedBits = 8 + 16L * bestOrder + plan.bits;
+        long verbatimBits = 8 + 16L * blockSize;
+
+        if (fixedBits >= verbatimBits) {
+            writer.write(0b00000010, 8);              // SUBFRAME_VERBATIM
+            for (int i = 0; i < blockSize; i++) {
+                writer.write(samples[i], 16);
+            }
+            return;
+        }
+
+        writer.write(0b00010000 | (bestOrder << 1), 8); // SUBFRAME_FIXED
+        for (int i = 0; i < bestOrder; i++) {
+            writer.write(samples[i], 16);
+        }
+        writer.write(0, 2);                           // Rice编码，4位参数
+        writer.write(plan.partitionOrder, 4);
+        int partitions = 1 << plan.partitionOrder;
+        int partitionSize = blockSize >> plan.partitionOrder;
+        int index = bestOrder;
+        for (int p = 0; p < partitions; p++) {
+            int end = (p + 1) * partitionSize;
+            int param = plan.params[p];
+            writer.write(param, 4);
+            for (; index < end; index++) {
+                int value = residual[index];
+                int folded = (value << 1) ^ (value >> 31);
+                writer.writeUnary(folded >>> param);
+                if (param > 0) {
+                    writer.write(folded, param);
+                }
+            }
+        }
+    }
+
+    private static int predictResidual(int[] s, int i, int order) {
+        switch (order) {
+            case 0:
+                return s[i];
+            case 1:
+                return s[i] - s[i - 1];
+            case 2:
+                return s[i] - 2 * s[i - 1] + s[i - 2];
+            case 3:
+                return s[i] - 3 * s[i - 1] + 3 * s[i - 2] - s[i - 3];
+            default:
+                return s[i] - 4 * s[i - 1] + 6 * s[i - 2] - 4 * s[i - 3] + s[i - 4];
+        }
+    }
+
+    /**
+     * 分区Rice编码方案
+     */
+    private static final class RicePlan {
+        private int partitionOrder;
+        private int[] params;
+        private long bits = Long.MAX_VALUE;
+    }
+
+    /**
+     * 在允许的分区阶数中选出总位数最少的方案，每个分区独立选择Rice参数
+     */
+    private static RicePlan planRice(int[] residual, int predictorOrder, int blockSize) {
+        RicePlan best = new RicePlan();
+        for (int order = 0; order <= MAX_PARTITION_ORDER; order++) {
+            if (blockSize % (1 << order) != 0 || (blockSize >> order) <= predictorOrder) {
+                break;
+            }
+            int partitions = 1 << order;
+            int partitionSize = blockSize >> order;
+            int[] params = new int[partitions];
+            long bits = 6;
+            int index = predictorOrder;
+            for (int p = 0; p < partitions; p++) {
+                int end = (p + 1) * partitionSize;
+                int start = index;
+                long sum = 0;
+                for (; index < end; index++) {
+                    int value = residual[index];
+                    sum += (value << 1) ^ (value >> 31);
+                }
+                int count = end - start;
+                long bestBits = Long.MAX_VALUE;
+                for (int param = 0; param <= MAX_RICE_PARAM; param++) {
+                    long estimate = estimateBits(residual, start, end, param, sum, count);
+                    if (estimate < bestBits) {
+                        bestBits = estimate;
+                        params[p] = param;
+                    }
+                }
+                bits += 4 + bestBits;
+            }
+            if (bits < best.bits) {
+                best.bits = bits;
+                best.partitionOrder = order;
+                best.params = params;
+            }
+        }
+        if (best.params == null) {
+            best.partitionOrder = 0;
+            best.params = new int[]{MAX_RICE_PARAM};
+            best.bits = 6 + 4 + estimateBits(residual, predictorOrder, blockSize, MAX_RICE_PARAM, 0, blockSize - predictorOrder);
+        }
+        return best;
+    }
+
+    /**
+     * 计算某分区使用给定Rice参数时的精确位数
+     */
+    private static long estimateBits(int[] residual, int start, int end, int param, long foldedSum, int count) {
+        if (param == 0) {
+            return foldedSum + count;
+        }
+        long bits = (long) count * (param + 1);
+        for (int i = start; i < end; i++) {
+            int value = residual[i];
+            bits += ((value << 1) ^ (value >> 31)) >>> param;
+        }
+        return bits;
+    }
+
+    /**
+     * 帧号使用类UTF-8变长编码
+     */
+    private static void writeUtf8(BitWriter writer, long value) {
+        if (value < 0x80) {
+            writer.write((int) value, 8);
+            return;
+        }
+        int continuation = value < 0x800 ? 1 : value < 0x10000 ? 2 : value < 0x200000 ? 3
+                : value < 0x4000000 ? 4 : 5;
+        int leadingBits = 0xFF << (7 - continuation) & 0xFF;
+        writer.write(leadingBits | (int) (value >>> (6 * continuation)), 8);
+        for (int i = continuation - 1; i >= 0; i--) {
+            writer.write(0x80 | (int) ((value >>> (6 * i)) & 0x3F), 8);
+        }
+    }
+
+    private static int crc8(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc = CRC8_TABLE[(crc ^ data[i]) & 0xFF];
+        }
+        return crc;
+    }
+
+    private static int crc16(byte[] data, int length) {
+        int crc = 0;
+        for (int i = 0; i < length; i++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ data[i]) & 0xFF]) & 0xFFFF;
+        }
+        return crc;
+    }
+
+    /**
+     * 按大端位序写入的位缓冲区
+     */
+    private static final class BitWriter {
+        private byte[] buffer;
+        private int length;
+        private long accumulator;
+        private int bitCount;
+
+        private BitWriter(int initialCapacity) {
+            this.buffer = new byte[initialCapacity];
+        }
+
+        /**
+         * 写入 value 的低 bits 位（bits ≤ 32）
+         */
+        private void write(int value, int bits) {
+            accumulator = (accumulator << bits) | (value & (0xFFFFFFFFL >>> (32 - bits)));
+            bitCount += bits;
+            while (bitCount >= 8) {
+                bitCount -= 8;
+                put((byte) (accumulator >>> bitCount));
+            }
+        }
+
+        /**
+         * 一元编码：quotient 个0后跟一个1
+         */
+        private void writeUnary(int quotient) {
+            while (quotient >= 32) {
+                write(0, 32);
+                quotient -= 32;
+            }
+            write(1, quotient + 1);
+        }
+
+        private void alignToByte() {
+            if (bitCount > 0) {
+                write(0, 8 - bitCount);
+            }
+        }
+
+        private void put(byte value) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[length++] = value;
+        }
+
+        private void reset() {
+            length = 0;
+            accumulator = 0;
+            bitCount = 0;
+        }
+
+        private byte[] buffer() {
+            return buffer;
+        }
+
+        private int length() {
+            return length;
+        }
+    }
+}
@@ -19,6 +19,18 @@ import java.util.Map;
 @Component
 public class JwtUtils {
 
+    /**
+     * 范围令牌的用途声明，登录令牌不含该声明
+     */
+    private static final String SCOPE_CLAIM = "scope";
+
+    private static final String TASK_EVENTS_SCOPE = "task-events";
+
+    /**
+     * 任务进度订阅令牌的有效期（毫秒），只用于建立SSE连接，连接建立后不再校验
+     */
+    private static final long TASK_EVENTS_TOKEN_EXPIRATION = 60_000;
+
     @Value("${jwt.secret}")
     private String secret;
 
@@ -50,15 +62,52 @@ public class JwtUtils {
     }
 
     /**
-     * 验证 Token
+     * 生成任务进度订阅令牌
+     * EventSource 无法设置请求头，令牌需放在URL中，因此只能订阅指定任务且很快过期，不能代替登录令牌
+     */
+    public String generateTaskEventsToken(Long userId, String taskId) {
+        return Jwts.builder()
+                .claim("userId", userId)
+                .claim(SCOPE_CLAIM, TASK_EVENTS_SCOPE)
+                .claim("taskId", taskId)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TASK_EVENTS_TOKEN_EXPIRATION))
+                .signWith(getSecretKey())
+                .compact();
+    }
+
+    /**
+     * 验证任务进度订阅令牌
+     * @return 用户ID，令牌无效、已过期或不属于该任务时返回null
+     */
+    public Long getUserIdFromTaskEventsToken(String token, String taskId) {
+        try {
+            Claims claims = Jwts.parser()
+                    .verifyWith(getSecretKey())
+                    .build()
+                    .parseSignedClaims(token)
+                    .getPayload();
+            if (!TASK_EVENTS_SCOPE.equals(claims.get(SCOPE_CLAIM, String.class))
+                    || !taskId.equals(claims.get("taskId", String.class))) {
+                return null;
+            }
+            return claims.get("userId", Long.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 验证登录 Token，范围令牌（如任务进度订阅令牌）不能作为登录令牌使用
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
+            Claims claims = Jwts.parser()
                     .verifyWith(getSecretKey())
                     .build()
-                    .parseSignedClaims(token);
-            return true;
+                    .parseSignedClaims(token)
+                    .getPayload();
+            return claims.get(SCOPE_CLAIM) == null;
         } catch (Exception e) {
             return false;
         }
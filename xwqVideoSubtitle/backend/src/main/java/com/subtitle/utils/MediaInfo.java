@@ -0,0 +1,48 @@
+package com.subtitle.utils;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 媒体文件探测结果
+ * 上传时一次打开容器获取全部信息，持久化到视频记录，后续流程不再重复探测
+ */
+@Data
+@Accessors(chain = true)
+public class MediaInfo {
+
+    /**
+     * 容器格式（如 mov,mp4,m4a,3gp,3g2,mj2 / matroska,webm）
+     */
+    private String format;
+
+    /**
+     * 时长（秒）
+     */
+    private double durationSeconds;
+
+    /**
+     * 容器总码率（bit/s），未知时为0
+     */
+    private long bitRate;
+
+    /**
+     * 是否包含音频流
+     */
+    private boolean hasAudio;
+
+    /**
+     * 音频编码名称（如 aac、opus），无音频时为null
+     */
+    private String audioCodec;
+
+    /**
+     * 音频采样率（Hz）
+     */
+    private int audioSampleRate;
+
+    /**
+     * 音频声道数
+     */
+    private int audioChannels;
+}
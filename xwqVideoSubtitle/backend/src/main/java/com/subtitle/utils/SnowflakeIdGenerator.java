@@ -0,0 +1,65 @@
+package com.subtitle.utils;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Snowflake风格的64位ID生成器
+ * 结构：41位毫秒时间戳（自 2024-01-01 起）| 10位节点号 | 12位序列号。
+ * 各节点号不同即可在多节点上独立生成不重复的ID，且ID按生成时间递增，可直接作为聚簇主键顺序插入
+ */
+public class SnowflakeIdGenerator {
+
+    /**
+     * 时间戳起点：2024-01-01T00:00:00Z
+     */
+    private static final long EPOCH_MILLIS = 1704067200000L;
+
+    private static final int WORKER_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+
+    private final LongSupplier clock;
+
+    private long lastTimestamp = -1L;
+
+    private long sequence = 0L;
+
+    public SnowflakeIdGenerator(int workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 毫秒时钟，测试时可替换以模拟时钟回拨
+     */
+    SnowflakeIdGenerator(int workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("节点号超出范围 [0, " + MAX_WORKER_ID + "]: " + workerId);
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    /**
+     * 生成下一个ID
+     * 同一毫秒内序列号用尽或系统时钟回拨时，借用之后的毫秒继续生成，不阻塞调用方也不会产生重复ID
+     */
+    public synchronized long nextId() {
+        long timestamp = Math.max(clock.getAsLong() - EPOCH_MILLIS, lastTimestamp);
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+        return (timestamp << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+}
@@ -0,0 +1,162 @@
+package com.subtitle.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.List;
+
+/**
+ * 流式音频切片器
+ * 从输入流读取16bit单声道小端PCM（ffmpeg -f s16le 输出），在内存窗口内做语音活动切片，
+ * 每个切片完整后立即编码并回调，不落盘
+ */
+public class StreamingAudioChunker {
+
+    /**
+     * 切片完成回调
+     */
+    @FunctionalInterface
+    public interface ChunkListener {
+        /**
+         * @param chunk 切片描述（帧号为在整条音频中的绝对位置，path为null）
+         * @param encoded 编码后的完整音频文件字节
+         */
+        void onChunk(AudioChunk chunk, byte[] encoded) throws IOException;
+    }
+
+    /**
+     * 窗口末尾不参与切分判定的余量（秒），避免在窗口边界处误判静音
+     */
+    private static final double TAIL_MARGIN_SECONDS = 2.5;
+
+    private final int sampleRate;
+    private final int maxChunkFrames;
+    private final String codec;
+    private final short[] window;
+    private int windowLength;
+    private long windowStartFrame;
+    private int chunkCount;
+
+    /**
+     * @param sampleRate 采样率
+     * @param maxChunkSeconds 单个切片最大时长（秒）
+     * @param codec 切片编码（wav 或 flac）
+     */
+    public StreamingAudioChunker(int sampleRate, double maxChunkSeconds, String codec) {
+        this.sampleRate = sampleRate;
+        this.maxChunkFrames = (int) (maxChunkSeconds * sampleRate);
+        this.codec = codec;
+        this.window = new short[maxChunkFrames * 2 + (int) (TAIL_MARGIN_SECONDS * sampleRate)];
+    }
+
+    /**
+     * 读取整个输入流直到结束，期间每完成一个切片就回调一次
+     * @return 读取的总帧数
+     */
+    public long process(InputStream pcmStream, ChunkListener listener) throws IOException {
+        byte[] readBuffer = new byte[64 * 1024];
+        int carry = 0;
+        int read;
+        while ((read = pcmStream.read(readBuffer, carry, readBuffer.length - carry)) != -1) {
+            int available = carry + read;
+            int usable = available & ~1;
+            int offset = 0;
+            while (offset < usable) {
+                int frames = Math.min((usable - offset) / 2, window.length - windowLength);
+                ByteBuffer.wrap(readBuffer, offset, frames * 2).order(ByteOrder.LITTLE_ENDIAN)
+                        .asShortBuffer().get(window, windowLength, frames);
+                windowLength += frames;
+                offset += frames * 2;
+                if (windowLength == window.length) {
+                    emitCompleted(listener);
+                }
+            }
+            carry = available - usable;
+            if (carry > 0) {
+                readBuffer[0] = readBuffer[usable];
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("音频流读取被中断");
+            }
+        }
+        flush(listener);
+        return windowStartFrame + windowLength;
+    }
+
+    /**
+     * 窗口已满：对窗口规划切片，输出已确定的切片，未确定的部分保留到下一轮
+     */
+    private void emitCompleted(ChunkListener listener) throws IOException {
+        List<AudioChunk> plan = AudioChunkPlanner.plan(ShortBuffer.wrap(window, 0, windowLength), sampleRate,
+                maxChunkFrames / (double) sampleRate);
+        int safeEnd = windowLength - (int) (TAIL_MARGIN_SECONDS * sampleRate);
+        int consumed;
+
+        if (plan.isEmpty()) {
+            // 整个窗口都是静音，只保留尾部余量
+            consumed = safeEnd;
+        } else {
+            consumed = 0;
+            for (int i = 0; i < plan.size(); i++) {
+                AudioChunk chunk = plan.get(i);
+                boolean last = i == plan.size() - 1;
+                // 最后一个切片可能被窗口截断，除非它在安全区内结束
+                if (last && chunk.endFrame() > safeEnd) {
+                    consumed = (int) chunk.startFrame();
+                    break;
+                }
+                emit(chunk, listener);
+                consumed = (int) chunk.endFrame();
+            }
+        }
+
+        System.arraycopy(window, consumed, window, 0, windowLength - consumed);
+        windowLength -= consumed;
+        windowStartFrame += consumed;
+    }
+
+    /**
+     * 输入结束：输出窗口中剩余的全部切片
+     */
+    private void flush(ChunkListener listener) throws IOException {
+        if (windowLength == 0) {
+            return;
+        }
+        List<AudioChunk> plan = AudioChunkPlanner.plan(ShortBuffer.wrap(window, 0, windowLength), sampleRate,
+                maxChunkFrames / (double) sampleRate);
+        for (AudioChunk chunk : plan) {
+            emit(chunk, listener);
+        }
+        windowStartFrame += windowLength;
+        windowLength = 0;
+    }
+
+    private void emit(AudioChunk local, ChunkListener listener) throws IOException {
+        int start = (int) local.startFrame();
+        int frames = (int) local.getFrameCount();
+        AudioChunk chunk = new AudioChunk(chunkCount++, windowStartFrame + start,
+                windowStartFrame + local.endFrame(), sampleRate, null);
+        listener.onChunk(chunk, encode(start, frames));
+    }
+
+    private byte[] encode(int start, int frames) throws IOException {
+        ShortBuffer samples = ShortBuffer.wrap(window, start, frames).slice();
+        if ("flac".equalsIgnoreCase(codec)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(frames);
+            FlacEncoder.encode(samples, sampleRate, out);
+            return out.toByteArray();
+        }
+        ByteBuffer wav = ByteBuffer.allocate(WavFile.HEADER_SIZE + frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put(WavFile.createHeader(sampleRate, 1, 16, frames * 2L));
+        wav.asShortBuffer().put(samples);
+        return wav.array();
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+}
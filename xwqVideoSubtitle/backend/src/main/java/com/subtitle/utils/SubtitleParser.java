@@ -0,0 +1,400 @@
+package com.subtitle.utils;
+
+import com.subtitle.entity.SubtitleSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 字幕解析器
+ * 单次顺序读取 SRT、VTT 或 ASS，每解析出一条字幕片段即交给调用方处理，不保留整份文件；
+ * 内存只与单行和单条字幕的长度有关，二者均有上限，超出部分截断
+ */
+public final class SubtitleParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubtitleParser.class);
+
+    /**
+     * 单行最大字符数
+     */
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+
+    /**
+     * 单条字幕文本最大字符数
+     */
+    private static final int MAX_TEXT_LENGTH = 16 * 1024;
+
+    /**
+     * ASS 未声明 Format 时的默认事件字段
+     */
+    private static final String DEFAULT_ASS_FORMAT = "Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text";
+
+    private SubtitleParser() {
+    }
+
+    /**
+     * 字幕片段处理回调
+     */
+    @FunctionalInterface
+    public interface SegmentHandler {
+        void accept(SubtitleSegment segment) throws IOException;
+    }
+
+    /**
+     * 按文件扩展名判断格式，SSA 按 ASS 解析
+     * @return 格式，不支持导入时返回null
+     */
+    public static SubtitleRenderer.Format detectFormat(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return null;
+        }
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase();
+        return switch (extension) {
+            case "srt" -> SubtitleRenderer.Format.SRT;
+            case "vtt" -> SubtitleRenderer.Format.VTT;
+            case "ass", "ssa" -> SubtitleRenderer.Format.ASS;
+            default -> null;
+        };
+    }
+
+    /**
+     * 打开字幕文件的字符流：有BOM时按BOM识别 UTF-8 / UTF-16，否则使用指定编码；
+     * 遇到不符合编码的字节时读取抛出 {@link java.nio.charset.CharacterCodingException}，不静默替换为乱码
+     * @param input 文件内容，调用方负责关闭
+     * @param charset 无BOM时使用的编码
+     */
+    public static Reader openReader(InputStream input, Charset charset) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(input);
+        in.mark(3);
+        int b0 = in.read();
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        Charset detected = charset;
+        if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+            // BOM 由 LineReader 去除
+            detected = StandardCharsets.UTF_8;
+        } else if ((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE)) {
+            // UTF-16 解码器按BOM确定字节序并去除BOM
+            detected = StandardCharsets.UTF_16;
+        }
+        CharsetDecoder decoder = detected.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        return new InputStreamReader(in, decoder);
+    }
+
+    /**
+     * 解析字幕并收集为列表，仅用于字幕较小的场景
+     */
+    public static List<SubtitleSegment> parse(Reader reader, SubtitleRenderer.Format format) throws IOException {
+        List<SubtitleSegment> segments = new ArrayList<>();
+        parse(reader, format, segments::add);
+        return segments;
+    }
+
+    /**
+     * 流式解析字幕
+     * @param reader 输入，调用方负责关闭
+     * @param format 字幕格式（SRT、VTT、ASS）
+     * @param handler 按文件顺序接收每条字幕片段
+     * @return 解析出的片段数
+     * @throws IllegalArgumentException 不支持解析的格式
+     */
+    public static int parse(Reader reader, SubtitleRenderer.Format format, SegmentHandler handler) throws IOException {
+        LineReader lines = new LineReader(reader);
+        return switch (format) {
+            case SRT, VTT -> parseCues(lines, handler);
+            case ASS -> parseAss(lines, handler);
+            default -> throw new IllegalArgumentException("不支持解析的字幕格式: " + format.getExtension());
+        };
+    }
+
+    /**
+     * 解析 SRT / VTT 字幕块：可选的序号或标识行、时间行、若干文本行，以空行分隔。
+     * 时间行之前的非时间行（序号、标识、VTT文件头和 NOTE/STYLE/REGION 块）均跳过；
+     * 缺少空行分隔时，以新的时间行作为下一条字幕的开始
+     */
+    private static int parseCues(LineReader lines, SegmentHandler handler) throws IOException {
+        int count = 0;
+        int skipped = 0;
+        double start = -1;
+        double end = -1;
+        StringBuilder text = new StringBuilder();
+        int lastLineStart = 0;
+        boolean inCue = false;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                if (inCue) {
+                    count += emit(handler, count, start, end, text);
+                    inCue = false;
+                }
+                continue;
+            }
+            int arrow = trimmed.indexOf("-->");
+            if (arrow >= 0) {
+                if (inCue) {
+                    // 上一条字幕未以空行结束，末行若为序号则属于本条
+                    if (isDigits(text, lastLineStart)) {
+                        text.setLength(Math.max(0, lastLineStart - 1));
+                    }
+                    count += emit(handler, count, start, end, text);
+                }
+                start = parseTime(trimmed.substring(0, arrow).trim());
+                end = parseTime(firstToken(trimmed.substring(arrow + 3)));
+                inCue = start >= 0 && end >= 0;
+                if (!inCue) {
+                    skipped++;
+                }
+                text.setLength(0);
+                lastLineStart = 0;
+                continue;
+            }
+            if (inCue) {
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                lastLineStart = text.length();
+                text.append(trimmed, 0, Math.max(0, Math.min(trimmed.length(), MAX_TEXT_LENGTH - text.length())));
+            }
+        }
+        if (inCue) {
+            count += emit(handler, count, start, end, text);
+        }
+        if (skipped > 0) {
+            logger.warn("跳过 {} 条时间格式错误的字幕", skipped);
+        }
+        return count;
+    }
+
+    /**
+     * 解析 ASS / SSA：按 [Events] 中的 Format 行定位 Start、End、Text 字段，逐行读取 Dialogue。
+     * 文本中的样式标签 {...} 去除，\N、\n 转为换行，\h 转为空格
+     */
+    private static int parseAss(LineReader lines, SegmentHandler handler) throws IOException {
+        int count = 0;
+        boolean inEvents = false;
+        String[] columns = splitColumns(DEFAULT_ASS_FORMAT);
+        StringBuilder text = new StringBuilder();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("[")) {
+                inEvents = trimmed.equalsIgnoreCase("[Events]");
+                continue;
+            }
+            if (!inEvents) {
+                continue;
+            }
+            if (startsWithIgnoreCase(trimmed, "Format:")) {
+                columns = splitColumns(trimmed.substring("Format:".length()));
+                continue;
+            }
+            if (!startsWithIgnoreCase(trimmed, "Dialogue:")) {
+                continue;
+            }
+            // 文本为最后一个字段，其中的逗号不作分隔
+            String[] fields = trimmed.substring("Dialogue:".length()).split(",", columns.length);
+            if (fields.length < columns.length) {
+                continue;
+            }
+            double start = -1;
+            double end = -1;
+            text.setLength(0);
+            for (int i = 0; i < columns.length; i++) {
+                switch (columns[i]) {
+                    case "start" -> start = parseTime(fields[i].trim());
+                    case "end" -> end = parseTime(fields[i].trim());
+                    case "text" -> appendAssText(text, fields[i]);
+                    default -> {
+                    }
+                }
+            }
+            if (start >= 0 && end >= 0) {
+                count += emit(handler, count, start, end, text);
+            }
+        }
+        return count;
+    }
+
+    private static void appendAssText(StringBuilder text, String raw) {
+        int depth = 0;
+        for (int i = 0; i < raw.length() && text.length() < MAX_TEXT_LENGTH; i++) {
+            char c = raw.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+            } else if (depth > 0) {
+                continue;
+            } else if (c == '\\' && i + 1 < raw.length() && "Nnh".indexOf(raw.charAt(i + 1)) >= 0) {
+                text.append(raw.charAt(++i) == 'h' ? ' ' : '\n');
+            } else {
+                text.append(c);
+            }
+        }
+    }
+
+    private static int emit(SegmentHandler handler, int count, double start, double end, StringBuilder text)
+            throws IOException {
+        String content = text.toString().trim();
+        text.setLength(0);
+        if (content.isEmpty()) {
+            return 0;
+        }
+        SubtitleSegment segment = new SubtitleSegment();
+        segment.setIndex(count + 1);
+        segment.setStartTime(start);
+        segment.setEndTime(Math.max(start, end));
+        segment.setText(content);
+        segment.calculateDuration();
+        handler.accept(segment);
+        return 1;
+    }
+
+    /**
+     * 解析时间：HH:MM:SS,mmm、HH:MM:SS.mmm、MM:SS.mmm（VTT）或 H:MM:SS.cc（ASS），小数位数不限
+     * @return 秒数，格式错误时返回-1
+     */
+    private static double parseTime(String time) {
+        long seconds = 0;
+        int fields = 0;
+        long value = 0;
+        int digits = 0;
+        int i = 0;
+        for (; i < time.length(); i++) {
+            char c = time.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 9) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == ':' && digits > 0) {
+                seconds = seconds * 60 + value;
+                fields++;
+                value = 0;
+                digits = 0;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0 || fields < 1 || fields > 2) {
+            return -1;
+        }
+        seconds = seconds * 60 + value;
+
+        double fraction = 0;
+        if (i < time.length()) {
+            char separator = time.charAt(i++);
+            if (separator != ',' && separator != '.') {
+                return -1;
+            }
+            double scale = 0.1;
+            for (; i < time.length(); i++) {
+                char c = time.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                fraction += (c - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return seconds + Math.round(fraction * 1000) / 1000.0;
+    }
+
+    /**
+     * 时间行结束时间之后可能跟随VTT的位置设置
+     */
+    private static String firstToken(String value) {
+        String trimmed = value.trim();
+        int space = 0;
+        while (space < trimmed.length() && !Character.isWhitespace(trimmed.charAt(space))) {
+            space++;
+        }
+        return trimmed.substring(0, space);
+    }
+
+    private static boolean isDigits(CharSequence text, int from) {
+        if (from >= text.length()) {
+            return false;
+        }
+        for (int i = from; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] splitColumns(String format) {
+        String[] columns = format.split(",");
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columns[i].trim().toLowerCase();
+        }
+        return columns;
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * 逐行读取，兼容 \n、\r\n 与 \r 换行，去除开头的BOM；超过单行上限的部分丢弃
+     */
+    private static final class LineReader {
+
+        private final Reader in;
+
+        private final StringBuilder line = new StringBuilder();
+
+        private boolean first = true;
+
+        private int pending = -1;
+
+        LineReader(Reader reader) {
+            this.in = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+        }
+
+        String readLine() throws IOException {
+            line.setLength(0);
+            int c = pending >= 0 ? pending : in.read();
+            pending = -1;
+            if (first) {
+                first = false;
+                if (c == '\uFEFF') {
+                    c = in.read();
+                }
+            }
+            if (c < 0) {
+                return null;
+            }
+            while (c >= 0 && c != '\n' && c != '\r') {
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) c);
+                }
+                c = in.read();
+            }
+            if (c == '\r') {
+                int next = in.read();
+                if (next != '\n') {
+                    pending = next;
+                }
+            }
+            return line.toString();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.subtitle.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.entity.SubtitleSegment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 字幕渲染器
+ * 从字幕片段逐条渲染为 SRT、VTT、ASS、TTML 或 JSON，直接写入输出流，不拼接整份字幕。
+ * 序号与时间戳直接写入每次渲染复用的字符缓冲区，不经过 String.format 和中间字符串
+ */
+public final class SubtitleRenderer {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    /**
+     * 时间行缓冲区大小，足够容纳 "HHHHHHHHHHHHHHH:MM:SS,mmm --> HHHHHHHHHHHHHHH:MM:SS,mmm\n"
+     */
+    private static final int TIME_BUFFER_SIZE = 64;
+
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+
+    private SubtitleRenderer() {
+    }
+
+    /**
+     * 支持的字幕格式
+     */
+    public enum Format {
+        SRT("srt", "application/x-subrip;charset=UTF-8"),
+        VTT("vtt", "text/vtt;charset=UTF-8"),
+        ASS("ass", "text/x-ssa;charset=UTF-8"),
+        TTML("ttml", "application/ttml+xml;charset=UTF-8"),
+        JSON("json", "application/json;charset=UTF-8");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * 按扩展名查找格式（不区分大小写）
+         * @return 格式，不支持时返回null
+         */
+        public static Format of(String name) {
+            if (name == null) {
+                return null;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 渲染字幕
+     * @param segments 字幕片段，按时间排序
+     * @param format 输出格式
+     * @param out 输出，调用方负责关闭
+     */
+    public static void render(List<SubtitleSegment> segments, Format format, Writer out) throws IOException {
+        switch (format) {
+            case SRT -> renderSrt(segments, out);
+            case VTT -> renderVtt(segments, out);
+            case ASS -> renderAss(segments, out);
+            case TTML -> renderTtml(segments, out);
+            case JSON -> objectMapper.writeValue(out, segments);
+        }
+        out.flush();
+    }
+
+    /**
+     * 以UTF-8渲染字幕
+     * @param out 输出，调用方负责关闭
+     */
+    public static void render(List<SubtitleSegment> segments, Format format, OutputStream out) throws IOException {
+        render(segments, format, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE));
+    }
+
+    private static void renderSrt(List<SubtitleSegment> segments, Writer out) throws IOException {
+        char[] buf = new char[TIME_BUFFER_SIZE];
+        for (int i = 0; i < segments.size(); i++) {
+            SubtitleSegment segment = segments.get(i);
+            writeCue(out, buf, i + 1, segment, ',');
+            writeText(out, segment);
+            out.write("\n\n");
+        }
+    }
+
+    private static void renderVtt(List<SubtitleSegment> segments, Writer out) throws IOException {
+        char[] buf = new char[TIME_BUFFER_SIZE];
+        out.write("WEBVTT\n\n");
+        for (int i = 0; i < segments.size(); i++) {
+            SubtitleSegment segment = segments.get(i);
+            writeCue(out, buf, i + 1, segment, '.');
+            writeText(out, segment);
+            out.write("\n\n");
+        }
+    }
+
+    /**
+     * 写出序号行与时间行
+     */
+    private static void writeCue(Writer out, char[] buf, int index, SubtitleSegment segment, char separator)
+            throws IOException {
+        int pos = buf.length;
+        buf[--pos] = '\n';
+        do {
+            buf[--pos] = (char) ('0' + index % 10);
+            index /= 10;
+        } while (index > 0);
+        out.write(buf, pos, buf.length - pos);
+
+        int len = formatTime(buf, 0, toMillis(segment.getStartTime()), separator);
+        buf[len++] = ' ';
+        buf[len++] = '-';
+        buf[len++] = '-';
+        buf[len++] = '>';
+        buf[len++] = ' ';
+        len = formatTime(buf, len, toMillis(segment.getEndTime()), separator);
+        buf[len++] = '\n';
+        out.write(buf, 0, len);
+    }
+
+    private static void renderAss(List<SubtitleSegment> segments, Writer out) throws IOException {
+        char[] buf = new char[TIME_BUFFER_SIZE];
+        out.write("[Script Info]\n"
+                + "ScriptType: v4.00+\n"
+                + "PlayResX: 1920\n"
+                + "PlayResY: 1080\n"
+                + "WrapStyle: 0\n\n"
+                + "[V4+ Styles]\n"
+                + "Format: Name, Fontname, Fontsize, PrimaryColour, SecondaryColour, OutlineColour, BackColour, "
+                + "Bold, Italic, Underline, StrikeOut, ScaleX, ScaleY, Spacing, Angle, BorderStyle, Outline, "
+                + "Shadow, Alignment, MarginL, MarginR, MarginV, Encoding\n"
+                + "Style: Default,Arial,56,&H00FFFFFF,&H000000FF,&H00000000,&H80000000,"
+                + "0,0,0,0,100,100,0,0,1,2,1,2,60,60,50,1\n\n"
+                + "[Events]\n"
+                + "Format: Layer, Start, End, Style, Name, MarginL, MarginR, MarginV, Effect, Text\n");
+        for (SubtitleSegment segment : segments) {
+            out.write("Dialogue: 0,");
+            int len = formatAssTime(buf, 0, toMillis(segment.getStartTime()));
+            buf[len++] = ',';
+            len = formatAssTime(buf, len, toMillis(segment.getEndTime()));
+            out.write(buf, 0, len);
+            out.write(",Default,,0,0,0,,");
+            String text = text(segment);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                // ASS以 \N 表示换行，花括号用于样式标签
+                switch (c) {
+                    case '\r' -> {
+                    }
+                    case '\n' -> out.write("\\N");
+                    case '{' -> out.write('(');
+                    case '}' -> out.write(')');
+                    default -> out.write(c);
+                }
+            }
+            out.write('\n');
+        }
+    }
+
+    private static void renderTtml(List<SubtitleSegment> segments, Writer out) throws IOException {
+        char[] buf = new char[TIME_BUFFER_SIZE];
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<tt xmlns=\"http://www.w3.org/ns/ttml\">\n"
+                + "  <body>\n"
+                + "    <div>\n");
+        for (SubtitleSegment segment : segments) {
+            out.write("      <p begin=\"");
+            out.write(buf, 0, formatTime(buf, 0, toMillis(segment.getStartTime()), '.'));
+            out.write("\" end=\"");
+            out.write(buf, 0, formatTime(buf, 0, toMillis(segment.getEndTime()), '.'));
+            out.write("\">");
+            String text = text(segment);
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '<' -> out.write("&lt;");
+                    case '>' -> out.write("&gt;");
+                    case '&' -> out.write("&amp;");
+                    case '"' -> out.write("&quot;");
+                    case '\n' -> out.write("<br/>");
+                    default -> out.write(c);
+                }
+            }
+            out.write("</p>\n");
+        }
+        out.write("    </div>\n"
+                + "  </body>\n"
+                + "</tt>\n");
+    }
+
+    private static void writeText(Writer out, SubtitleSegment segment) throws IOException {
+        if (segment.getText() != null) {
+            out.write(segment.getText());
+        }
+    }
+
+    private static String text(SubtitleSegment segment) {
+        return segment.getText() != null ? segment.getText() : "";
+    }
+
+    /**
+     * 将 HH:MM:SS{separator}mmm 写入buf，小时超过两位时按实际位数输出
+     * @return 写入后的位置
+     */
+    private static int formatTime(char[] buf, int pos, long millis, char separator) {
+        long hours = millis / 3600000;
+        if (hours >= 100) {
+            pos = writeLong(buf, pos, hours);
+        } else {
+            pos = write2(buf, pos, (int) hours);
+        }
+        buf[pos++] = ':';
+        pos = write2(buf, pos, (int) (millis / 60000 % 60));
+        buf[pos++] = ':';
+        pos = write2(buf, pos, (int) (millis / 1000 % 60));
+        buf[pos++] = separator;
+        int ms = (int) (millis % 1000);
+        buf[pos++] = (char) ('0' + ms / 100);
+        return write2(buf, pos, ms % 100);
+    }
+
+    /**
+     * 将ASS时间 H:MM:SS.cc（百分之一秒）写入buf
+     * @return 写入后的位置
+     */
+    private static int formatAssTime(char[] buf, int pos, long millis) {
+        long centis = millis / 10;
+        pos = writeLong(buf, pos, centis / 360000);
+        buf[pos++] = ':';
+        pos = write2(buf, pos, (int) (centis / 6000 % 60));
+        buf[pos++] = ':';
+        pos = write2(buf, pos, (int) (centis / 100 % 60));
+        buf[pos++] = '.';
+        return write2(buf, pos, (int) (centis % 100));
+    }
+
+    private static int write2(char[] buf, int pos, int value) {
+        buf[pos++] = (char) ('0' + value / 10);
+        buf[pos++] = (char) ('0' + value % 10);
+        return pos;
+    }
+
+    private static int writeLong(char[] buf, int pos, long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static long toMillis(Double seconds) {
+        return seconds != null ? Math.max(0, Math.round(seconds * 1000)) : 0;
+    }
+}
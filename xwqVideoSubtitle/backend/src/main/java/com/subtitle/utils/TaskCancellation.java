@@ -0,0 +1,101 @@
+package com.subtitle.utils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务取消令牌
+ * 执行任务的线程绑定令牌后，期间启动的FFmpeg进程通过 {@link #track} 登记；
+ * 取消时强制结束这些进程（阻塞在进程输出上的读取随之返回）并中断执行线程，
+ * 线程中断再由等待切片结果的一方传递为取消在途的识别请求
+ */
+public final class TaskCancellation {
+
+    private static final ThreadLocal<TaskCancellation> CURRENT = new ThreadLocal<>();
+
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+
+    private Thread thread;
+
+    private volatile boolean cancelled;
+
+    /**
+     * 绑定到当前线程，任务执行结束后需调用 {@link #unbind}
+     */
+    public synchronized void bind() {
+        thread = Thread.currentThread();
+        CURRENT.set(this);
+        if (cancelled) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * 解除绑定并清除取消留下的中断标记，线程池中的线程继续执行其他任务时不受影响
+     */
+    public synchronized void unbind() {
+        CURRENT.remove();
+        thread = null;
+        Thread.interrupted();
+    }
+
+    /**
+     * 当前线程绑定的令牌，不在任务中执行时返回null
+     */
+    public static TaskCancellation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 当前线程执行的任务是否已取消
+     */
+    public static boolean isCurrentCancelled() {
+        TaskCancellation cancellation = CURRENT.get();
+        return cancellation != null && cancellation.cancelled;
+    }
+
+    /**
+     * 登记当前任务启动的进程，进程退出后自动移除；任务已取消时立即结束进程
+     */
+    public static Process track(Process process) {
+        TaskCancellation cancellation = CURRENT.get();
+        if (cancellation != null) {
+            cancellation.processes.add(process);
+            process.onExit().thenRun(() -> cancellation.processes.remove(process));
+            if (cancellation.cancelled) {
+                destroy(process);
+            }
+        }
+        return process;
+    }
+
+    /**
+     * 取消任务：结束已登记的进程并中断执行线程
+     * @return 是否为首次取消
+     */
+    public synchronized boolean cancel() {
+        if (cancelled) {
+            return false;
+        }
+        cancelled = true;
+        processes.forEach(TaskCancellation::destroy);
+        if (thread != null) {
+            thread.interrupt();
+        }
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * 先结束进程本身再结束其子进程，避免父进程在子进程退出后继续执行
+     */
+    private static void destroy(Process process) {
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+    }
+}
@@ -0,0 +1,184 @@
+package com.subtitle.utils;
+
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * 基于短时能量的语音活动检测（VAD）
+ * 对16bit单声道PCM按固定帧长计算能量，以自适应噪声底为阈值判定语音帧，并做平滑处理
+ */
+public final class VoiceActivityDetector {
+
+    /**
+     * 分析帧长（毫秒）
+     */
+    public static final int FRAME_MILLIS = 20;
+
+    /**
+     * 判定门限高于噪声底的最小差值（dB）
+     */
+    private static final double MIN_MARGIN_DB = 6.0;
+
+    /**
+     * 动态范围不足时使用的绝对静音门限（dBFS）
+     */
+    private static final double ABSOLUTE_SILENCE_DB = -50.0;
+
+    /**
+     * 短于该帧数的孤立语音视为噪声（60ms）
+     */
+    private static final int MIN_SPEECH_FRAMES = 3;
+
+    /**
+     * 短于该帧数的静音间隙视为语音内部停顿（300ms）
+     */
+    private static final int MIN_SILENCE_FRAMES = 15;
+
+    /**
+     * 语音段前后保留的余量帧数（200ms）
+     */
+    private static final int PADDING_FRAMES = 10;
+
+    private VoiceActivityDetector() {
+    }
+
+    /**
+     * 单次分析结果
+     */
+    public static final class Analysis {
+        private final int frameSize;
+        private final long sampleCount;
+        private final double[] energyDb;
+        private final boolean[] speech;
+
+        private Analysis(int frameSize, long sampleCount, double[] energyDb, boolean[] speech) {
+            this.frameSize = frameSize;
+            this.sampleCount = sampleCount;
+            this.energyDb = energyDb;
+            this.speech = speech;
+        }
+
+        /**
+         * 每个分析帧包含的采样数
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public long getSampleCount() {
+            return sampleCount;
+        }
+
+        public int getFrameCount() {
+            return speech.length;
+        }
+
+        public double getEnergyDb(int frame) {
+            return energyDb[frame];
+        }
+
+        public boolean isSpeech(int frame) {
+            return speech[frame];
+        }
+    }
+
+    /**
+     * 分析PCM采样
+     * @param pcm 16bit单声道采样，从当前位置读到末尾，不改变缓冲区位置
+     * @param sampleRate 采样率
+     */
+    public static Analysis analyze(ShortBuffer pcm, int sampleRate) {
+        int frameSize = sampleRate * FRAME_MILLIS / 1000;
+        int sampleCount = pcm.remaining();
+        int frameCount = (sampleCount + frameSize - 1) / frameSize;
+        double[] energyDb = new double[frameCount];
+        int base = pcm.position();
+
+        for (int frame = 0; frame < frameCount; frame++) {
+            int start = frame * frameSize;
+            int end = Math.min(start + frameSize, sampleCount);
+            double sum = 0;
+            for (int i = start; i < end; i++) {
+                double sample = pcm.get(base + i);
+                sum += sample * sample;
+            }
+            double meanSquare = sum / ((end - start) * 32768.0 * 32768.0);
+            energyDb[frame] = 10 * Math.log10(meanSquare + 1e-10);
+        }
+
+        boolean[] speech = classify(energyDb);
+        smooth(speech);
+        return new Analysis(frameSize, sampleCount, energyDb, speech);
+    }
+
+    /**
+     * 以噪声底（10%分位）和语音峰值（95%分位）之间的自适应门限逐帧判定
+     */
+    private static boolean[] classify(double[] energyDb) {
+        boolean[] speech = new boolean[energyDb.length];
+        if (energyDb.length == 0) {
+            return speech;
+        }
+
+        double[] sorted = energyDb.clone();
+        Arrays.sort(sorted);
+        double noiseFloor = sorted[(int) (sorted.length * 0.10)];
+        double peak = sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.95))];
+
+        double threshold;
+        if (peak - noiseFloor < MIN_MARGIN_DB) {
+            // 整段几乎没有起伏：要么全是静音，要么全是连续声音
+            threshold = ABSOLUTE_SILENCE_DB;
+        } else {
+            threshold = Math.max(noiseFloor + Math.max(MIN_MARGIN_DB, (peak - noiseFloor) * 0.25),
+                    ABSOLUTE_SILENCE_DB);
+        }
+
+        for (int i = 0; i < energyDb.length; i++) {
+            speech[i] = energyDb[i] > threshold;
+        }
+        return speech;
+    }
+
+    /**
+     * 去除孤立的短促噪声，填补语音内部的短停顿，并在语音段两端加余量
+     */
+    private static void smooth(boolean[] speech) {
+        fillRuns(speech, true, MIN_SPEECH_FRAMES, false);
+        fillRuns(speech, false, MIN_SILENCE_FRAMES, true);
+
+        boolean[] padded = speech.clone();
+        for (int i = 0; i < speech.length; i++) {
+            if (speech[i]) {
+                int from = Math.max(0, i - PADDING_FRAMES);
+                int to = Math.min(speech.length - 1, i + PADDING_FRAMES);
+                for (int j = from; j <= to; j++) {
+                    padded[j] = true;
+                }
+            }
+        }
+        System.arraycopy(padded, 0, speech, 0, speech.length);
+    }
+
+    /**
+     * 将取值为 value 且长度小于 minLength 的连续段替换为 replacement
+     * 填补静音间隙时只处理两侧均为语音的内部间隙
+     */
+    private static void fillRuns(boolean[] flags, boolean value, int minLength, boolean replacement) {
+        int i = 0;
+        while (i < flags.length) {
+            if (flags[i] != value) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < flags.length && flags[i] == value) {
+                i++;
+            }
+            boolean inner = start > 0 && i < flags.length;
+            if (i - start < minLength && (value || inner)) {
+                Arrays.fill(flags, start, i, replacement);
+            }
+        }
+    }
+}
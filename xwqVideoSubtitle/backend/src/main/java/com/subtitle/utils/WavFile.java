@@ -0,0 +1,292 @@
+package com.subtitle.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PCM WAV文件读写工具
+ * 基于 FileChannel 内存映射读取 data 块，切片与时长计算均为字节运算，无需启动 ffmpeg/ffprobe 进程
+ */
+public final class WavFile implements Closeable {
+
+    /**
+     * 标准PCM WAV文件头长度
+     */
+    public static final int HEADER_SIZE = 44;
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer data;
+    private final int sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+    private final long dataOffset;
+    private final long dataSize;
+
+    private WavFile(FileChannel channel, int sampleRate, int channels, int bitsPerSample,
+                    long dataOffset, long dataSize) throws IOException {
+        this.channel = channel;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+        this.data = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, dataSize);
+        this.data.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * 打开PCM WAV文件并映射其 data 块
+     * @param audioPath 音频文件路径
+     * @return WAV文件对象，使用完毕后需关闭
+     * @throws IOException 文件不是PCM WAV、文件头损坏、data 块超过2GB或读取失败
+     */
+    public static WavFile open(String audioPath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(audioPath), StandardOpenOption.READ);
+        try {
+            Header header = readHeader(channel, audioPath);
+            if (header.dataSize() > Integer.MAX_VALUE) {
+                throw new IOException("WAV文件data块超过2GB，无法映射: " + audioPath);
+            }
+            return new WavFile(channel, header.sampleRate(), header.channels(), header.bitsPerSample(),
+                    header.dataOffset(), header.dataSize());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 仅读取文件头计算音频时长（秒），不映射 data 块
+     */
+    public static double readDuration(String audioPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(audioPath), StandardOpenOption.READ)) {
+            Header header = readHeader(channel, audioPath);
+            return header.dataSize() / header.blockAlign() / (double) header.sampleRate();
+        }
+    }
+
+    private static boolean isRiffWave(ByteBuffer riff) {
+        return riff.getInt(0) == 0x46464952 && riff.getInt(8) == 0x45564157; // "RIFF" / "WAVE"
+    }
+
+    /**
+     * 逐块读取文件头直到 data 块，只使用少量定位读取，不映射文件
+     */
+    private static Header readHeader(FileChannel channel, String audioPath) throws IOException {
+        ByteBuffer riff = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, riff, 0);
+        if (!isRiffWave(riff)) {
+            throw new IOException("不是有效的WAV文件: " + audioPath);
+        }
+
+        int format = -1;
+        int channels = 0;
+        int sampleRate = 0;
+        int bitsPerSample = 0;
+        long fileSize = channel.size();
+        long position = 12;
+        ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+        while (position + 8 <= fileSize) {
+            chunkHeader.clear();
+            readFully(channel, chunkHeader, position);
+            int chunkId = chunkHeader.getInt(0);
+            long chunkSize = Integer.toUnsignedLong(chunkHeader.getInt(4));
+            long body = position + 8;
+
+            if (chunkId == 0x20746D66) { // "fmt "
+                if (chunkSize < 16) {
+                    throw new IOException("WAV文件fmt块长度不足: " + audioPath);
+                }
+                ByteBuffer fmt = ByteBuffer.allocate((int) Math.min(chunkSize, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, fmt, body);
+                format = Short.toUnsignedInt(fmt.getShort(0));
+                channels = Short.toUnsignedInt(fmt.getShort(2));
+                sampleRate = fmt.getInt(4);
+                bitsPerSample = Short.toUnsignedInt(fmt.getShort(14));
+                if (format == WAVE_FORMAT_EXTENSIBLE && fmt.capacity() >= 26) {
+                    format = Short.toUnsignedInt(fmt.getShort(24));
+                }
+            } else if (chunkId == 0x61746164) { // "data"
+                if (format < 0) {
+                    throw new IOException("WAV文件缺少fmt块: " + audioPath);
+                }
+                if (format != WAVE_FORMAT_PCM) {
+                    throw new IOException("仅支持PCM编码的WAV文件: " + audioPath);
+                }
+                if (channels <= 0 || sampleRate <= 0 || bitsPerSample <= 0 || bitsPerSample % 8 != 0) {
+                    throw new IOException("WAV文件头参数无效: 声道" + channels + ", 采样率" + sampleRate
+                            + ", 位深" + bitsPerSample + ": " + audioPath);
+                }
+                // 流式写出的WAV可能未回填长度，以实际文件大小为准
+                long available = fileSize - body;
+                long size = (chunkSize == 0 || chunkSize > available) ? available : chunkSize;
+                int blockAlign = channels * bitsPerSample / 8;
+                size -= size % blockAlign;
+                return new Header(sampleRate, channels, bitsPerSample, body, size);
+            }
+
+            position = body + chunkSize + (chunkSize & 1);
+        }
+        throw new IOException("WAV文件缺少data块: " + audioPath);
+    }
+
+    /**
+     * 解析后的WAV文件头
+     */
+    private record Header(int sampleRate, int channels, int bitsPerSample, long dataOffset, long dataSize) {
+
+        int blockAlign() {
+            return channels * bitsPerSample / 8;
+        }
+    }
+
+    /**
+     * 生成标准44字节PCM WAV文件头
+     */
+    public static ByteBuffer createHeader(int sampleRate, int channels, int bitsPerSample, long dataSize) {
+        int blockAlign = channels * bitsPerSample / 8;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0x46464952);                     // "RIFF"
+        header.putInt((int) (36 + dataSize));
+        header.putInt(0x45564157);                     // "WAVE"
+        header.putInt(0x20746D66);                     // "fmt "
+        header.putInt(16);
+        header.putShort((short) WAVE_FORMAT_PCM);
+        header.putShort((short) channels);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) bitsPerSample);
+        header.putInt(0x61746164);                     // "data"
+        header.putInt((int) dataSize);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * 获取指定帧区间的PCM数据只读视图（不复制数据）
+     * @param startFrame 起始帧（每帧包含所有声道的一个采样）
+     * @param frameCount 帧数，超出文件末尾时自动截断
+     */
+    public ByteBuffer slice(long startFrame, long frameCount) {
+        long start = Math.min(startFrame * getBlockAlign(), dataSize);
+        long end = Math.min(start + frameCount * getBlockAlign(), dataSize);
+        return data.slice((int) start, (int) (end - start)).order(ByteOrder.LITTLE_ENDIAN).asReadOnlyBuffer();
+    }
+
+    /**
+     * 将指定帧区间写出为独立的WAV文件
+     * @return 写入的PCM数据字节数
+     */
+    public long writeChunk(long startFrame, long frameCount, Path target) throws IOException {
+        ByteBuffer pcm = slice(startFrame, frameCount);
+        long size = pcm.remaining();
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = createHeader(sampleRate, channels, bitsPerSample, size);
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            while (pcm.hasRemaining()) {
+                out.write(pcm);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 将指定帧区间生成为内存中的完整WAV字节数组
+     */
+    public byte[] toWavBytes(long startFrame, long frameCount) {
+        ByteBuffer pcm = slice(startFrame, frameCount);
+        byte[] bytes = new byte[HEADER_SIZE + pcm.remaining()];
+        createHeader(sampleRate, channels, bitsPerSample, pcm.remaining()).get(bytes, 0, HEADER_SIZE);
+        pcm.get(bytes, HEADER_SIZE, pcm.remaining());
+        return bytes;
+    }
+
+    /**
+     * 将PCM数据直接写为WAV文件
+     */
+    public static void write(Path target, ByteBuffer pcm, int sampleRate, int channels, int bitsPerSample) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = createHeader(sampleRate, channels, bitsPerSample, pcm.remaining());
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            while (pcm.hasRemaining()) {
+                out.write(pcm);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("WAV文件头不完整");
+            }
+        }
+        buffer.flip();
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getBitsPerSample() {
+        return bitsPerSample;
+    }
+
+    public int getBlockAlign() {
+        return channels * bitsPerSample / 8;
+    }
+
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    public long getDataSize() {
+        return dataSize;
+    }
+
+    /**
+     * 总帧数
+     */
+    public long getFrameCount() {
+        return dataSize / getBlockAlign();
+    }
+
+    /**
+     * 音频时长（秒）
+     */
+    public double getDuration() {
+        return getFrameCount() / (double) sampleRate;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
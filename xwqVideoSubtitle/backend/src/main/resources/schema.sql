@@ -10,9 +10,16 @@ CREATE TABLE videos (
     title VARCHAR(255) NOT NULL,
     file_name VARCHAR(255) NOT NULL,
     file_path VARCHAR(500) NOT NULL,
+    origin_node VARCHAR(255) COMMENT '存储视频文件的节点地址，NULL表示旧数据',
     file_size BIGINT,
     duration VARCHAR(20),
     format VARCHAR(20),
+    duration_seconds DOUBLE COMMENT '时长（秒）',
+    has_audio TINYINT(1) COMMENT '是否包含音频流，NULL表示未探测',
+    audio_codec VARCHAR(32) COMMENT '音频编码',
+    audio_sample_rate INT COMMENT '音频采样率（Hz）',
+    audio_channels INT COMMENT '音频声道数',
+    bit_rate BIGINT COMMENT '容器总码率（bit/s）',
     status TINYINT DEFAULT 0 COMMENT '0: 上传中, 1: 完成, 2: 处理中, 3: 失败',
     progress INT DEFAULT 0 COMMENT '处理进度百分比',
     error_message TEXT,
@@ -32,6 +39,7 @@ CREATE TABLE subtitles (
     duration INT COMMENT '总时长（秒）',
     segment_count INT,
     file_path VARCHAR(500),
+    max_segment_ms BIGINT COMMENT '最长片段时长（毫秒），为空表示片段尚未写入 subtitle_segments',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (video_id) REFERENCES videos(id) ON DELETE CASCADE
@@ -43,18 +51,73 @@ CREATE INDEX idx_language ON subtitles(language);
 CREATE INDEX idx_status ON subtitles(status);
 CREATE INDEX idx_created_at ON subtitles(created_at);
 
+-- 创建字幕片段表（按时间窗口和游标分页读取）
+CREATE TABLE subtitle_segments (
+    subtitle_id BIGINT NOT NULL,
+    start_ms BIGINT NOT NULL COMMENT '开始时间（毫秒）',
+    seq INT NOT NULL COMMENT '片段在字幕中的序号（从0开始）',
+    end_ms BIGINT NOT NULL COMMENT '结束时间（毫秒）',
+    text TEXT NOT NULL,
+    confidence DOUBLE COMMENT '置信度（0-1）',
+    speaker INT COMMENT '说话人标识',
+    PRIMARY KEY (subtitle_id, start_ms, seq),
+    FOREIGN KEY (subtitle_id) REFERENCES subtitles(id) ON DELETE CASCADE
+);
+
 -- 创建任务记录表（用于异步任务跟踪）
 CREATE TABLE task_records (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     task_id VARCHAR(100) NOT NULL UNIQUE,
     task_type VARCHAR(50) NOT NULL COMMENT '任务类型：subtitle_generate, audio_extract等',
     video_id BIGINT,
-    status TINYINT DEFAULT 0 COMMENT '0: 进行中, 1: 完成, 2: 失败',
+    status TINYINT DEFAULT 0 COMMENT '0: 进行中, 1: 完成, 2: 失败, 3: 排队中',
     progress INT DEFAULT 0,
     message TEXT,
     error_message TEXT,
+    payload TEXT COMMENT '任务参数（JSON）',
+    origin_node VARCHAR(255) COMMENT '接收任务的节点地址',
+    media_path VARCHAR(500) COMMENT '媒体文件在来源节点上的路径',
+    worker_id VARCHAR(128) COMMENT '当前持有任务的执行节点',
+    lease_until DATETIME COMMENT '租约到期时间',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已被领取次数',
+    dedupe_key VARCHAR(255) COMMENT '去重键，仅排队或执行中的任务有值',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_task_queue (task_type, status, lease_until),
+    UNIQUE KEY uk_task_dedupe (dedupe_key)
+);
+
+-- 创建任务切片识别结果表（用于断点续传）
+CREATE TABLE task_chunk_results (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    task_id VARCHAR(100) NOT NULL COMMENT '任务ID',
+    start_frame BIGINT NOT NULL COMMENT '切片起始帧（含）',
+    end_frame BIGINT NOT NULL COMMENT '切片结束帧（不含）',
+    segments MEDIUMTEXT NOT NULL COMMENT '字幕片段（JSON），时间相对切片起点',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_task_chunk (task_id, start_frame, end_frame)
+);
+
+-- 创建流水线阶段产出表（输入未变的阶段重新执行时直接复用）
+CREATE TABLE stage_outputs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    stage VARCHAR(32) NOT NULL COMMENT '阶段名称',
+    input_key CHAR(64) NOT NULL COMMENT '阶段输入的SHA-256哈希',
+    video_id BIGINT NOT NULL COMMENT '产出所属视频',
+    output MEDIUMTEXT NOT NULL COMMENT '阶段产出（JSON）',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_stage_input (stage, input_key),
+    INDEX idx_video_id (video_id)
+);
+
+-- 创建音频指纹表（用于重复视频去重）
+CREATE TABLE audio_fingerprints (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    hash_value BIGINT NOT NULL COMMENT '频谱峰值三元组哈希',
+    video_id BIGINT NOT NULL,
+    frame INT NOT NULL COMMENT '锚点峰值所在帧（每帧32ms）',
+    INDEX idx_hash_video_frame (hash_value, video_id, frame),
+    INDEX idx_video_id (video_id)
 );
 
 -- 插入基础数据
@@ -0,0 +1,133 @@
+package com.subtitle.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveRateLimiterTest {
+
+    private static final long LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    @Test
+    void limitsConcurrencyUntilPermitsAreReturned() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 2, 0);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onError();
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void limitsRequestRateWithTokenBucket() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 100, 20);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire(), "第" + i + "个请求");
+        }
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(150);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void acquireWaitsForReleasedPermit() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 1, 0);
+        assertTrue(limiter.tryAcquire());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                limiter.acquire();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        limiter.onSuccess(LATENCY_NANOS);
+        assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    @Test
+    void timedTryAcquireGivesUpAfterTimeout() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 1, 0);
+        assertTrue(limiter.tryAcquire());
+
+        long start = System.nanoTime();
+        assertFalse(limiter.tryAcquire(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        Thread.ofVirtual().start(() -> limiter.onError());
+        assertTrue(limiter.tryAcquire(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rateLimitHalvesConcurrencyOncePerWindow() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 8, 0);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+
+        limiter.onRateLimited(Duration.ZERO);
+        assertEquals(4, limiter.getLimit());
+
+        // 同一批在途请求的后续限流不再继续减半
+        limiter.onRateLimited(Duration.ZERO);
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void pausesForRetryAfter() throws InterruptedException {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 4, 0);
+        assertTrue(limiter.tryAcquire());
+
+        limiter.onRateLimited(Duration.ofMillis(200));
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(300);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void successesRestoreConcurrencyUpToMaximum() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 4, 0);
+        assertTrue(limiter.tryAcquire());
+        limiter.onRateLimited(Duration.ZERO);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(LATENCY_NANOS);
+        }
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void risingLatencyStopsConcurrencyGrowth() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter("test", 4, 0);
+        assertTrue(limiter.tryAcquire());
+        limiter.onRateLimited(Duration.ZERO);
+        assertTrue(limiter.tryAcquire());
+        limiter.onSuccess(LATENCY_NANOS);
+        int before = limiter.getLimit();
+
+        // 延迟升到最小延迟的十倍后视为拥塞，不再增加并发
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.onSuccess(LATENCY_NANOS * 10);
+        }
+        assertEquals(before, limiter.getLimit());
+    }
+}
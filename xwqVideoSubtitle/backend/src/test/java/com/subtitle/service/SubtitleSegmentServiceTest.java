@@ -0,0 +1,167 @@
+package com.subtitle.service;
+
+import com.baomidou.mybatisplus.test.autoconfigure.MybatisPlusTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subtitle.dto.SegmentPage;
+import com.subtitle.entity.Subtitle;
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.mapper.SubtitleMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * SubtitleSegmentService 时间窗口与游标分页测试
+ * 片段表落在 H2（MySQL 兼容模式）上，同时覆盖 SubtitleSegmentMapper.selectWindow 的 SQL
+ */
+@MybatisPlusTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:subtitle_segments;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:subtitle-segments-schema.sql"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SubtitleSegmentService.class, ObjectMapper.class})
+class SubtitleSegmentServiceTest {
+
+    @Autowired
+    private SubtitleSegmentService subtitleSegmentService;
+
+    @Autowired
+    private SubtitleMapper subtitleMapper;
+
+    private Long subtitleId;
+
+    /**
+     * 片段（序号从1开始）：
+     * 1: 0-1s，2: 1-9s（最长片段8秒），3/4/5: 均从5s开始（开始时间相同，按序号排序），6: 10-11s
+     */
+    @BeforeEach
+    void setUp() {
+        subtitleId = insertSubtitle(1, "[]");
+        subtitleSegmentService.saveSegments(subtitleId, List.of(
+                segment(0, 1, "a"),
+                segment(1, 9, "long"),
+                segment(5, 6, "tie-1"),
+                segment(5, 5.5, "tie-2"),
+                segment(5, 7, "tie-3"),
+                segment(10, 11, "c")));
+    }
+
+    @Test
+    void includesSegmentStartingBeforeWindow() {
+        // 片段2在窗口开始前7秒开始，仍与 [8s, 10.5s) 重叠；5s开始的片段在8s前结束，不应返回
+        SegmentPage page = subtitleSegmentService.getSegments(subtitleId, 8.0, 10.5, null, 10);
+
+        assertEquals(List.of(2, 6), indexes(page.getSegments()));
+        assertNull(page.getNextCursor());
+        assertEquals(1.0, page.getSegments().get(0).getStartTime());
+        assertEquals(9.0, page.getSegments().get(0).getEndTime());
+    }
+
+    @Test
+    void excludesSegmentEndingAtWindowStart() {
+        // 窗口为左闭右开，1s结束的片段1与 [1s, 2s) 不重叠
+        SegmentPage page = subtitleSegmentService.getSegments(subtitleId, 1.0, 2.0, null, 10);
+
+        assertEquals(List.of(2), indexes(page.getSegments()));
+    }
+
+    @Test
+    void ordersTiesBySeq() {
+        SegmentPage page = subtitleSegmentService.getSegments(subtitleId, 5.0, 6.0, null, 10);
+
+        assertEquals(List.of(2, 3, 4, 5), indexes(page.getSegments()));
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void pagesAcrossTieWithoutGapsOrDuplicates() {
+        // 第一页在开始时间相同的片段中间截断，游标需带上序号才能续读
+        SegmentPage first = subtitleSegmentService.getSegments(subtitleId, 5.0, 6.0, null, 2);
+        assertEquals(List.of(2, 3), indexes(first.getSegments()));
+        assertEquals("5000:2", first.getNextCursor());
+
+        SegmentPage second = subtitleSegmentService.getSegments(subtitleId, 5.0, 6.0, first.getNextCursor(), 2);
+        assertEquals(List.of(4, 5), indexes(second.getSegments()));
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void pagesThroughWholeSubtitleOneByOne() {
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            SegmentPage page = subtitleSegmentService.getSegments(subtitleId, null, null, cursor, 1);
+            seen.addAll(indexes(page.getSegments()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 10);
+
+        assertEquals(List.of(1, 2, 3, 4, 5, 6), seen);
+        assertEquals(seen, indexes(subtitleSegmentService.getAllSegments(subtitleMapper.selectById(subtitleId))));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        for (String cursor : List.of("abc", "5000", "5000:x", "x:1", ":")) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> subtitleSegmentService.getSegments(subtitleId, null, null, cursor, 10), cursor);
+        }
+    }
+
+    @Test
+    void returnsEmptyPageUntilSubtitleIsComplete() {
+        Long pendingId = insertSubtitle(0, "[]");
+
+        SegmentPage page = subtitleSegmentService.getSegments(pendingId, null, null, null, 10);
+
+        assertTrue(page.getSegments().isEmpty());
+        assertNull(page.getNextCursor());
+        assertNull(subtitleSegmentService.getSegments(-1L, null, null, null, 10));
+    }
+
+    @Test
+    void indexesLegacyContentOnFirstRead() {
+        Long legacyId = insertSubtitle(1,
+                "[{\"index\":1,\"startTime\":0.5,\"endTime\":2.0,\"text\":\"旧字幕\"},"
+                        + "{\"index\":2,\"startTime\":3.0,\"endTime\":3.5,\"text\":\"第二条\"}]");
+
+        SegmentPage page = subtitleSegmentService.getSegments(legacyId, 1.0, 4.0, null, 10);
+
+        assertEquals(List.of(1, 2), indexes(page.getSegments()));
+        assertEquals("旧字幕", page.getSegments().get(0).getText());
+        assertEquals(1500L, subtitleMapper.selectById(legacyId).getMaxSegmentMs());
+    }
+
+    private Long insertSubtitle(int status, String content) {
+        Subtitle subtitle = new Subtitle().setVideoId(1L).setLanguage("zh-CN").setContent(content).setStatus(status);
+        subtitleMapper.insert(subtitle);
+        return subtitle.getId();
+    }
+
+    private static SubtitleSegment segment(double start, double end, String text) {
+        SubtitleSegment segment = new SubtitleSegment();
+        segment.setStartTime(start);
+        segment.setEndTime(end);
+        segment.setText(text);
+        return segment;
+    }
+
+    private static List<Integer> indexes(List<SubtitleSegment> segments) {
+        return segments.stream().map(SubtitleSegment::getIndex).toList();
+    }
+}
@@ -0,0 +1,165 @@
+package com.subtitle.service.impl;
+
+import com.subtitle.config.SttRoutingConfig;
+import com.subtitle.entity.SubtitleSegment;
+import com.subtitle.service.AdaptiveRateLimiter;
+import com.subtitle.service.ChunkedTranscriptionService;
+import com.subtitle.service.SttCapabilities;
+import com.subtitle.service.SttService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingSttServiceImplTest {
+
+    private static final Resource AUDIO = new ByteArrayResource(new byte[16]);
+
+    private final FakeProvider first = new FakeProvider("first");
+    private final FakeProvider second = new FakeProvider("second");
+    private final ChunkedTranscriptionService chunkedTranscriptionService = new ChunkedTranscriptionService();
+    private final RoutingSttServiceImpl router = new RoutingSttServiceImpl();
+
+    @BeforeEach
+    void setUp() {
+        SttRoutingConfig routingConfig = new SttRoutingConfig();
+        routingConfig.setProviders(List.of("second"));
+        routingConfig.setHedgeEnabled(false);
+        ReflectionTestUtils.setField(router, "sttServices", List.of(first, second));
+        ReflectionTestUtils.setField(router, "routingConfig", routingConfig);
+        ReflectionTestUtils.setField(router, "chunkedTranscriptionService", chunkedTranscriptionService);
+        ReflectionTestUtils.setField(router, "primaryProvider", "first");
+        router.init();
+    }
+
+    @Test
+    void routesToBestProviderWithFreePermit() throws Exception {
+        CompletableFuture<List<SubtitleSegment>> result = router.transcribeChunkAsync(AUDIO, "zh");
+
+        first.nextCall().complete(List.of());
+        assertNotNull(result.get(1, TimeUnit.SECONDS));
+        assertNull(second.calls.poll());
+    }
+
+    @Test
+    void skipsSaturatedProviderInsteadOfQueueingBehindIt() throws Exception {
+        assertTrue(limiter(first).tryAcquire());
+
+        CompletableFuture<List<SubtitleSegment>> result = router.transcribeChunkAsync(AUDIO, "zh");
+
+        second.nextCall().complete(List.of());
+        assertNotNull(result.get(1, TimeUnit.SECONDS));
+        assertNull(first.calls.poll());
+    }
+
+    @Test
+    void waitsWithoutBlockingCallerWhenAllProvidersAreSaturated() throws Exception {
+        AdaptiveRateLimiter secondLimiter = limiter(second);
+        assertTrue(limiter(first).tryAcquire());
+        assertTrue(secondLimiter.tryAcquire());
+
+        long start = System.nanoTime();
+        CompletableFuture<List<SubtitleSegment>> result = router.transcribeChunkAsync(AUDIO, "zh");
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertFalse(result.isDone());
+        assertNull(first.calls.poll(100, TimeUnit.MILLISECONDS));
+
+        // 次优服务商先空出额度，请求发往该服务商
+        secondLimiter.onError();
+        second.nextCall().complete(List.of());
+        assertNotNull(result.get(1, TimeUnit.SECONDS));
+        assertNull(first.calls.poll());
+    }
+
+    @Test
+    void failsOverToNextProvider() throws Exception {
+        CompletableFuture<List<SubtitleSegment>> result = router.transcribeChunkAsync(AUDIO, "zh");
+
+        first.nextCall().completeExceptionally(new RuntimeException("boom"));
+        List<SubtitleSegment> segments = List.of(new SubtitleSegment());
+        second.nextCall().complete(segments);
+
+        assertSame(segments, result.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failsWhenEveryProviderFails() throws Exception {
+        CompletableFuture<List<SubtitleSegment>> result = router.transcribeChunkAsync(AUDIO, "zh");
+        RuntimeException error = new RuntimeException("boom");
+
+        first.nextCall().completeExceptionally(error);
+        second.nextCall().completeExceptionally(new RuntimeException("again"));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertSame(error, thrown.getCause());
+        // 失败请求已归还各自服务商的许可
+        assertTrue(limiter(first).tryAcquire());
+        assertTrue(limiter(second).tryAcquire());
+    }
+
+    private AdaptiveRateLimiter limiter(FakeProvider provider) {
+        return chunkedTranscriptionService.getLimiter(provider.getCapabilities());
+    }
+
+    /**
+     * 只记录请求、由测试决定何时返回的服务商
+     */
+    private static final class FakeProvider implements SttService {
+
+        private final SttCapabilities capabilities;
+        private final LinkedBlockingQueue<CompletableFuture<List<SubtitleSegment>>> calls = new LinkedBlockingQueue<>();
+
+        FakeProvider(String name) {
+            this.capabilities = new SttCapabilities().setProvider(name).setMaxConcurrency(1);
+        }
+
+        CompletableFuture<List<SubtitleSegment>> nextCall() throws InterruptedException {
+            CompletableFuture<List<SubtitleSegment>> call = calls.poll(2, TimeUnit.SECONDS);
+            assertNotNull(call, capabilities.getProvider() + " 未收到请求");
+            return call;
+        }
+
+        @Override
+        public CompletableFuture<List<SubtitleSegment>> transcribeChunkAsync(Resource audio, String language) {
+            CompletableFuture<List<SubtitleSegment>> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        @Override
+        public List<SubtitleSegment> transcribeChunk(Resource audio, String language) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<SubtitleSegment> transcribeFile(String audioPath, String language) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transcribeStream(InputStream audioStream, String language, Consumer<SubtitleSegment> callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SttCapabilities getCapabilities() {
+            return capabilities;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.subtitle.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AudioChunkPlanner 切片规划测试
+ * 用生成的音调与静音缓冲区校验切片时长上限、切点位置和语音覆盖
+ */
+class AudioChunkPlannerTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private static final double MAX_CHUNK_SECONDS = 10;
+
+    private static final long MAX_CHUNK_FRAMES = (long) (MAX_CHUNK_SECONDS * SAMPLE_RATE);
+
+    @Test
+    void splitsLongContinuousToneWithinMaxDuration() {
+        short[] pcm = synthesize(new double[][]{{0, 35}}, 35);
+
+        List<AudioChunk> chunks = AudioChunkPlanner.plan(ShortBuffer.wrap(pcm), SAMPLE_RATE, MAX_CHUNK_SECONDS);
+
+        assertTrue(chunks.size() >= 4, "切片数: " + chunks.size());
+        assertWithinMax(chunks);
+        // 连续语音切开后首尾相接，不丢采样
+        assertEquals(0, chunks.get(0).startFrame());
+        for (int i = 1; i < chunks.size(); i++) {
+            assertEquals(chunks.get(i - 1).endFrame(), chunks.get(i).startFrame());
+        }
+        assertEquals(pcm.length, chunks.get(chunks.size() - 1).endFrame());
+    }
+
+    @Test
+    void cutsFallInsideSilentGaps() {
+        // 3秒语音、1.5秒停顿交替，停顿可合并，切点只能落在停顿里
+        double[][] speech = new double[12][];
+        for (int i = 0; i < speech.length; i++) {
+            speech[i] = new double[]{1 + i * 4.5, 4 + i * 4.5};
+        }
+        short[] pcm = synthesize(speech, 56);
+
+        List<AudioChunk> chunks = AudioChunkPlanner.plan(ShortBuffer.wrap(pcm), SAMPLE_RATE, MAX_CHUNK_SECONDS);
+
+        assertTrue(chunks.size() > 1, "切片数: " + chunks.size());
+        assertWithinMax(chunks);
+        for (AudioChunk chunk : chunks) {
+            for (double[] region : speech) {
+                long start = seconds(region[0]);
+                long end = seconds(region[1]);
+                assertFalse(chunk.startFrame() > start && chunk.startFrame() < end,
+                        "切片 " + chunk.index() + " 起点落在语音 " + region[0] + "-" + region[1] + " 内");
+                assertFalse(chunk.endFrame() > start && chunk.endFrame() < end,
+                        "切片 " + chunk.index() + " 终点落在语音 " + region[0] + "-" + region[1] + " 内");
+            }
+        }
+        assertCovers(chunks, speech);
+    }
+
+    @Test
+    void skipsLongSilenceBetweenSpeech() {
+        double[][] speech = {{1, 3}, {20, 22}};
+        short[] pcm = synthesize(speech, 30);
+
+        List<AudioChunk> chunks = AudioChunkPlanner.plan(ShortBuffer.wrap(pcm), SAMPLE_RATE, MAX_CHUNK_SECONDS);
+
+        assertEquals(2, chunks.size());
+        assertCovers(chunks, speech);
+        long uploaded = chunks.stream().mapToLong(AudioChunk::getFrameCount).sum();
+        assertTrue(uploaded < seconds(6), "上传帧数: " + uploaded);
+    }
+
+    @Test
+    void splitsOverlongSpeechAtQuietestFrame() {
+        // 16秒连续语音，7秒处有100毫秒短停顿（短于静音最小长度，仍判为语音），应在停顿处切开
+        short[] pcm = synthesize(new double[][]{{0, 7}, {7.1, 16}}, 16);
+
+        List<AudioChunk> chunks = AudioChunkPlanner.plan(ShortBuffer.wrap(pcm), SAMPLE_RATE, MAX_CHUNK_SECONDS);
+
+        assertEquals(2, chunks.size());
+        long cut = chunks.get(0).endFrame();
+        assertTrue(cut >= seconds(7) && cut < seconds(7.1), "切点: " + cut);
+        assertEquals(cut, chunks.get(1).startFrame());
+    }
+
+    @Test
+    void allSilenceProducesNoChunks() {
+        assertTrue(AudioChunkPlanner.plan(ShortBuffer.wrap(new short[SAMPLE_RATE * 20]), SAMPLE_RATE, MAX_CHUNK_SECONDS)
+                .isEmpty());
+        assertTrue(AudioChunkPlanner.plan(ShortBuffer.wrap(synthesize(new double[0][], 20)), SAMPLE_RATE,
+                MAX_CHUNK_SECONDS).isEmpty());
+        assertTrue(AudioChunkPlanner.plan(ShortBuffer.wrap(new short[0]), SAMPLE_RATE, MAX_CHUNK_SECONDS).isEmpty());
+    }
+
+    @Test
+    void fixedPlanCoversAllFrames() {
+        long totalFrames = MAX_CHUNK_FRAMES * 3 + 123;
+
+        List<AudioChunk> chunks = AudioChunkPlanner.planFixed(totalFrames, SAMPLE_RATE, MAX_CHUNK_SECONDS);
+
+        assertEquals(4, chunks.size());
+        long position = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            assertEquals(i, chunks.get(i).index());
+            assertEquals(position, chunks.get(i).startFrame());
+            position = chunks.get(i).endFrame();
+        }
+        assertEquals(totalFrames, position);
+        assertEquals(123, chunks.get(3).getFrameCount());
+        assertTrue(AudioChunkPlanner.planFixed(0, SAMPLE_RATE, MAX_CHUNK_SECONDS).isEmpty());
+    }
+
+    private static void assertWithinMax(List<AudioChunk> chunks) {
+        long previousEnd = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            AudioChunk chunk = chunks.get(i);
+            assertEquals(i, chunk.index());
+            assertTrue(chunk.getFrameCount() > 0 && chunk.getFrameCount() <= MAX_CHUNK_FRAMES,
+                    "切片 " + i + " 帧数: " + chunk.getFrameCount());
+            assertTrue(chunk.startFrame() >= previousEnd, "切片 " + i + " 与前一个切片重叠");
+            previousEnd = chunk.endFrame();
+        }
+    }
+
+    private static void assertCovers(List<AudioChunk> chunks, double[][] speech) {
+        for (double[] region : speech) {
+            long start = seconds(region[0]);
+            long end = seconds(region[1]);
+            assertTrue(chunks.stream().anyMatch(chunk -> chunk.startFrame() <= start && chunk.endFrame() >= end),
+                    "语音 " + region[0] + "-" + region[1] + " 未被单个切片覆盖");
+        }
+    }
+
+    private static long seconds(double seconds) {
+        return (long) (seconds * SAMPLE_RATE);
+    }
+
+    /**
+     * 生成语音（双音调加噪声）与静音（低电平噪声）交替的采样
+     */
+    static short[] synthesize(double[][] speech, double totalSeconds) {
+        Random random = new Random(42);
+        short[] pcm = new short[(int) seconds(totalSeconds)];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (random.nextGaussian() * 10);
+        }
+        for (double[] region : speech) {
+            int end = (int) Math.min(pcm.length, seconds(region[1]));
+            for (int i = (int) seconds(region[0]); i < end; i++) {
+                double t = i / (double) SAMPLE_RATE;
+                pcm[i] = (short) (5000 * Math.sin(2 * Math.PI * 220 * t) + 2000 * Math.sin(2 * Math.PI * 1370 * t)
+                        + random.nextGaussian() * 300);
+            }
+        }
+        return pcm;
+    }
+}
@@ -0,0 +1,266 @@
+package com.subtitle.utils;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileDownloadUtilsTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String ETAG = "\"abc\"";
+
+    private static final String CONTENT_TYPE = "text/plain";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sendsFullContentWithCacheHeaders() throws IOException {
+        MockHttpServletResponse response = send(get());
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+        assertEquals(CONTENT.length, response.getContentLengthLong());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        assertTrue(response.getHeader(HttpHeaders.CONTENT_DISPOSITION).startsWith("attachment"));
+    }
+
+    @Test
+    void sendsRequestedRange() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void sendsSuffixAndOpenEndedRanges() throws IOException {
+        MockHttpServletRequest suffix = get();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        MockHttpServletResponse suffixResponse = send(suffix);
+        assertEquals("bytes 7-9/10", suffixResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("789", suffixResponse.getContentAsString());
+
+        MockHttpServletRequest openEnded = get();
+        openEnded.addHeader(HttpHeaders.RANGE, "bytes=8-100");
+        MockHttpServletResponse openEndedResponse = send(openEnded);
+        assertEquals("bytes 8-9/10", openEndedResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("89", openEndedResponse.getContentAsString());
+    }
+
+    @Test
+    void rejectsUnsatisfiableRange() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void sendsFullContentForMultipleOrMalformedRanges() throws IOException {
+        for (String range : new String[]{"bytes=0-1,4-5", "bytes=abc", "items=0-1"}) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.RANGE, range);
+
+            MockHttpServletResponse response = send(request);
+
+            assertEquals(HttpServletResponse.SC_OK, response.getStatus(), range);
+            assertArrayEquals(CONTENT, response.getContentAsByteArray(), range);
+        }
+    }
+
+    @Test
+    void honoursRangeOnlyWhenIfRangeMatches() throws IOException {
+        MockHttpServletRequest matching = get();
+        matching.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        matching.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        MockHttpServletResponse matchingResponse = send(matching);
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, matchingResponse.getStatus());
+        assertEquals("01", matchingResponse.getContentAsString());
+
+        // 内容已变化：忽略Range，返回完整的新内容
+        MockHttpServletRequest stale = get();
+        stale.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+        MockHttpServletResponse staleResponse = send(stale);
+        assertEquals(HttpServletResponse.SC_OK, staleResponse.getStatus());
+        assertNull(staleResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(CONTENT, staleResponse.getContentAsByteArray());
+    }
+
+    @Test
+    void returnsNotModifiedForMatchingEtag() throws IOException {
+        for (String ifNoneMatch : new String[]{ETAG, "W/" + ETAG, "\"other\", \"abc-gzip\"", "*"}) {
+            MockHttpServletRequest request = get();
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+            request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+
+            MockHttpServletResponse response = send(request);
+
+            assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus(), ifNoneMatch);
+            assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG), ifNoneMatch);
+            assertEquals(0, response.getContentAsByteArray().length, ifNoneMatch);
+        }
+
+        MockHttpServletRequest other = get();
+        other.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        assertEquals(HttpServletResponse.SC_OK, send(other).getStatus());
+    }
+
+    @Test
+    void compressesLargeContentWhenAccepted() throws IOException {
+        byte[] content = new byte[4096];
+        Arrays.fill(content, (byte) 'a');
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileDownloadUtils.send(content, ETAG, -1, CONTENT_TYPE, "a.txt", request, response);
+
+        assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("\"abc-gzip\"", response.getHeader(HttpHeaders.ETAG));
+        assertArrayEquals(content, gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    void skipsCompressionForSmallContentRangesAndRefusedGzip() throws IOException {
+        byte[] content = new byte[4096];
+
+        MockHttpServletRequest small = get();
+        small.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        assertNull(send(small).getHeader(HttpHeaders.CONTENT_ENCODING));
+
+        MockHttpServletRequest ranged = get();
+        ranged.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        ranged.addHeader(HttpHeaders.RANGE, "bytes=0-9");
+        MockHttpServletResponse rangedResponse = new MockHttpServletResponse();
+        FileDownloadUtils.send(content, ETAG, -1, CONTENT_TYPE, "a.txt", ranged, rangedResponse);
+        assertNull(rangedResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(10, rangedResponse.getContentAsByteArray().length);
+
+        MockHttpServletRequest refused = get();
+        refused.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity");
+        MockHttpServletResponse refusedResponse = new MockHttpServletResponse();
+        FileDownloadUtils.send(content, ETAG, -1, CONTENT_TYPE, "a.txt", refused, refusedResponse);
+        assertNull(refusedResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(content.length, refusedResponse.getContentAsByteArray().length);
+    }
+
+    @Test
+    void headRequestWritesHeadersOnly() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/download");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals(CONTENT.length, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void sendsFileRangeWithFileEtag() throws IOException {
+        File file = Files.write(tempDir.resolve("a.srt"), CONTENT).toFile();
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=3-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileDownloadUtils.send(file, CONTENT_TYPE, "a.srt", request, response);
+
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("3456789", response.getContentAsString());
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        assertEquals("\"a-" + Long.toHexString(file.lastModified()) + "\"", etag);
+
+        MockHttpServletRequest revalidate = get();
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        FileDownloadUtils.send(file, CONTENT_TYPE, "a.srt", revalidate, notModified);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, notModified.getStatus());
+    }
+
+    @Test
+    void streamsWithoutRangeSupport() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FileDownloadUtils.stream(ETAG, -1, CONTENT_TYPE, "a.txt", request, response, out -> out.write(CONTENT));
+
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("none", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void streamSkipsBodyWhenNotModified() throws IOException {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean[] written = new boolean[1];
+
+        FileDownloadUtils.stream(ETAG, -1, CONTENT_TYPE, "a.txt", request, response, out -> written[0] = true);
+
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertFalse(written[0]);
+    }
+
+    @Test
+    void checkNotModifiedOnlyMatchesCurrentEtag() {
+        MockHttpServletRequest request = get();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(FileDownloadUtils.checkNotModified(ETAG, request, response));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(ETAG, response.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+        assertFalse(FileDownloadUtils.checkNotModified("\"def\"", request, changed));
+        assertEquals(HttpServletResponse.SC_OK, changed.getStatus());
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/download");
+    }
+
+    private static MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileDownloadUtils.send(CONTENT, ETAG, -1, CONTENT_TYPE, "a.txt", request, response);
+        return response;
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.subtitle.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ShortBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FlacEncoder 往返测试
+ * 用只支持编码器所用子集（单声道16bit、CONSTANT/VERBATIM/FIXED子帧、4位Rice参数）的最小解码器还原采样，
+ * 同时校验帧头CRC-8与帧尾CRC-16
+ */
+class FlacEncoderTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    @Test
+    void roundTripsSpeechLikeSignal() throws IOException {
+        Random random = new Random(42);
+        short[] pcm = new short[SAMPLE_RATE * 2 + 123];
+        for (int i = 0; i < pcm.length; i++) {
+            double tone = 8000 * Math.sin(2 * Math.PI * 220 * i / SAMPLE_RATE)
+                    + 3000 * Math.sin(2 * Math.PI * 1375 * i / SAMPLE_RATE);
+            pcm[i] = (short) (tone + random.nextGaussian() * 200);
+        }
+        byte[] flac = encode(pcm);
+
+        assertArrayEquals(pcm, new Decoder(flac).decode());
+        // 平滑信号应明显小于原始PCM
+        assertTrue(flac.length < pcm.length * 2 * 3 / 4, "压缩后大小: " + flac.length);
+    }
+
+    @Test
+    void roundTripsSilenceAsConstantSubframes() throws IOException {
+        short[] pcm = new short[4096 * 3];
+        byte[] flac = encode(pcm);
+
+        assertArrayEquals(pcm, new Decoder(flac).decode());
+        // 头部42字节，每帧仅帧头、2字节常量与CRC
+        assertTrue(flac.length < 42 + 3 * 16, "压缩后大小: " + flac.length);
+    }
+
+    @Test
+    void roundTripsFullScaleNoise() throws IOException {
+        Random random = new Random(7);
+        short[] pcm = new short[5000];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) random.nextInt();
+        }
+        pcm[0] = Short.MIN_VALUE;
+        pcm[1] = Short.MAX_VALUE;
+
+        assertArrayEquals(pcm, new Decoder(encode(pcm)).decode());
+    }
+
+    @Test
+    void roundTripsShortAndOddSizedInput() throws IOException {
+        for (int length : new int[]{1, 2, 3, 5, 4095, 4097}) {
+            short[] pcm = new short[length];
+            for (int i = 0; i < length; i++) {
+                pcm[i] = (short) (i * 37 - 1000);
+            }
+            assertArrayEquals(pcm, new Decoder(encode(pcm)).decode(), "采样数: " + length);
+        }
+    }
+
+    @Test
+    void encodesFromBufferPositionWithoutMovingIt() throws IOException {
+        short[] pcm = new short[]{9, 9, 1, 2, 3, 4, 5};
+        ShortBuffer buffer = ShortBuffer.wrap(pcm);
+        buffer.position(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FlacEncoder.encode(buffer, SAMPLE_RATE, out);
+
+        assertEquals(2, buffer.position());
+        assertArrayEquals(new short[]{1, 2, 3, 4, 5}, new Decoder(out.toByteArray()).decode());
+    }
+
+    @Test
+    void writesStreamInfo() throws IOException {
+        Decoder decoder = new Decoder(encode(new short[10000]));
+        decoder.decode();
+
+        assertEquals(SAMPLE_RATE, decoder.sampleRate);
+        assertEquals(10000, decoder.totalSamples);
+    }
+
+    private static byte[] encode(short[] pcm) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FlacEncoder.encode(ShortBuffer.wrap(pcm), SAMPLE_RATE, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 最小FLAC解码器
+     */
+    private static final class Decoder {
+
+        private final byte[] data;
+        private int bitPosition;
+
+        private int sampleRate;
+        private long totalSamples;
+
+        Decoder(byte[] data) {
+            this.data = data;
+        }
+
+        short[] decode() {
+            assertEquals(0x664C6143, read(32), "fLaC标记");
+            assertEquals(1, read(1), "仅一个元数据块");
+            assertEquals(0, read(7), "STREAMINFO");
+            assertEquals(34, read(24));
+            read(16);
+            read(16);
+            read(24);
+            read(24);
+            sampleRate = read(20);
+            assertEquals(0, read(3), "单声道");
+            assertEquals(15, read(5), "16bit");
+            totalSamples = ((long) read(4) << 32) | (read(32) & 0xFFFFFFFFL);
+            bitPosition += 128;
+
+            short[] pcm = new short[(int) totalSamples];
+            int offset = 0;
+            long frameNumber = 0;
+            while (bitPosition < data.length * 8) {
+                offset += decodeFrame(pcm, offset, frameNumber++);
+            }
+            assertEquals(totalSamples, offset);
+            return pcm;
+        }
+
+        private int decodeFrame(short[] pcm, int offset, long expectedFrame) {
+            int frameStart = bitPosition / 8;
+            assertEquals(0x3FFE, read(14), "同步码");
+            assertEquals(0, read(2));
+            int sizeCode = read(4);
+            assertEquals(0, read(4), "采样率取自STREAMINFO");
+            assertEquals(0, read(4), "单声道");
+            assertEquals(0b100, read(3), "16bit");
+            assertEquals(0, read(1));
+            assertEquals(expectedFrame, readUtf8());
+            int blockSize;
+            if (sizeCode == 0b1100) {
+                blockSize = 4096;
+            } else {
+                assertEquals(0b0111, sizeCode);
+                blockSize = read(16) + 1;
+            }
+            int headerEnd = bitPosition / 8;
+            assertEquals(crc8(frameStart, headerEnd), read(8), "帧头CRC-8");
+
+            int[] samples = decodeSubframe(blockSize);
+            for (int i = 0; i < blockSize; i++) {
+                pcm[offset + i] = (short) samples[i];
+            }
+
+            bitPosition = (bitPosition + 7) & ~7;
+            int frameEnd = bitPosition / 8;
+            assertEquals(crc16(frameStart, frameEnd), read(16), "帧尾CRC-16");
+            return blockSize;
+        }
+
+        private int[] decodeSubframe(int blockSize) {
+            int[] s = new int[blockSize];
+            assertEquals(0, read(1));
+            int type = read(6);
+            assertEquals(0, read(1), "无wasted bits");
+            if (type == 0) {
+                int value = readSigned(16);
+                for (int i = 0; i < blockSize; i++) {
+                    s[i] = value;
+                }
+                return s;
+            }
+            if (type == 1) {
+                for (int i = 0; i < blockSize; i++) {
+                    s[i] = readSigned(16);
+                }
+                return s;
+            }
+            assertEquals(0b001000, type & 0b111000, "FIXED子帧");
+            int order = type & 0b111;
+            for (int i = 0; i < order; i++) {
+                s[i] = readSigned(16);
+            }
+            assertEquals(0, read(2), "4位Rice参数");
+            int partitionOrder = read(4);
+            int partitionSize = blockSize >> partitionOrder;
+            int index = order;
+            for (int p = 0; p < 1 << partitionOrder; p++) {
+                int param = read(4);
+                for (int end = (p + 1) * partitionSize; index < end; index++) {
+                    int quotient = 0;
+                    while (read(1) == 0) {
+                        quotient++;
+                    }
+                    int folded = (quotient << param) | (param > 0 ? read(param) : 0);
+                    int residual = (folded >>> 1) ^ -(folded & 1);
+                    s[index] = residual + predict(s, index, order);
+                }
+            }
+            return s;
+        }
+
+        private static int predict(int[] s, int i, int order) {
+            switch (order) {
+                case 0:
+                    return 0;
+                case 1:
+                    return s[i - 1];
+                case 2:
+                    return 2 * s[i - 1] - s[i - 2];
+                case 3:
+                    return 3 * s[i - 1] - 3 * s[i - 2] + s[i - 3];
+                case 4:
+                    return 4 * s[i - 1] - 6 * s[i - 2] + 4 * s[i - 3] - s[i - 4];
+                default:
+                    throw new AssertionError("不支持的预测阶数: " + order);
+            }
+        }
+
+        private long readUtf8() {
+            int first = read(8);
+            if ((first & 0x80) == 0) {
+                return first;
+            }
+            int continuation = Integer.numberOfLeadingZeros(~first << 24) - 1;
+            long value = first & (0x3F >> continuation);
+            for (int i = 0; i < continuation; i++) {
+                int next = read(8);
+                assertEquals(0x80, next & 0xC0, "帧号续字节");
+                value = (value << 6) | (next & 0x3F);
+            }
+            return value;
+        }
+
+        private int readSigned(int bits) {
+            return read(bits) << (32 - bits) >> (32 - bits);
+        }
+
+        private int read(int bits) {
+            int value = 0;
+            for (int i = 0; i < bits; i++) {
+                int bit = (data[bitPosition >> 3] >> (7 - (bitPosition & 7))) & 1;
+                value = (value << 1) | bit;
+                bitPosition++;
+            }
+            return value;
+        }
+
+        private int crc8(int from, int to) {
+            int crc = 0;
+            for (int i = from; i < to; i++) {
+                crc ^= data[i] & 0xFF;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 0x80) != 0 ? ((crc << 1) ^ 0x07) & 0xFF : (crc << 1) & 0xFF;
+                }
+            }
+            return crc;
+        }
+
+        private int crc16(int from, int to) {
+            int crc = 0;
+            for (int i = from; i < to; i++) {
+                crc ^= (data[i] & 0xFF) << 8;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 0x8000) != 0 ? ((crc << 1) ^ 0x8005) & 0xFFFF : (crc << 1) & 0xFFFF;
+                }
+            }
+            return crc;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.subtitle.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnowflakeIdGeneratorTest {
+
+    /**
+     * 2024-01-01T00:00:00Z 之后一天
+     */
+    private static final long NOW = 1704067200000L + 86_400_000L;
+
+    @Test
+    void rejectsWorkerIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1));
+        new SnowflakeIdGenerator(0);
+        new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID);
+    }
+
+    @Test
+    void encodesTimestampAndWorkerId() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, () -> NOW);
+
+        long id = generator.nextId();
+
+        assertEquals(86_400_000L, id >>> 22);
+        assertEquals(5, (id >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID);
+        assertEquals(0, id & 0xFFF);
+    }
+
+    @Test
+    void borrowsNextMillisecondWhenSequenceIsExhausted() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> NOW);
+
+        long previous = generator.nextId();
+        for (int i = 1; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "第" + i + "个ID未递增");
+            previous = id;
+        }
+        // 同一毫秒内生成10000个ID需借用后面两个毫秒
+        assertEquals(86_400_002L, previous >>> 22);
+    }
+
+    @Test
+    void keepsIncreasingWhenClockMovesBackwards() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        long beforeSkew = generator.nextId();
+        clock.set(NOW - 5_000);
+        long afterSkew = generator.nextId();
+        clock.set(NOW + 1);
+        long recovered = generator.nextId();
+
+        assertTrue(afterSkew > beforeSkew);
+        assertTrue(recovered > afterSkew);
+        assertEquals(86_400_001L, recovered >>> 22);
+    }
+
+    @Test
+    void generatesUniqueIdsAcrossThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Set<Future<?>> futures = new HashSet<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(20_000, ids.size());
+    }
+}
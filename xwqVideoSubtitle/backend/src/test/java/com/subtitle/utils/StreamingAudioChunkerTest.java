@@ -0,0 +1,202 @@
+package com.subtitle.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * StreamingAudioChunker 窗口续接测试
+ * 最大切片10秒时窗口为22.5秒，语音区间跨越多个窗口边界；输入按奇数字节数分次读取，
+ * 校验切片不重叠、覆盖全部语音，且每个切片的音频与原始采样逐帧一致
+ */
+class StreamingAudioChunkerTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    private static final double MAX_CHUNK_SECONDS = 10;
+
+    /**
+     * 语音区间（秒），窗口边界在 22.5/45/67.5 秒处；6.5-21.5 超过最大切片时长需要切开，22-26、40-47、60-75 跨越窗口边界
+     */
+    private static final double[][] SPEECH = {
+            {1.0, 4.0}, {6.5, 21.5}, {22.0, 26.0}, {30.0, 31.0}, {40.0, 47.0}, {60.0, 75.0}, {88.0, 89.5}
+    };
+
+    private static final double TOTAL_SECONDS = 90.0;
+
+    @Test
+    void coversSpeechAcrossWindowsWithOddSizedReads() throws IOException {
+        short[] pcm = synthesize(SPEECH, TOTAL_SECONDS);
+        for (long seed : new long[]{1, 2, 3}) {
+            List<Emitted> emitted = new ArrayList<>();
+            long total = new StreamingAudioChunker(SAMPLE_RATE, MAX_CHUNK_SECONDS, "wav")
+                    .process(new ChoppyInputStream(toBytes(pcm), seed), (chunk, encoded) ->
+                            emitted.add(new Emitted(chunk, encoded)));
+
+            assertEquals(pcm.length, total, "seed " + seed);
+            assertChunks(pcm, SPEECH, emitted);
+        }
+    }
+
+    @Test
+    void sameChunksForSingleLargeRead() throws IOException {
+        short[] pcm = synthesize(SPEECH, TOTAL_SECONDS);
+        List<Emitted> emitted = new ArrayList<>();
+        long total = new StreamingAudioChunker(SAMPLE_RATE, MAX_CHUNK_SECONDS, "wav")
+                .process(new ByteArrayInputStream(toBytes(pcm)), (chunk, encoded) ->
+                        emitted.add(new Emitted(chunk, encoded)));
+
+        assertEquals(pcm.length, total);
+        assertChunks(pcm, SPEECH, emitted);
+    }
+
+    @Test
+    void silenceProducesNoChunks() throws IOException {
+        short[] pcm = synthesize(new double[0][], 50.0);
+        List<Emitted> emitted = new ArrayList<>();
+
+        long total = new StreamingAudioChunker(SAMPLE_RATE, MAX_CHUNK_SECONDS, "wav")
+                .process(new ChoppyInputStream(toBytes(pcm), 7), (chunk, encoded) ->
+                        emitted.add(new Emitted(chunk, encoded)));
+
+        assertEquals(pcm.length, total);
+        assertTrue(emitted.isEmpty());
+    }
+
+    @Test
+    void dropsTrailingOddByte() throws IOException {
+        double[][] speech = {{0.5, 2.0}};
+        short[] pcm = synthesize(speech, 3.0);
+        byte[] bytes = Arrays.copyOf(toBytes(pcm), pcm.length * 2 + 1);
+        List<Emitted> emitted = new ArrayList<>();
+
+        long total = new StreamingAudioChunker(SAMPLE_RATE, MAX_CHUNK_SECONDS, "wav")
+                .process(new ChoppyInputStream(bytes, 11), (chunk, encoded) -> emitted.add(new Emitted(chunk, encoded)));
+
+        assertEquals(pcm.length, total);
+        assertChunks(pcm, speech, emitted);
+    }
+
+    private static void assertChunks(short[] pcm, double[][] speech, List<Emitted> emitted) {
+        long maxChunkFrames = (long) (MAX_CHUNK_SECONDS * SAMPLE_RATE);
+        long previousEnd = 0;
+        for (int i = 0; i < emitted.size(); i++) {
+            AudioChunk chunk = emitted.get(i).chunk();
+            assertEquals(i, chunk.index());
+            assertTrue(chunk.startFrame() >= previousEnd, "切片 " + i + " 与前一个切片重叠");
+            assertTrue(chunk.endFrame() > chunk.startFrame(), "切片 " + i + " 为空");
+            assertTrue(chunk.getFrameCount() <= maxChunkFrames, "切片 " + i + " 超过最大时长");
+            assertTrue(chunk.endFrame() <= pcm.length);
+            previousEnd = chunk.endFrame();
+
+            // 切片音频必须与原始采样的同一区间一致，窗口移动的差一错误会在这里暴露
+            short[] expected = Arrays.copyOfRange(pcm, (int) chunk.startFrame(), (int) chunk.endFrame());
+            assertArrayEquals(expected, decodeWav(emitted.get(i).encoded()), "切片 " + i + " 音频不一致");
+        }
+        for (double[] region : speech) {
+            long start = (long) (region[0] * SAMPLE_RATE);
+            long end = Math.min(pcm.length, (long) (region[1] * SAMPLE_RATE));
+            if (start >= pcm.length) {
+                continue;
+            }
+            assertTrue(covered(emitted, start, end), "语音区间 " + region[0] + "-" + region[1] + " 未被完整覆盖");
+        }
+    }
+
+    /**
+     * 区间 [start, end) 是否被首尾相接的切片完整覆盖
+     */
+    private static boolean covered(List<Emitted> emitted, long start, long end) {
+        long position = start;
+        for (Emitted item : emitted) {
+            AudioChunk chunk = item.chunk();
+            if (chunk.startFrame() <= position && chunk.endFrame() > position) {
+                position = chunk.endFrame();
+            }
+            if (position >= end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成语音（双音调加噪声）与静音（低电平噪声）交替的采样
+     */
+    static short[] synthesize(double[][] speech, double totalSeconds) {
+        Random random = new Random(42);
+        short[] pcm = new short[(int) (totalSeconds * SAMPLE_RATE)];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (random.nextGaussian() * 10);
+        }
+        for (double[] region : speech) {
+            int start = (int) (region[0] * SAMPLE_RATE);
+            int end = Math.min(pcm.length, (int) (region[1] * SAMPLE_RATE));
+            for (int i = start; i < end; i++) {
+                double t = i / (double) SAMPLE_RATE;
+                pcm[i] = (short) (5000 * Math.sin(2 * Math.PI * 220 * t) + 2000 * Math.sin(2 * Math.PI * 1370 * t)
+                        + random.nextGaussian() * 300);
+            }
+        }
+        return pcm;
+    }
+
+    private static byte[] toBytes(short[] pcm) {
+        ByteBuffer buffer = ByteBuffer.allocate(pcm.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asShortBuffer().put(pcm);
+        return buffer.array();
+    }
+
+    private static short[] decodeWav(byte[] wav) {
+        short[] samples = new short[(wav.length - WavFile.HEADER_SIZE) / 2];
+        ByteBuffer.wrap(wav, WavFile.HEADER_SIZE, samples.length * 2).order(ByteOrder.LITTLE_ENDIAN)
+                .asShortBuffer().get(samples);
+        return samples;
+    }
+
+    private record Emitted(AudioChunk chunk, byte[] encoded) {
+    }
+
+    /**
+     * 每次只返回随机的奇数个字节，模拟管道读取，使采样经常跨两次读取
+     */
+    private static final class ChoppyInputStream extends InputStream {
+
+        private final byte[] data;
+        private final Random random;
+        private int position;
+
+        ChoppyInputStream(byte[] data, long seed) {
+            this.data = data;
+            this.random = new Random(seed);
+        }
+
+        @Override
+        public int read() {
+            return position < data.length ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= data.length) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, data.length - position), random.nextInt(20000) * 2 + 1);
+            System.arraycopy(data, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+    }
+}
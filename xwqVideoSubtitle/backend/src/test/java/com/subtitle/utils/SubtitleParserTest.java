@@ -0,0 +1,184 @@
+package com.subtitle.utils;
+
+import com.subtitle.entity.SubtitleSegment;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubtitleParserTest {
+
+    @Test
+    void parsesSrtWithCrlfAndBom() throws IOException {
+        String srt = "\uFEFF1\r\n00:00:01,000 --> 00:00:02,500\r\nHello\r\nWorld\r\n\r\n"
+                + "2\r\n00:00:03,000 --> 00:00:04,000\r\nSecond\r\n";
+
+        List<SubtitleSegment> segments = parse(srt, SubtitleRenderer.Format.SRT);
+
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 1, 1.0, 2.5, "Hello\nWorld");
+        assertSegment(segments.get(1), 2, 3.0, 4.0, "Second");
+    }
+
+    @Test
+    void parsesSrtWithoutIndexLines() throws IOException {
+        String srt = "00:00:01,000 --> 00:00:02,000\nFirst\n\n00:00:02,000 --> 00:00:03,000\nSecond\n";
+
+        List<SubtitleSegment> segments = parse(srt, SubtitleRenderer.Format.SRT);
+
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 1, 1.0, 2.0, "First");
+        assertSegment(segments.get(1), 2, 2.0, 3.0, "Second");
+    }
+
+    @Test
+    void splitsCuesWithoutBlankLineBetweenThem() throws IOException {
+        String srt = "1\n00:00:01,000 --> 00:00:02,000\nFirst\n2\n00:00:02,000 --> 00:00:03,000\nSecond\n";
+
+        List<SubtitleSegment> segments = parse(srt, SubtitleRenderer.Format.SRT);
+
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 1, 1.0, 2.0, "First");
+        assertSegment(segments.get(1), 2, 2.0, 3.0, "Second");
+    }
+
+    @Test
+    void skipsCuesWithMalformedTimes() throws IOException {
+        String srt = "1\n00:00:0x,000 --> 00:00:02,000\nBroken\n\n2\n00:00:03,000 --> 00:00:04,000\nValid\n";
+
+        List<SubtitleSegment> segments = parse(srt, SubtitleRenderer.Format.SRT);
+
+        assertEquals(1, segments.size());
+        assertSegment(segments.get(0), 1, 3.0, 4.0, "Valid");
+    }
+
+    @Test
+    void parsesVttSkippingHeaderNotesAndCueSettings() throws IOException {
+        String vtt = "WEBVTT - 标题\n\n"
+                + "NOTE 这是注释\n跨多行\n\n"
+                + "STYLE\n::cue { color: yellow }\n\n"
+                + "intro\n00:01.000 --> 00:02.250 align:start position:10%\n<v Speaker>你好\n\n"
+                + "01:00:00.000 --> 01:00:01.000\n结束\n";
+
+        List<SubtitleSegment> segments = parse(vtt, SubtitleRenderer.Format.VTT);
+
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 1, 1.0, 2.25, "<v Speaker>你好");
+        assertSegment(segments.get(1), 2, 3600.0, 3601.0, "结束");
+    }
+
+    @Test
+    void parsesAssUsingDeclaredFormatOrder() throws IOException {
+        String ass = "[Script Info]\nTitle: test\n\n"
+                + "[V4+ Styles]\nFormat: Name, Fontname\nStyle: Default,Arial\n\n"
+                + "[Events]\n"
+                + "Format: Layer, Style, End, Start, Text\n"
+                + "Comment: 0,Default,0:00:09.00,0:00:08.00,忽略\n"
+                + "Dialogue: 0,Default,0:00:02.50,0:00:01.00,{\\b1}第一行\\N第二行, 带逗号\n"
+                + "Dialogue: 0,Default,0:00:04.00,0:00:03.00,a\\hb\n";
+
+        List<SubtitleSegment> segments = parse(ass, SubtitleRenderer.Format.ASS);
+
+        assertEquals(2, segments.size());
+        assertSegment(segments.get(0), 1, 1.0, 2.5, "第一行\n第二行, 带逗号");
+        assertSegment(segments.get(1), 2, 3.0, 4.0, "a b");
+    }
+
+    @Test
+    void parsesAssWithDefaultFormat() throws IOException {
+        String ass = "[Events]\nDialogue: 0,0:00:01.00,0:00:02.00,Default,,0,0,0,,Text\n";
+
+        List<SubtitleSegment> segments = parse(ass, SubtitleRenderer.Format.ASS);
+
+        assertEquals(1, segments.size());
+        assertSegment(segments.get(0), 1, 1.0, 2.0, "Text");
+    }
+
+    @Test
+    void rejectsUnsupportedFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> parse("{}", SubtitleRenderer.Format.JSON));
+    }
+
+    @Test
+    void detectsFormatFromExtension() {
+        assertEquals(SubtitleRenderer.Format.SRT, SubtitleParser.detectFormat("a.SRT"));
+        assertEquals(SubtitleRenderer.Format.VTT, SubtitleParser.detectFormat("a.b.vtt"));
+        assertEquals(SubtitleRenderer.Format.ASS, SubtitleParser.detectFormat("a.ssa"));
+        assertNull(SubtitleParser.detectFormat("a.txt"));
+        assertNull(SubtitleParser.detectFormat("srt"));
+    }
+
+    @Test
+    void openReaderDetectsUtf16Bom() throws IOException {
+        String srt = "1\n00:00:01,000 --> 00:00:02,000\n你好\n";
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_16BE, StandardCharsets.UTF_16LE}) {
+            byte[] body = srt.getBytes(charset);
+            byte[] bytes = new byte[body.length + 2];
+            bytes[0] = (byte) (charset == StandardCharsets.UTF_16BE ? 0xFE : 0xFF);
+            bytes[1] = (byte) (charset == StandardCharsets.UTF_16BE ? 0xFF : 0xFE);
+            System.arraycopy(body, 0, bytes, 2, body.length);
+
+            List<SubtitleSegment> segments = parse(bytes, StandardCharsets.UTF_8);
+
+            assertEquals(1, segments.size(), charset.name());
+            assertEquals("你好", segments.get(0).getText(), charset.name());
+        }
+    }
+
+    @Test
+    void openReaderPrefersUtf8BomOverRequestedCharset() throws IOException {
+        byte[] body = "1\n00:00:01,000 --> 00:00:02,000\n你好\n".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[body.length + 3];
+        bytes[0] = (byte) 0xEF;
+        bytes[1] = (byte) 0xBB;
+        bytes[2] = (byte) 0xBF;
+        System.arraycopy(body, 0, bytes, 3, body.length);
+
+        List<SubtitleSegment> segments = parse(bytes, Charset.forName("GBK"));
+
+        assertEquals("你好", segments.get(0).getText());
+    }
+
+    @Test
+    void openReaderUsesRequestedCharsetWithoutBom() throws IOException {
+        Charset gbk = Charset.forName("GBK");
+        byte[] bytes = "1\n00:00:01,000 --> 00:00:02,000\n你好\n".getBytes(gbk);
+
+        assertEquals("你好", parse(bytes, gbk).get(0).getText());
+    }
+
+    @Test
+    void openReaderRejectsMalformedUtf8() {
+        byte[] bytes = "1\n00:00:01,000 --> 00:00:02,000\n你好\n".getBytes(Charset.forName("GBK"));
+
+        assertThrows(CharacterCodingException.class, () -> parse(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static List<SubtitleSegment> parse(String content, SubtitleRenderer.Format format) throws IOException {
+        return SubtitleParser.parse(new StringReader(content), format);
+    }
+
+    private static List<SubtitleSegment> parse(byte[] bytes, Charset charset) throws IOException {
+        try (Reader reader = SubtitleParser.openReader(new ByteArrayInputStream(bytes), charset)) {
+            return SubtitleParser.parse(reader, SubtitleRenderer.Format.SRT);
+        }
+    }
+
+    private static void assertSegment(SubtitleSegment segment, int index, double start, double end, String text) {
+        assertEquals(index, segment.getIndex());
+        assertEquals(start, segment.getStartTime(), 1e-9);
+        assertEquals(end, segment.getEndTime(), 1e-9);
+        assertEquals(text, segment.getText());
+    }
+}
@@ -0,0 +1,84 @@
+package com.subtitle.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ShortBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * VoiceActivityDetector 逐帧判定测试
+ */
+class VoiceActivityDetectorTest {
+
+    private static final int SAMPLE_RATE = 16000;
+
+    /**
+     * 20毫秒分析帧
+     */
+    private static final int FRAMES_PER_SECOND = 1000 / VoiceActivityDetector.FRAME_MILLIS;
+
+    @Test
+    void detectsToneAndSilence() {
+        short[] pcm = AudioChunkPlannerTest.synthesize(new double[][]{{2, 5}}, 8);
+
+        VoiceActivityDetector.Analysis analysis = VoiceActivityDetector.analyze(ShortBuffer.wrap(pcm), SAMPLE_RATE);
+
+        assertEquals(SAMPLE_RATE * VoiceActivityDetector.FRAME_MILLIS / 1000, analysis.getFrameSize());
+        assertEquals(pcm.length, analysis.getSampleCount());
+        assertEquals(8 * FRAMES_PER_SECOND, analysis.getFrameCount());
+        for (int frame = 2 * FRAMES_PER_SECOND; frame < 5 * FRAMES_PER_SECOND; frame++) {
+            assertTrue(analysis.isSpeech(frame), "语音帧 " + frame);
+        }
+        // 两端余量200毫秒以外均为静音
+        for (int frame = 0; frame < 2 * FRAMES_PER_SECOND - 10; frame++) {
+            assertFalse(analysis.isSpeech(frame), "静音帧 " + frame);
+        }
+        for (int frame = 5 * FRAMES_PER_SECOND + 10; frame < analysis.getFrameCount(); frame++) {
+            assertFalse(analysis.isSpeech(frame), "静音帧 " + frame);
+        }
+    }
+
+    @Test
+    void fillsShortPauseAndDropsShortClick() {
+        // 100毫秒停顿短于静音最小长度，应被填补；40毫秒的孤立脉冲短于语音最小长度，应被去除
+        short[] pcm = AudioChunkPlannerTest.synthesize(new double[][]{{1, 3}, {3.1, 5}, {7, 7.04}}, 9);
+
+        VoiceActivityDetector.Analysis analysis = VoiceActivityDetector.analyze(ShortBuffer.wrap(pcm), SAMPLE_RATE);
+
+        for (int frame = 3 * FRAMES_PER_SECOND; frame < (int) (3.1 * FRAMES_PER_SECOND); frame++) {
+            assertTrue(analysis.isSpeech(frame), "停顿帧 " + frame);
+        }
+        for (int frame = 6 * FRAMES_PER_SECOND; frame < 8 * FRAMES_PER_SECOND; frame++) {
+            assertFalse(analysis.isSpeech(frame), "脉冲附近帧 " + frame);
+        }
+    }
+
+    @Test
+    void silenceHasNoSpeechFrames() {
+        VoiceActivityDetector.Analysis zeros = VoiceActivityDetector.analyze(ShortBuffer.wrap(new short[SAMPLE_RATE * 3]),
+                SAMPLE_RATE);
+        VoiceActivityDetector.Analysis noise = VoiceActivityDetector.analyze(
+                ShortBuffer.wrap(AudioChunkPlannerTest.synthesize(new double[0][], 3)), SAMPLE_RATE);
+
+        for (int frame = 0; frame < zeros.getFrameCount(); frame++) {
+            assertFalse(zeros.isSpeech(frame));
+            assertFalse(noise.isSpeech(frame));
+        }
+        assertEquals(0, VoiceActivityDetector.analyze(ShortBuffer.wrap(new short[0]), SAMPLE_RATE).getFrameCount());
+    }
+
+    @Test
+    void analyzesFromBufferPosition() {
+        short[] pcm = AudioChunkPlannerTest.synthesize(new double[][]{{0, 1}}, 2);
+        ShortBuffer buffer = ShortBuffer.wrap(pcm);
+        buffer.position(SAMPLE_RATE);
+
+        VoiceActivityDetector.Analysis analysis = VoiceActivityDetector.analyze(buffer, SAMPLE_RATE);
+
+        assertEquals(SAMPLE_RATE, analysis.getSampleCount());
+        assertEquals(SAMPLE_RATE, buffer.position());
+    }
+}
@@ -0,0 +1,29 @@
+-- 字幕片段 Mapper 测试用表结构（H2 MySQL 兼容模式），与 schema.sql 中的 subtitles、subtitle_segments 保持一致
+
+CREATE TABLE IF NOT EXISTS subtitles (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    video_id BIGINT NOT NULL,
+    language VARCHAR(10) NOT NULL,
+    content TEXT NOT NULL,
+    format VARCHAR(10) DEFAULT 'JSON',
+    status TINYINT DEFAULT 0,
+    error_message TEXT,
+    duration INT,
+    segment_count INT,
+    file_path VARCHAR(500),
+    max_segment_ms BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS subtitle_segments (
+    subtitle_id BIGINT NOT NULL,
+    start_ms BIGINT NOT NULL,
+    seq INT NOT NULL,
+    end_ms BIGINT NOT NULL,
+    text TEXT NOT NULL,
+    confidence DOUBLE,
+    speaker INT,
+    PRIMARY KEY (subtitle_id, start_ms, seq),
+    FOREIGN KEY (subtitle_id) REFERENCES subtitles(id) ON DELETE CASCADE
+);
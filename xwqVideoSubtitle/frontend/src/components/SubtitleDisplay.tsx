@@ -8,6 +8,7 @@ const SubtitleDisplay: React.FC = () => {
   const [subtitles, setSubtitles] = useState<Subtitle[]>([]);
   const [selectedSubtitle, setSelectedSubtitle] = useState<Subtitle | null>(null);
   const [segments, setSegments] = useState<SubtitleSegment[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [currentSegmentIndex, setCurrentSegmentIndex] = useState(-1);
   const [languages] = useState<LanguageOption[]>(systemApi.getLanguages());
   const [isPlaying, setIsPlaying] = useState(false);
@@ -26,12 +27,24 @@ const SubtitleDisplay: React.FC = () => {
 
   useEffect(() => {
     if (selectedSubtitle) {
-      const segments = JSON.parse(selectedSubtitle.content);
-      setSegments(segments || []);
+      setSegments([]);
+      setNextCursor(null);
       setCurrentSegmentIndex(-1);
+      loadSegments(selectedSubtitle.id);
     }
   }, [selectedSubtitle]);
 
+  // 分页加载字幕片段，cursor 为空时加载第一页
+  const loadSegments = async (subtitleId: number, cursor?: string) => {
+    try {
+      const page = await subtitleApi.getSegments(subtitleId, { cursor });
+      setSegments(prev => (cursor ? [...prev, ...page.segments] : page.segments));
+      setNextCursor(page.nextCursor || null);
+    } catch (error) {
+      console.error('加载字幕片段失败:', error);
+    }
+  };
+
   const loadSubtitles = async () => {
     if (!currentVideo) return;
 
@@ -60,50 +73,74 @@ const SubtitleDisplay: React.FC = () => {
       const taskId = await subtitleApi.generate(currentVideo.id, 'auto');
       setCurrentTaskId(taskId);
 
-      // 定期检查任务状态
-      const checkStatus = setInterval(async () => {
-        try {
-          const task: TaskRecord = await subtitleApi.getTaskStatus(taskId);
-          updateTask(taskId, task);
+      // 处理任务进度，返回任务是否已结束
+      const handleProgress = (task: Partial<TaskRecord>): boolean => {
+        updateTask(taskId, task);
 
-          // 更新进度和消息
-          setTaskProgress(task.progress || 0);
+        // 更新进度和消息
+        setTaskProgress(task.progress || 0);
 
-          // 显示后端返回的消息，如果没有则显示默认消息
-          if (task.message) {
-            setTaskMessage(task.message);
-          } else if (task.progress < 100) {
-            setTaskMessage('处理中...');
-          }
+        // 显示后端返回的消息，如果没有则显示默认消息
+        if (task.message) {
+          setTaskMessage(task.message);
+        } else if ((task.progress || 0) < 100) {
+          setTaskMessage('处理中...');
+        }
 
-          if (task.status === 1) { // 完成
-            clearInterval(checkStatus);
-            setIsGenerating(false);
-            setTaskProgress(100);
-            setTaskMessage('字幕生成完成！');
-            loadSubtitles(); // 重新加载字幕
-
-            // 3秒后清除提示
-            setTimeout(() => {
-              setTaskMessage('');
-              setCurrentTaskId(null);
-            }, 3000);
-          } else if (task.status === 2) { // 失败
+        if (task.status === 1) { // 完成
+          setIsGenerating(false);
+          setTaskProgress(100);
+          setTaskMessage('字幕生成完成！');
+          loadSubtitles(); // 重新加载字幕
+
+          // 3秒后清除提示
+          setTimeout(() => {
+            setTaskMessage('');
+            setCurrentTaskId(null);
+          }, 3000);
+          return true;
+        } else if (task.status === 2) { // 失败
+          setIsGenerating(false);
+          // 优先显示errorMessage，其次显示message
+          const errorMsg = task.errorMessage || task.message || '未知错误';
+          setTaskMessage(errorMsg);
+          return true;
+        }
+        return false;
+      };
+
+      // SSE连接不可用时退回到定期查询任务状态
+      const pollStatus = () => {
+        const checkStatus = setInterval(async () => {
+          try {
+            const task: TaskRecord = await subtitleApi.getTaskStatus(taskId);
+            if (handleProgress(task)) {
+              clearInterval(checkStatus);
+            }
+          } catch (error: any) {
+            console.error('检查任务状态失败:', error);
             clearInterval(checkStatus);
             setIsGenerating(false);
-            // 优先显示errorMessage，其次显示message
-            const errorMsg = task.errorMessage || task.message || '未知错误';
+            // 显示后端返回的错误信息
+            const errorMsg = error?.response?.data?.message || error?.message || '检查任务状态失败';
             setTaskMessage(errorMsg);
           }
-        } catch (error: any) {
-          console.error('检查任务状态失败:', error);
-          clearInterval(checkStatus);
-          setIsGenerating(false);
-          // 显示后端返回的错误信息
-          const errorMsg = error?.response?.data?.message || error?.message || '检查任务状态失败';
-          setTaskMessage(errorMsg);
+        }, 2000);
+      };
+
+      // 订阅服务端推送的任务进度
+      let finished = false;
+      subtitleApi.subscribeTaskEvents(
+        taskId,
+        (task) => {
+          finished = handleProgress(task) || finished;
+        },
+        () => {
+          if (!finished) {
+            pollStatus();
+          }
         }
-      }, 2000);
+      );
     } catch (error: any) {
       console.error('启动字幕生成失败:', error);
       setIsGenerating(false);
@@ -266,6 +303,33 @@ const SubtitleDisplay: React.FC = () => {
                 >
                   导出VTT
                 </button>
+                <button
+                  onClick={(e) => {
+                    e.stopPropagation();
+                    exportSubtitle('ass');
+                  }}
+                  className="text-sm text-blue-600 hover:text-blue-800"
+                >
+                  导出ASS
+                </button>
+                <button
+                  onClick={(e) => {
+                    e.stopPropagation();
+                    exportSubtitle('ttml');
+                  }}
+                  className="text-sm text-blue-600 hover:text-blue-800"
+                >
+                  导出TTML
+                </button>
+                <button
+                  onClick={(e) => {
+                    e.stopPropagation();
+                    exportSubtitle('json');
+                  }}
+                  className="text-sm text-blue-600 hover:text-blue-800"
+                >
+                  导出JSON
+                </button>
               </div>
             </div>
           ))}
@@ -289,6 +353,14 @@ const SubtitleDisplay: React.FC = () => {
                 <div className="text-gray-800">{segment.text}</div>
               </div>
             ))}
+            {nextCursor && (
+              <button
+                onClick={() => loadSegments(selectedSubtitle.id, nextCursor)}
+                className="text-sm text-blue-600 hover:text-blue-800"
+              >
+                加载更多
+              </button>
+            )}
           </div>
         </div>
       )}
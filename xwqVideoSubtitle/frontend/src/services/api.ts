@@ -1,5 +1,5 @@
 import axios from 'axios';
-import type { ApiResponse, LanguageOption, LoginResponse, Subtitle, TaskRecord, User, Video } from '../types';
+import type { ApiResponse, LanguageOption, LoginResponse, SegmentPage, Subtitle, TaskRecord, User, Video } from '../types';
 
 const API_BASE_URL = 'http://localhost:8081/api';
 
@@ -31,6 +31,10 @@ api.interceptors.request.use(
 api.interceptors.response.use(
   (response) => {
     const { data } = response;
+    // 文件下载直接返回内容
+    if (response.config.responseType === 'blob') {
+      return data;
+    }
     if (data.code === 200) {
       return data.data;
     } else {
@@ -202,6 +206,33 @@ export const subtitleApi = {
     return response as any;
   },
 
+  // 取消任务
+  cancelTask: async (taskId: string): Promise<void> => {
+    await api.post(`/subtitles/task/${encodeURIComponent(taskId)}/cancel`);
+  },
+
+  // 订阅任务进度（Server-Sent Events），返回 EventSource 供调用方关闭
+  // EventSource 无法设置请求头，先用登录状态换取只能订阅该任务的短期令牌放在URL中，不暴露登录令牌
+  subscribeTaskEvents: async (taskId: string, onProgress: (task: Partial<TaskRecord>) => void, onError: () => void): Promise<EventSource | null> => {
+    let token: string;
+    try {
+      token = await api.post<ApiResponse<string>>(`/subtitles/task/${encodeURIComponent(taskId)}/events/token`) as any;
+    } catch (error) {
+      onError();
+      return null;
+    }
+    const url = `${API_BASE_URL}/subtitles/task/${encodeURIComponent(taskId)}/events?token=${encodeURIComponent(token)}`;
+    const source = new EventSource(url);
+    source.addEventListener('progress', (event) => {
+      onProgress(JSON.parse((event as MessageEvent).data));
+    });
+    source.onerror = () => {
+      source.close();
+      onError();
+    };
+    return source;
+  },
+
   // 获取视频的所有字幕
   getByVideoId: async (videoId: number): Promise<Subtitle[]> => {
     const response = await api.get<ApiResponse<Subtitle[]>>(`/subtitles/video/${videoId}`);
@@ -214,6 +245,15 @@ export const subtitleApi = {
     return response as any;
   },
 
+  // 获取字幕片段：与时间窗口 [from, to)（秒）重叠的片段，通过 nextCursor 继续读取
+  getSegments: async (
+    id: number,
+    params: { from?: number; to?: number; cursor?: string; limit?: number } = {}
+  ): Promise<SegmentPage> => {
+    const response = await api.get<ApiResponse<SegmentPage>>(`/subtitles/${id}/segments`, { params });
+    return response as any;
+  },
+
   // 导出字幕文件
   exportFile: async (id: number, format = 'srt'): Promise<Blob> => {
     const response = await api.get(`/subtitles/${id}/export`, {
@@ -223,6 +263,27 @@ export const subtitleApi = {
     return response as any;
   },
 
+  // 导入字幕文件（SRT、VTT、ASS），可一次上传多个
+  importFiles: async (
+    videoId: number,
+    files: File[],
+    language?: string,
+    charset?: string
+  ): Promise<Array<{ filename: string; subtitleId?: number; segmentCount?: number; error?: string }>> => {
+    const formData = new FormData();
+    formData.append('videoId', String(videoId));
+    if (language) formData.append('language', language);
+    if (charset) formData.append('charset', charset);
+    files.forEach(file => formData.append('files', file));
+
+    const response = await api.post('/subtitles/import', formData, {
+      headers: {
+        'Content-Type': 'multipart/form-data',
+      },
+    });
+    return response as any;
+  },
+
   // 删除字幕
   delete: async (id: number): Promise<void> => {
     await api.delete<ApiResponse<void>>(`/subtitles/${id}`);
@@ -71,12 +71,18 @@ export interface SubtitleSegment {
   alternatives?: string[];
 }
 
+// 字幕片段分页结果
+export interface SegmentPage {
+  segments: SubtitleSegment[];
+  nextCursor?: string | null;
+}
+
 // 字幕类型定义
 export interface Subtitle {
   id: number;
   videoId: number;
   language: string;
-  content: string;
+  content?: string; // 列表和详情接口不返回，片段通过 getSegments 分页读取
   format: string;
   status: number;
   errorMessage?: string;